@@ -0,0 +1,470 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * AnimationClock.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.Timer;
+
+/**
+ * Application-wide pulse scheduler driving every busy animation from a single {@link Timer}.
+ * <p>
+ * Instead of owning a dedicated {@link Timer}, an animated component <strong>subscribes</strong> an {@link ActionListener}
+ * with the delay (in milliseconds) it wishes between two pulses.<br>
+ * The clock fires all subscribers that are due inside the same tick, so hundreds of animated components
+ * produce one event on the <code>Event Dispatch Thread</code> instead of hundreds.
+ * <p>
+ * Subscribers whose due times are close to each other are coalesced together: once fired, a subscriber is rescheduled
+ * from the tick time, so subscribers with the same delay stay in phase and share the following ticks.
+ * <p>
+ * The underlying timer is started when the first subscriber comes and stopped when the last one leaves.<br>
+ * Subscription methods are thread safe, listeners are always invoked on the <code>Event Dispatch Thread</code>.
+ * <p>
+ * The clock is <strong>adaptive</strong>: it measures how late each tick is dispatched by the <code>Event Dispatch Thread</code>,
+ * how long subscribers take to process a pulse and how long animated components take to paint (see {@link #reportPaintDuration(long)}).<br>
+ * When the <code>Event Dispatch Thread</code> falls behind, all delays are stretched by a {@link Statistics#getDelayFactor() delay factor}
+ * in order to lower the animations frame rate. The factor goes back to <code>1</code> when the <code>Event Dispatch Thread</code> recovers.<br>
+ * Subscribers should derive their animation state from the pulse time ({@link ActionEvent#getWhen()}) so they skip frames instead of slowing down.
+ * <p>
+ * Exemple:
+ * <pre>
+ *          ActionListener animation = ...;
+ *
+ *          // receive a pulse every 40ms
+ *          AnimationClock.getInstance().subscribe( animation , 40 );
+ *
+ *          // stop to receive pulses
+ *          AnimationClock.getInstance().unsubscribe( animation );
+ * </pre>
+ *
+ * @author Andr Sbastien (divxdede)
+ * @since 1.2.4
+ */
+public final class AnimationClock {
+
+    /** Minimum delay between two ticks of the clock
+     */
+    private static final int            MINIMUM_DELAY   = 10;
+
+    /** Subscribers due within this window are fired in the current tick
+     */
+    private static final int            COALESCE_WINDOW = 8;
+
+    /** Governor settings: thresholds of the average dispatch latency (in milliseconds)
+     *  and of the animation load (part of the time spent by the Event Dispatch Thread to pulse and paint animations)
+     */
+    private static final double         OVERLOAD_LATENCY   = 20d;
+    private static final double         RECOVERED_LATENCY  = 5d;
+    private static final double         OVERLOAD_LOAD      = 0.5d;
+    private static final double         RECOVERED_LOAD     = 0.25d;
+    private static final double         MAXIMUM_FACTOR     = 8d;
+    private static final double         SLOW_DOWN          = 1.5d;
+    private static final double         SPEED_UP           = 0.8d;
+    private static final long           GOVERNOR_PERIOD    = 250L;
+    private static final double         SMOOTHING          = 0.2d;
+
+    private static final AnimationClock INSTANCE        = new AnimationClock();
+    private static final long           ORIGIN          = System.nanoTime();
+
+    private final List<Subscription>    subscriptions   = new ArrayList<Subscription>();
+    private final Map<ActionListener,Subscription> index = new IdentityHashMap<ActionListener,Subscription>();
+    private       Subscription[]        due             = new Subscription[16];
+    private final Timer                 timer;
+    private       long                  scheduledTime   = 0L;
+
+    /** Governor members
+     */
+    private       boolean               adaptive        = true;
+    private       double                delayFactor     = 1d;
+    private       double                latency         = 0d;   // smoothed dispatch latency (ms)
+    private       double                pulseDuration   = 0d;   // smoothed subscribers processing time per tick (ms)
+    private       double                paintDuration   = 0d;   // smoothed paint time per tick (ms)
+    private       long                  paintNanos      = 0L;   // paint time reported since the last tick
+    private       long                  maximumLatency  = 0L;
+    private       long                  ticks           = 0L;
+    private       double                load            = 0d;   // animation load measured on the last governor period
+
+    /** Measures of the current governor period
+     */
+    private       long                  periodStart     = 0L;
+    private       long                  periodWork      = 0L;   // nanoseconds spent to pulse and paint
+    private       long                  periodLatency   = 0L;   // sum of dispatch latencies
+    private       int                   periodTicks     = 0;
+
+    /** Private constructor, use {@link #getInstance()}
+     */
+    private AnimationClock() {
+        this.timer = new Timer( MINIMUM_DELAY , new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                tick();
+            }
+        });
+        this.timer.setRepeats(false);
+        /** A coalescing timer restarted by another thread while it's tick is dispatched may drop it's next event
+         */
+        this.timer.setCoalesce(false);
+    }
+
+    /** Return the shared <code>AnimationClock</code> instance.
+     *  @return Shared AnimationClock
+     */
+    public static AnimationClock getInstance() {
+        return INSTANCE;
+    }
+
+    /** Subscribe a listener to receive a pulse every <code>delay</code> milliseconds.<br>
+     *  If the listener is already subscribed, only its delay is updated.
+     *  <p>
+     *  The listener is invoked on the <code>Event Dispatch Thread</code>.
+     *  The {@link ActionEvent} received has this clock as source and the tick time (given by {@link System#currentTimeMillis()}) as {@link ActionEvent#getWhen()}.
+     *
+     *  @param listener Listener to invoke at each pulse
+     *  @param delay Delay in milliseconds between two pulses
+     *  @throws NullPointerException if <code>listener</code> is <code>null</code>
+     *  @throws IllegalArgumentException if <code>delay</code> is not positive
+     */
+    public synchronized void subscribe(ActionListener listener , int delay) {
+        if( listener == null ) throw new NullPointerException();
+        if( delay <= 0 ) throw new IllegalArgumentException("delay must be positive");
+
+        long         now          = currentTime();
+        Subscription subscription = this.index.get(listener);
+        if( subscription == null ) {
+            subscription = new Subscription(listener);
+            this.subscriptions.add(subscription);
+            this.index.put(listener,subscription);
+        }
+        else if( subscription.delay == delay ) {
+            return;
+        }
+        subscription.delay   = delay;
+        subscription.dueTime = now + getEffectiveDelay(delay);
+
+        schedule( subscription.dueTime , now );
+    }
+
+    /** Unsubscribe a listener.<br>
+     *  The clock stops itself when no more subscribers remains.
+     *
+     *  @param listener Listener to unsubscribe
+     */
+    public synchronized void unsubscribe(ActionListener listener) {
+        Subscription subscription = this.index.remove(listener);
+        if( subscription != null ) {
+            subscription.active = false;
+            this.subscriptions.remove(subscription);
+        }
+        if( this.subscriptions.isEmpty() && this.timer.isRunning() ) {
+            this.timer.stop();
+        }
+    }
+
+    /** Indicate if the specified listener is currently subscribed to this clock
+     *  @param listener Listener to test
+     *  @return <code>true</code> if the listener receive pulses from this clock
+     */
+    public synchronized boolean isSubscribed(ActionListener listener) {
+        return this.index.containsKey(listener);
+    }
+
+    /** Return the number of subscribers of this clock
+     *  @return number of subscribers
+     */
+    public synchronized int getSubscriberCount() {
+        return this.subscriptions.size();
+    }
+
+    /** Indicate if this clock is running (at least one subscriber is registered)
+     *  @return <code>true</code> if this clock is running
+     */
+    public synchronized boolean isRunning() {
+        return this.timer.isRunning();
+    }
+
+    /** Indicate if this clock adapt it's delays to the <code>Event Dispatch Thread</code> load.
+     *  @return <code>true</code> if the frame rate governor is enabled
+     */
+    public synchronized boolean isAdaptive() {
+        return this.adaptive;
+    }
+
+    /** Enable or disable the frame rate governor.<br>
+     *  When disabled, subscribers receive pulses at their requested delays whatever the <code>Event Dispatch Thread</code> load.
+     *
+     *  @param adaptive <code>true</code> for adapt delays to the <code>Event Dispatch Thread</code> load
+     */
+    public synchronized void setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+        if( !adaptive ) this.delayFactor = 1d;
+    }
+
+    /** Report the time spent by an animated component to paint itself.<br>
+     *  Animated components should report their paint durations so the clock can lower the frame rate when painting become too expensive.
+     *
+     *  @param nanos Paint duration in nanoseconds
+     */
+    public synchronized void reportPaintDuration(long nanos) {
+        if( nanos > 0L ) this.paintNanos += nanos;
+    }
+
+    /** Return a snapshot of the measures done by this clock
+     *  @return Statistics of this clock
+     */
+    public synchronized Statistics getStatistics() {
+        return new Statistics( this.latency , this.maximumLatency , this.pulseDuration , this.paintDuration , this.load , this.delayFactor ,
+                               this.ticks , this.subscriptions.size() );
+    }
+
+    /** Fire all subscribers that are due and schedule the next tick.<br>
+     *  This method is invoked by the timer, so always on the <code>Event Dispatch Thread</code>.<br>
+     *  The next tick is scheduled whatever the subscribers throw, so a failing subscriber can't stop the clock.
+     *  A <code>RuntimeException</code> thrown by a subscriber is given to the uncaught exception handler of the
+     *  <code>Event Dispatch Thread</code> and the others subscribers are still fired.
+     */
+    private void tick() {
+        long now   = currentTime();
+        int  count = 0;
+        synchronized(this) {
+            if( this.scheduledTime != 0L ) measureLatency( Math.max( 0L , now - this.scheduledTime ) );
+            this.scheduledTime = 0L;
+            if( this.due.length < this.subscriptions.size() ) {
+                this.due = new Subscription[ this.subscriptions.size() * 2 ];
+            }
+            for(int i = 0 ; i < this.subscriptions.size() ; i++ ) {
+                Subscription subscription = this.subscriptions.get(i);
+                if( subscription.dueTime - now <= COALESCE_WINDOW ) {
+                    subscription.dueTime = now + getEffectiveDelay( subscription.delay );
+                    this.due[count++] = subscription;
+                }
+            }
+        }
+
+        long        start = System.nanoTime();
+        ActionEvent event = new ActionEvent( this , ActionEvent.ACTION_PERFORMED , null , System.currentTimeMillis() , 0 );
+        int         i     = 0;
+        try {
+            for( ; i < count ; i++ ) {
+                Subscription subscription = this.due[i];
+                this.due[i] = null;
+                if( !subscription.active ) continue; // unsubscribed by a previous listener
+                try {
+                    subscription.listener.actionPerformed(event);
+                }
+                catch(RuntimeException e) {
+                    Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException( thread , e );
+                }
+            }
+        }
+        finally {
+            for( ; i < count ; i++ ) this.due[i] = null;
+
+            synchronized(this) {
+                measureWork( System.nanoTime() - start , now );
+                if( !this.subscriptions.isEmpty() ) {
+                    long next = Long.MAX_VALUE;
+                    for(int j = 0 ; j < this.subscriptions.size() ; j++ ) {
+                        next = Math.min( next , this.subscriptions.get(j).dueTime );
+                    }
+                    schedule( next , currentTime() );
+                }
+            }
+        }
+    }
+
+    /** Return the time (in milliseconds) used for scheduling the pulses.<br>
+     *  It's based on {@link System#nanoTime()} so it's not affected by the changes of the system clock,
+     *  and it's never <code>0</code> which stands for "not set" in this clock.
+     */
+    private static long currentTime() {
+        return ( System.nanoTime() - ORIGIN ) / 1000000L + 1L;
+    }
+
+    /** Return the delay to apply regarding the current delay factor
+     */
+    private long getEffectiveDelay(int delay) {
+        return Math.round( delay * this.delayFactor );
+    }
+
+    /** Add a dispatch latency sample
+     */
+    private void measureLatency(long latency) {
+        this.latency        = smooth( this.latency , latency );
+        this.maximumLatency = Math.max( this.maximumLatency , latency );
+        this.periodLatency += latency;
+    }
+
+    /** Add the work samples of a tick (pulse processing and paints reported since the previous tick)
+     *  and adjust the delay factor at the end of each governor period
+     */
+    private void measureWork(long pulseNanos , long now) {
+        this.ticks++;
+        this.pulseDuration = smooth( this.pulseDuration , pulseNanos / 1000000d );
+        this.paintDuration = smooth( this.paintDuration , this.paintNanos / 1000000d );
+        this.periodWork   += pulseNanos + this.paintNanos;
+        this.periodTicks++;
+        this.paintNanos    = 0L;
+
+        if( this.periodStart == 0L ) this.periodStart = now;
+        long elapsed = now - this.periodStart;
+        if( elapsed < GOVERNOR_PERIOD ) return;
+
+        double latency = (double)this.periodLatency / (double)this.periodTicks;
+        this.load = ( this.periodWork / 1000000d ) / elapsed;
+
+        if( this.adaptive ) {
+            if( latency > OVERLOAD_LATENCY || this.load > OVERLOAD_LOAD ) {
+                this.delayFactor = Math.min( MAXIMUM_FACTOR , this.delayFactor * SLOW_DOWN );
+            }
+            else if( latency < RECOVERED_LATENCY && this.load < RECOVERED_LOAD ) {
+                this.delayFactor = Math.max( 1d , this.delayFactor * SPEED_UP );
+            }
+        }
+        this.periodStart   = now;
+        this.periodWork    = 0L;
+        this.periodLatency = 0L;
+        this.periodTicks   = 0;
+    }
+
+    /** Exponentially weighted moving average
+     */
+    private static double smooth(double average , double sample) {
+        return average + SMOOTHING * ( sample - average );
+    }
+
+    /** Ensure the timer will fire no later than the specified time
+     */
+    private void schedule(long dueTime , long now) {
+        if( this.timer.isRunning() && this.scheduledTime != 0L && this.scheduledTime <= dueTime ) return;
+
+        int delay = (int)Math.max( MINIMUM_DELAY , dueTime - now );
+        this.scheduledTime = now + delay;
+        this.timer.setInitialDelay(delay);
+        this.timer.restart();
+    }
+
+    /** Snapshot of the measures done by the {@link AnimationClock}.<br>
+     *  Durations are smoothed averages given in milliseconds.
+     */
+    public static final class Statistics {
+
+        private final double latency;
+        private final long   maximumLatency;
+        private final double pulseDuration;
+        private final double paintDuration;
+        private final double load;
+        private final double delayFactor;
+        private final long   ticks;
+        private final int    subscribers;
+
+        private Statistics(double latency , long maximumLatency , double pulseDuration , double paintDuration , double load , double delayFactor , long ticks , int subscribers) {
+            this.latency        = latency;
+            this.maximumLatency = maximumLatency;
+            this.pulseDuration  = pulseDuration;
+            this.paintDuration  = paintDuration;
+            this.load           = load;
+            this.delayFactor    = delayFactor;
+            this.ticks          = ticks;
+            this.subscribers    = subscribers;
+        }
+
+        /** Return the average delay (in milliseconds) between the time a tick was scheduled and the time it was dispatched by the <code>Event Dispatch Thread</code>
+         *  @return average dispatch latency in milliseconds
+         */
+        public double getDispatchLatency() {
+            return this.latency;
+        }
+
+        /** Return the maximum dispatch latency (in milliseconds) measured by the clock
+         *  @return maximum dispatch latency in milliseconds
+         */
+        public long getMaximumDispatchLatency() {
+            return this.maximumLatency;
+        }
+
+        /** Return the average time (in milliseconds) spent by subscribers to process a pulse
+         *  @return average pulse processing time in milliseconds
+         */
+        public double getPulseDuration() {
+            return this.pulseDuration;
+        }
+
+        /** Return the average time (in milliseconds) reported by animated components for paint themselves between two ticks
+         *  @return average paint time in milliseconds
+         */
+        public double getPaintDuration() {
+            return this.paintDuration;
+        }
+
+        /** Return the part of time (0 ~ 1) spent by the <code>Event Dispatch Thread</code> to pulse and paint animations
+         *  during the last measured period
+         *  @return animation load of the <code>Event Dispatch Thread</code>
+         */
+        public double getLoad() {
+            return this.load;
+        }
+
+        /** Return the factor currently applied to all subscribers delays.<br>
+         *  <code>1</code> means animations run at their requested frame rate, <code>2</code> means at half of it and so on.
+         *  @return current delay factor
+         */
+        public double getDelayFactor() {
+            return this.delayFactor;
+        }
+
+        /** Return the number of ticks fired by the clock
+         *  @return number of ticks
+         */
+        public long getTicks() {
+            return this.ticks;
+        }
+
+        /** Return the number of subscribers at the time of this snapshot
+         *  @return number of subscribers
+         */
+        public int getSubscriberCount() {
+            return this.subscribers;
+        }
+
+        @Override
+        public String toString() {
+            return "latency=" + Math.round( this.latency ) + "ms (max " + this.maximumLatency + "ms), pulse=" + Math.round( this.pulseDuration ) +
+                   "ms, paint=" + Math.round( this.paintDuration ) + "ms, load=" + Math.round( this.load * 100d ) + "%, delayFactor=" + this.delayFactor + ", ticks=" + this.ticks +
+                   ", subscribers=" + this.subscribers;
+        }
+    }
+
+    /** Store a subscriber with it's delay and next due time
+     */
+    private static class Subscription {
+
+        private final    ActionListener listener;
+        private          int            delay;
+        private          long           dueTime;
+        private volatile boolean        active = true;
+
+        private Subscription(ActionListener listener) {
+            this.listener = listener;
+        }
+    }
+}
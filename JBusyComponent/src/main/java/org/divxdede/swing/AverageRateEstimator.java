@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * AverageRateEstimator.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing;
+
+/**
+ * Estimate the remaining time with the average advance speed of the samples: their total advance by their total duration.
+ * <p>
+ * This is the historical estimation of the {@link RemainingTimeMonitor}.<br>
+ * The confidence interval is given by the dispersion of the samples rates weighted by their durations.
+ *
+ * @author Andr Sbastien (divxdede)
+ * @since 1.2.4
+ */
+public class AverageRateEstimator implements RemainingTimeEstimator {
+
+    /** Minimum advance (as a ratio) for extrapolate a remaining time, small enough for byte-scale long ranges
+     */
+    private static final double MINIMUM_ADVANCE = 1e-12d;
+
+    public Estimation estimate(final ProgressSamples samples , final double remainingRatio) {
+        long   time    = samples.getTotalDuration();
+        double advance = samples.getTotalAdvance();
+        if( advance < MINIMUM_ADVANCE || time <= 0L ) {
+            return Estimation.fromRate( remainingRatio , 0d , 0d );
+        }
+        double rate = advance / time;
+
+        double variance = 0d;
+        for(int i = 0 ; i < samples.size() ; i++ ) {
+            double diff = samples.getRate(i) - rate;
+            variance += samples.getDuration(i) * diff * diff;
+        }
+        variance /= time;
+
+        return Estimation.fromRate( remainingRatio , rate , Math.sqrt( variance / samples.size() ) );
+    }
+}
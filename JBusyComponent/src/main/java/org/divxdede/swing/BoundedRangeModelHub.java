@@ -19,8 +19,10 @@
 package org.divxdede.swing;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import javax.swing.BoundedRangeModel;
 import javax.swing.DefaultBoundedRangeModel;
@@ -73,7 +75,14 @@ import org.divxdede.commons.Sizable;
  * <ul>
  *  <li>{@link #split(BoundedRangeModel, int)} an uniform split (each sub-models have the same weight)</li>
  *  <li>{@link #split(BoundedRangeModel, float...)} a non uniform split (each weight are specified by this method)</li>
+ *  <li>{@link #split(BoundedRangeModel, WeightCalibrator, String[], float...)} a split calibrated from the durations of past runs</li>
  * </ul>
+ * <p>
+ * Static weights don't reflect how long each sub-model really take. A {@link WeightCalibrator} (see {@link #setWeightCalibrator(WeightCalibrator)})
+ * measure the durations of the sub-models identified by a stable id and weight the next ones with the same id from these durations.
+ * <p>
+ * The master's value is maintained incrementally: the hub keep the last contribution of each sub-model and apply only the
+ * difference made by the sub-model that changed. So a change costs the same whatever the count of sub-models is.
  * 
  * @author Andr Sbastien - INFASS Systmes (http://www.infass.com)
  * @since 1.1
@@ -81,8 +90,12 @@ import org.divxdede.commons.Sizable;
 public class BoundedRangeModelHub implements ChangeListener, Iterable<BoundedRangeModel>, Sizable, Disposable {
 
     private List<WeightBoundedRangeModel> subs = new ArrayList<WeightBoundedRangeModel>();
+    private Map<BoundedRangeModel, WeightBoundedRangeModel> index = new IdentityHashMap<BoundedRangeModel, WeightBoundedRangeModel>();
     private BoundedRangeModel master = null;
     private float totalWeight = 0f;
+    private WeightCalibrator calibrator = null;
+    private Object lastTracked = null; // calibrator token of the last sub-model added with an id
+    private double progress = 0d; // sum of the sub-models contributions (weight * ratio)
     private boolean changing = false;
 
     /** Create an empty <code>BoundedRangeModelHub</code> without master model.
@@ -141,7 +154,7 @@ public class BoundedRangeModelHub implements ChangeListener, Iterable<BoundedRan
             }
         }
         if (oldMaster != this.master) {
-            stateChanged(null);
+            recompute();
         }
     }
 
@@ -171,6 +184,69 @@ public class BoundedRangeModelHub implements ChangeListener, Iterable<BoundedRan
         return addFragment(new DefaultBoundedRangeModel(), weight);
     }
 
+    /** Create a sub-model identified by a stable id with a default <strong>weight</strong>.<br>
+     *  If this hub has a {@link WeightCalibrator}, the sub-model is weighted from the durations recorded for this id
+     *  and it's duration is measured for the next runs.
+     *
+     * @param id Stable id of the sub-model among the runs
+     * @param weight Weight of the sub-model when the calibrator don't know it (or without calibrator)
+     * @return The newly created sub-model.
+     * @throws IllegalArgumentException if <code>weight</code> is negative.
+     * @see #setWeightCalibrator(WeightCalibrator)
+     * @since 1.2.4
+     */
+    public synchronized BoundedRangeModel createFragment(String id, float weight) {
+        return addFragment(new DefaultBoundedRangeModel(), id, weight);
+    }
+
+    /** Add a {@link BoundedRangeModel} as a sub-model identified by a stable id with a default <strong>weight</strong>.<br>
+     *  If this hub has a {@link WeightCalibrator}, the sub-model is weighted from the durations recorded for this id
+     *  and it's duration is measured for the next runs.
+     *
+     * @param fragment Sub-model to add to this hub
+     * @param id Stable id of the sub-model among the runs
+     * @param weight Weight of the sub-model when the calibrator don't know it (or without calibrator)
+     * @return Return the added sub-model.
+     * @throws NullPointerException if fragment or id is <code>null</code>
+     * @throws IllegalArgumentException if <code>weight</code> is negative or if fragment is already a sub-model of this hub.
+     * @see #setWeightCalibrator(WeightCalibrator)
+     * @since 1.2.4
+     */
+    public synchronized BoundedRangeModel addFragment(BoundedRangeModel fragment, String id, float weight) {
+        if (id == null) {
+            throw new NullPointerException("id can't be null");
+        }
+        if (this.calibrator == null) {
+            return addFragment(fragment, weight);
+        }
+        if( weight < 0 ) throw new IllegalArgumentException("weight must be positive");
+
+        addFragment(fragment, this.calibrator.getWeight(id, weight));
+        this.lastTracked = this.calibrator.track(id, weight, fragment, this.lastTracked);
+        return fragment;
+    }
+
+    /** Define the calibrator weighting the sub-models added with an id from the durations of the past runs.<br>
+     *  Sub-models already in this hub keep their weights.
+     *
+     * @param calibrator Calibrator to use (can be <code>null</code>)
+     * @see #createFragment(String, float)
+     * @since 1.2.4
+     */
+    public synchronized void setWeightCalibrator(WeightCalibrator calibrator) {
+        this.calibrator = calibrator;
+        this.lastTracked = null;
+    }
+
+    /** Retrieve the calibrator weighting the sub-models added with an id
+     *
+     * @return Calibrator of this hub (may be null)
+     * @since 1.2.4
+     */
+    public synchronized WeightCalibrator getWeightCalibrator() {
+        return this.calibrator;
+    }
+
     /** Add a {@link BoundedRangeModel} as a sub-model with a specified <strong>weight</strong>.<br>
      *  Any changes that applies from this added sub-model are forwarded to the master model for update it's value.
      *  <p>
@@ -183,23 +259,27 @@ public class BoundedRangeModelHub implements ChangeListener, Iterable<BoundedRan
      * @param weight Weight to bound to the newly created sub-model (fragment)
      * @return Return the added sub-model.
      * @throws NullPointerException if fragment is <code>null</code>
-     * @throws IllegalArgumentException if <code>weight</code> is negative.
+     * @throws IllegalArgumentException if <code>weight</code> is negative or if fragment is already a sub-model of this hub.
      */
     public synchronized BoundedRangeModel addFragment(BoundedRangeModel fragment, float weight) {
         if (fragment == null) {
             throw new NullPointerException();
         }
         if( weight < 0 ) throw new IllegalArgumentException("weight must be positive");
+        if( index.containsKey(fragment) ) throw new IllegalArgumentException("fragment already in this hub");
 
         WeightBoundedRangeModel splitted = new WeightBoundedRangeModel(fragment, weight);
         if (master != null) {
             splitted.getModel().addChangeListener(this);
         }
+        splitted.setIndex(subs.size());
         subs.add(splitted);
+        index.put(fragment, splitted);
 
         this.totalWeight += weight;
+        this.progress += splitted.update();
 
-        stateChanged(null);
+        publish();
         return splitted.getModel();
     }
 
@@ -215,8 +295,15 @@ public class BoundedRangeModelHub implements ChangeListener, Iterable<BoundedRan
         WeightBoundedRangeModel splitted = this.subs.remove(index);
         if (splitted != null) {
             splitted.getModel().removeChangeListener(this);
+            this.index.remove(splitted.getModel());
+            for (int i = index; i < this.subs.size(); i++) {
+                this.subs.get(i).setIndex(i);
+            }
             this.totalWeight = this.totalWeight - splitted.getWeight();
-            stateChanged(null);
+
+            /** Removals are rare, recompute the sum for dropping any rounding drift of the incremental updates
+             */
+            recompute();
 
             return splitted.getModel();
         }
@@ -261,12 +348,8 @@ public class BoundedRangeModelHub implements ChangeListener, Iterable<BoundedRan
      *  @return Sub-model's index or <code>-1</code> if the specified model is not a sub-model on this hub.
      */
     public synchronized int indexOf(BoundedRangeModel model) {
-        for (int i = 0; i < this.subs.size(); i++) {
-            if (model == this.subs.get(i).getModel()) {
-                return i;
-            }
-        }
-        return -1;
+        WeightBoundedRangeModel sub = this.index.get(model);
+        return sub == null ? -1 : sub.getIndex();
     }
 
     /** Get a sub-model by it's index inside this hub.
@@ -312,10 +395,12 @@ public class BoundedRangeModelHub implements ChangeListener, Iterable<BoundedRan
     public synchronized void setWeight(int index, float newWeight) {
         if( newWeight < 0 ) throw new IllegalArgumentException("Weight must be positive");
 
-        float oldWeight = getWeight(index);
-        this.subs.get(index).setWeight(newWeight);
+        WeightBoundedRangeModel sub = this.subs.get(index);
+        float oldWeight = sub.getWeight();
+        sub.setWeight(newWeight);
         this.totalWeight = this.totalWeight - oldWeight + newWeight;
-        stateChanged(null);
+        this.progress += sub.update();
+        publish();
     }
 
     /** Get the total weight of this hub.<br>
@@ -345,20 +430,62 @@ public class BoundedRangeModelHub implements ChangeListener, Iterable<BoundedRan
      *  But not should be called directly.
      */
     public synchronized void stateChanged(ChangeEvent e) {
+        Object source = e == null ? null : e.getSource();
+        if (source != null && source == this.master) {
+            // the master range has changed, the contributions are the same
+            publish();
+            return;
+        }
+
+        WeightBoundedRangeModel sub = source == null ? null : this.index.get(source);
+        if (sub != null) {
+            this.progress += sub.update();
+            publish();
+        } else {
+            recompute();
+        }
+    }
+
+    /** Compute again the contribution of each sub-models and publish the master's value
+     */
+    private void recompute() {
+        double sum = 0d;
+        for (WeightBoundedRangeModel sub : subs) {
+            sub.update();
+            sum += sub.getContribution();
+        }
+        this.progress = sum;
+        publish();
+    }
+
+    /** Publish the master's value from the sum of the sub-models contributions
+     */
+    private void publish() {
         if (changing) {
             return;
         }
         changing = true;
         try {
-            if (getMasterBoundedRangeModel() == null) {
+            BoundedRangeModel master = getMasterBoundedRangeModel();
+            if (master == null) {
                 return;
             }
 
-            int extent = 0;
-            for (WeightBoundedRangeModel sub : subs) {
-                extent += sub.getExtentPartFor(getTotalWeight(), getMasterBoundedRangeModel());
+            double otherLength;
+            if (master instanceof LongBoundedRangeModel) {
+                LongBoundedRangeModel model = (LongBoundedRangeModel) master;
+                otherLength = (double) model.getLongMaximum() - (double) model.getLongMinimum() - (double) model.getLongExtent();
+            } else {
+                otherLength = (double) master.getMaximum() - (double) master.getMinimum() - (double) master.getExtent();
+            }
+            double ratio = this.totalWeight <= 0f ? 0d : Math.max(0d, Math.min(1d, this.progress / this.totalWeight));
+            long extent = (long) (otherLength * ratio);
+
+            if (master instanceof LongBoundedRangeModel) {
+                ((LongBoundedRangeModel) master).setLongValue(extent);
+            } else {
+                master.setValue((int) extent);
             }
-            getMasterBoundedRangeModel().setValue(extent);
         } finally {
             changing = false;
         }
@@ -417,30 +544,75 @@ public class BoundedRangeModelHub implements ChangeListener, Iterable<BoundedRan
         return hub;
     }
 
+    /** Split the specified {@link BoundedRangeModel} on multiple sub-models weighted from the durations of the past runs.
+     *  <p>
+     *  Each sub-model is identified by a stable id, it's weight is given by the calibrator and the specified weight is used
+     *  only if the calibrator don't know it.
+     *
+     * @param toSplit BoundedRangeModel to split.
+     * @param calibrator Calibrator recording the durations of the sub-models.
+     * @param ids Stable ids of the sub-models to create.
+     * @param weights Default weights of the sub-models (same length than ids).
+     * @return Hub resulting of this split operation.
+     * @since 1.2.4
+     */
+    public static BoundedRangeModelHub split(BoundedRangeModel toSplit, WeightCalibrator calibrator, String[] ids, float... weights) {
+        if (ids.length != weights.length) {
+            throw new IllegalArgumentException("ids and weights must have the same length");
+        }
+
+        BoundedRangeModelHub hub = new BoundedRangeModelHub(toSplit);
+        hub.setWeightCalibrator(calibrator);
+        for (int i = 0; i < ids.length; i++) {
+            hub.createFragment(ids[i], weights[i]);
+        }
+        return hub;
+    }
+
     /** Private implementation, for store a weight to a sub-model
      */
     private static class WeightBoundedRangeModel {
 
         private BoundedRangeModel model = null;
         private float weight = 0f;
+        private double contribution = 0d; // last contribution (weight * ratio) applied to the hub
+        private int index = -1;
 
         private WeightBoundedRangeModel(BoundedRangeModel model, float weight) {
             this.model = model;
             this.weight = weight;
         }
 
-        /** Rcupere la valeur au sein du BoundedRangeModel spcifi correspondant  ce SplittedBoundedRangeModel
+        /** Compute the current contribution of this sub-model (weight * ratio)
+         *  @return difference with the last contribution
          */
-        public int getExtentPartFor(float totalWeight, BoundedRangeModel other) {
+        private double update() {
+            double length;
+            double position;
+            if (getModel() instanceof LongBoundedRangeModel) {
+                LongBoundedRangeModel model = (LongBoundedRangeModel) getModel();
+                length = (double) model.getLongMaximum() - (double) model.getLongMinimum();
+                position = ((double) model.getLongValue() + (double) model.getLongExtent()) - (double) model.getLongMinimum();
+            } else {
+                length = (double) getModel().getMaximum() - (double) getModel().getMinimum();
+                position = ((double) getModel().getValue() + (double) getModel().getExtent()) - (double) getModel().getMinimum();
+            }
+            double newContribution = length <= 0d ? 0d : (double) this.weight * (position / length);
+            double delta = newContribution - this.contribution;
+            this.contribution = newContribution;
+            return delta;
+        }
+
+        private double getContribution() {
+            return this.contribution;
+        }
 
-            // min <= value <= value+extent <= max
-            int length = getModel().getMaximum() - getModel().getMinimum();
-            int position = (getModel().getValue() + getModel().getExtent()) - getModel().getMinimum();
-            float ratio = (float) position / (float) length;
+        private int getIndex() {
+            return this.index;
+        }
 
-            int otherLength = other.getMaximum() - other.getMinimum() - other.getExtent();
-            float otherRatio = ratio * (this.weight / totalWeight);
-            return (int) (otherLength * otherRatio);
+        private void setIndex(int index) {
+            this.index = index;
         }
 
         private float getWeight() {
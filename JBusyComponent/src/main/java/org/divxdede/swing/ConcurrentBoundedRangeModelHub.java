@@ -0,0 +1,584 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * ConcurrentBoundedRangeModelHub.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.swing.BoundedRangeModel;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import org.divxdede.collection.ArrayIterator;
+import org.divxdede.commons.Disposable;
+import org.divxdede.commons.Sizable;
+
+/**
+ * A thread safe variant of {@link BoundedRangeModelHub} designed for fragments updated by worker threads.
+ * <p>
+ * Fragments are not <code>BoundedRangeModel</code>s but lock-free progress cells ({@link Fragment}): any thread can
+ * update a fragment without any lock and without firing any listener.<br>
+ * An updated fragment is queued once until the next publication, so the cost of an update don't depend
+ * on how many fragments or listeners exist.
+ * <p>
+ * The aggregated progression is published to the master model on the <code>Event Dispatch Thread</code>
+ * at a bounded cadence using the shared {@link AnimationClock} (see {@link #setPublishDelay(int)}).<br>
+ * A publication only apply the contributions of the fragments updated since the previous one.
+ * <p>
+ * Like the {@link BoundedRangeModelHub}, each fragment has a weight that describe how much it take part on the master model.
+ * <p>
+ * Hubs can be nested for reflecting a hierarchical progression (job, stages, files, chunks...): a hub added to another one
+ * with {@link #addHub(ConcurrentBoundedRangeModelHub, float)} take part on it like a weighted fragment.<br>
+ * A fragment update only mark it's hub and the ancestors dirty (once per publication), only the root hub publish:
+ * the whole tree is recomputed once per frame in a single pass visiting only the dirty nodes.
+ * Nested hubs having their own master model are updated by the same pass.<br>
+ * Subtrees can be added or removed while fragments are updated.
+ * <p>
+ * Exemple:
+ * <pre>
+ *          ConcurrentBoundedRangeModelHub hub = new ConcurrentBoundedRangeModelHub( busyComponent.getBusyModel() );
+ *
+ *          for(final File file : files ) {
+ *              final ConcurrentBoundedRangeModelHub.Fragment fragment = hub.createFragment( file.length() );
+ *              executor.execute( new Runnable() {
+ *                  public void run() {
+ *                      fragment.setMaximum( file.length() );
+ *                      // from the worker thread
+ *                      fragment.increment( read );
+ *                  }
+ *              });
+ *          }
+ *
+ *          // nested progression
+ *          ConcurrentBoundedRangeModelHub stage = hub.createHub( 3f );
+ *          ConcurrentBoundedRangeModelHub.Fragment chunk = stage.createFragment( 1f );
+ * </pre>
+ *
+ * @author Andr Sbastien (divxdede)
+ * @since 1.2.4
+ */
+public class ConcurrentBoundedRangeModelHub implements Iterable<ConcurrentBoundedRangeModelHub.Fragment>, Sizable, Disposable {
+
+    /** Delay between two publications (one frame)
+     */
+    private static final int                       DEFAULT_DELAY  = 16;
+
+    /** Lock serializing the structural changes of all trees (hubs nested or removed).<br>
+     *  It's always taken first, then the hub locks are taken from the parent to the child like the publication pass does,
+     *  so two hubs nested in each other concurrently can't deadlock.
+     */
+    private static final Object                    TREE_LOCK      = new Object();
+
+    private final List<Fragment>                   fragments      = new ArrayList<Fragment>();
+    private final List<ConcurrentBoundedRangeModelHub> hubs       = new ArrayList<ConcurrentBoundedRangeModelHub>();
+    private final ConcurrentLinkedQueue<Node>      dirty          = new ConcurrentLinkedQueue<Node>();
+    private final AtomicBoolean                    publishPending = new AtomicBoolean(false);
+    private final ActionListener                   publisher      = new Publisher();
+    private final ChangeListener                   masterListener = new MasterListener();
+    private volatile int                           publishDelay   = DEFAULT_DELAY;
+    private volatile BoundedRangeModel             master         = null;
+    private volatile Link                          link           = null;  // attachment to the parent hub, null for a root hub
+    private float                                  totalWeight    = 0f;
+    private double                                 progress       = 0d;    // sum of the fragments contributions (weight * ratio)
+    private double                                 ratio          = 0d;    // aggregated progression of the last pass
+    private boolean                                publishing     = false; // the master value is currently published
+
+    /** Create an empty hub without master model
+     */
+    public ConcurrentBoundedRangeModelHub() {
+        this( null );
+    }
+
+    /** Create an empty hub with the specified master model
+     *  @param master Master model to publish the aggregated progression to (can be <code>null</code>)
+     */
+    public ConcurrentBoundedRangeModelHub(final BoundedRangeModel master) {
+        setMasterBoundedRangeModel( master );
+    }
+
+    /** Define the master model to publish the aggregated progression to.<br>
+     *  The master model is updated on the <code>Event Dispatch Thread</code> only.
+     *
+     *  @param model New master model of this hub (can be <code>null</code>)
+     */
+    public synchronized void setMasterBoundedRangeModel(final BoundedRangeModel model) {
+        if( this.master == model ) return;
+        if( this.master != null ) this.master.removeChangeListener( this.masterListener );
+        this.master = model;
+        if( this.master != null ) {
+            this.master.addChangeListener( this.masterListener );
+            schedulePublish();
+        }
+    }
+
+    /** Retrieve the master model of this hub
+     *  @return Master model of this hub (may be null)
+     */
+    public BoundedRangeModel getMasterBoundedRangeModel() {
+        return this.master;
+    }
+
+    /** Create a fragment with a specified <strong>weight</strong>.<br>
+     *  The fragment range is <code>[0 ~ 100]</code> until it's maximum is defined.
+     *
+     *  @param weight Weight of the fragment inside the master model
+     *  @return The newly created fragment
+     *  @throws IllegalArgumentException if <code>weight</code> is negative.
+     */
+    public synchronized Fragment createFragment(final float weight) {
+        if( weight < 0 ) throw new IllegalArgumentException("weight must be positive");
+
+        Fragment fragment = new Fragment( this , weight );
+        this.fragments.add( fragment );
+        this.totalWeight += weight;
+        fragment.markDirty();
+        return fragment;
+    }
+
+    /** Remove a fragment from this hub.<br>
+     *  The removed fragment can still be updated but don't take part anymore on the master model.
+     *
+     *  @param fragment Fragment to remove
+     *  @return <code>true</code> if the fragment was removed
+     */
+    public synchronized boolean removeFragment(final Fragment fragment) {
+        if( fragment == null || fragment.owner != this || ! this.fragments.remove( fragment ) ) return false;
+
+        fragment.removed   = true;
+        this.totalWeight  -= fragment.weight;
+        this.progress     -= fragment.contribution;
+        fragment.contribution = 0d;
+        schedulePublish();
+        return true;
+    }
+
+    /** Get the current <strong>weight</strong> of a fragment
+     *  @param fragment Fragment of this hub
+     *  @return Weight of the fragment
+     */
+    public synchronized float getWeight(final Fragment fragment) {
+        return fragment.weight;
+    }
+
+    /** Define a new <strong>weight</strong> of a fragment
+     *  @param fragment Fragment of this hub
+     *  @param newWeight New weight of the fragment
+     *  @throws IllegalArgumentException if <code>weight</code> is negative or if the fragment don't belong to this hub.
+     */
+    public synchronized void setWeight(final Fragment fragment , final float newWeight) {
+        if( newWeight < 0 ) throw new IllegalArgumentException("Weight must be positive");
+        if( fragment.owner != this || fragment.removed ) throw new IllegalArgumentException("fragment don't belong to this hub");
+
+        this.totalWeight = this.totalWeight - fragment.weight + newWeight;
+        fragment.weight  = newWeight;
+        fragment.markDirty();
+    }
+
+    /** Create a nested hub with a specified <strong>weight</strong>.
+     *
+     *  @param weight Weight of the nested hub inside this hub
+     *  @return The newly created hub
+     *  @throws IllegalArgumentException if <code>weight</code> is negative.
+     */
+    public ConcurrentBoundedRangeModelHub createHub(final float weight) {
+        ConcurrentBoundedRangeModelHub hub = new ConcurrentBoundedRangeModelHub();
+        addHub( hub , weight );
+        return hub;
+    }
+
+    /** Add a hub (and all it's subtree) as a nested hub with a specified <strong>weight</strong>.<br>
+     *  The aggregated progression of the nested hub take part on this hub like a fragment.
+     *
+     *  @param hub Root hub of the subtree to add
+     *  @param weight Weight of the nested hub inside this hub
+     *  @throws IllegalArgumentException if <code>weight</code> is negative, if the hub has already a parent or if it is an ancestor of this hub.
+     */
+    public void addHub(final ConcurrentBoundedRangeModelHub hub , final float weight) {
+        if( weight < 0 ) throw new IllegalArgumentException("weight must be positive");
+
+        Link added;
+        synchronized(TREE_LOCK) {
+            /** Links are only changed with the tree lock, so the ancestors can't change during this check
+             */
+            for(ConcurrentBoundedRangeModelHub ancestor = this ; ancestor != null ; ancestor = ancestor.getParent() ) {
+                if( ancestor == hub ) throw new IllegalArgumentException("a hub can't be nested in itself");
+            }
+            synchronized(this) {
+                synchronized(hub) {
+                    if( hub.link != null ) throw new IllegalArgumentException("hub is already nested in another hub");
+                    added    = new Link( this , hub , weight );
+                    hub.link = added;
+                }
+                this.hubs.add( hub );
+                this.totalWeight += weight;
+            }
+        }
+        added.markDirty();
+    }
+
+    /** Remove a nested hub (and all it's subtree) from this hub.<br>
+     *  The removed hub become a root hub, it publish again itself it's master model.
+     *
+     *  @param hub Nested hub to remove
+     *  @return <code>true</code> if the hub was removed
+     */
+    public boolean removeHub(final ConcurrentBoundedRangeModelHub hub) {
+        if( hub == null ) return false;
+        synchronized(TREE_LOCK) {
+            synchronized(this) {
+                Link removed = hub.link;
+                if( removed == null || removed.owner != this ) return false;
+
+                synchronized(hub) {
+                    hub.link = null;
+                }
+                this.hubs.remove( hub );
+                removed.removed    = true;
+                this.totalWeight  -= removed.weight;
+                this.progress     -= removed.contribution;
+                removed.contribution = 0d;
+                schedulePublish();
+            }
+        }
+        hub.schedulePublish();
+        return true;
+    }
+
+    /** Get the current <strong>weight</strong> of a nested hub
+     *  @param hub Nested hub of this hub
+     *  @return Weight of the nested hub
+     *  @throws IllegalArgumentException if the hub is not nested in this hub.
+     */
+    public synchronized float getWeight(final ConcurrentBoundedRangeModelHub hub) {
+        return linkOf( hub ).weight;
+    }
+
+    /** Define a new <strong>weight</strong> of a nested hub
+     *  @param hub Nested hub of this hub
+     *  @param newWeight New weight of the nested hub
+     *  @throws IllegalArgumentException if <code>weight</code> is negative or if the hub is not nested in this hub.
+     */
+    public synchronized void setWeight(final ConcurrentBoundedRangeModelHub hub , final float newWeight) {
+        if( newWeight < 0 ) throw new IllegalArgumentException("Weight must be positive");
+
+        Link nested = linkOf( hub );
+        this.totalWeight = this.totalWeight - nested.weight + newWeight;
+        nested.weight    = newWeight;
+        nested.markDirty();
+    }
+
+    /** Retrieve all nested hubs of this hub in their insertion order
+     *  @return nested hubs of this hub
+     */
+    public synchronized ConcurrentBoundedRangeModelHub[] getHubs() {
+        return this.hubs.toArray( new ConcurrentBoundedRangeModelHub[ this.hubs.size() ] );
+    }
+
+    /** Return the hub in which this hub is nested
+     *  @return parent hub or <code>null</code> if this hub is a root hub
+     */
+    public ConcurrentBoundedRangeModelHub getParent() {
+        Link current = this.link;
+        return current == null ? null : current.owner;
+    }
+
+    /** Return the attachment of a nested hub to this hub
+     */
+    private Link linkOf(final ConcurrentBoundedRangeModelHub hub) {
+        Link nested = hub.link;
+        if( nested == null || nested.owner != this ) throw new IllegalArgumentException("hub is not nested in this hub");
+        return nested;
+    }
+
+    /** Get the total weight of this hub (sum of all fragments and nested hubs weights)
+     *  @return Total weight of this hub.
+     */
+    public synchronized float getTotalWeight() {
+        return this.totalWeight;
+    }
+
+    /** Retrieve all fragments in this hub in their creation order
+     *  @return fragments of this hub
+     */
+    public synchronized Fragment[] getFragments() {
+        return this.fragments.toArray( new Fragment[ this.fragments.size() ] );
+    }
+
+    /** Create an iterator over the fragments of this hub
+     *  @return Iterator over a copy of the fragments of this hub
+     */
+    public Iterator<Fragment> iterator() {
+        return new ArrayIterator<Fragment>( getFragments() );
+    }
+
+    /** Return the number of fragments in this hub.
+     *  @return The number of fragments in this hub.
+     */
+    public synchronized int size() {
+        return this.fragments.size();
+    }
+
+    /** Define the minimum delay between two publications of the aggregated progression to the master model.
+     *  @param delay Delay in milliseconds
+     */
+    public void setPublishDelay(final int delay) {
+        this.publishDelay = Math.max( 1 , delay );
+    }
+
+    /** Return the minimum delay between two publications of the aggregated progression to the master model.
+     *  @return Delay in milliseconds
+     */
+    public int getPublishDelay() {
+        return this.publishDelay;
+    }
+
+    /** Free all resources of this hub.<br>
+     *  The master model is removed, fragments can be reused after a new master will be set.
+     */
+    public void dispose() {
+        setMasterBoundedRangeModel( null );
+        AnimationClock.getInstance().unsubscribe( this.publisher );
+        this.publishPending.set(false);
+    }
+
+    /** Request a publication if none is pending.<br>
+     *  A nested hub mark itself dirty in it's parent, so only the root hub publish.
+     */
+    private void schedulePublish() {
+        Link current = this.link;
+        if( current != null ) {
+            current.markDirty();
+        }
+        else if( ! this.publishPending.get() && this.publishPending.compareAndSet( false , true ) ) {
+            AnimationClock.getInstance().subscribe( this.publisher , this.publishDelay );
+        }
+    }
+
+    /** Apply the contributions of the updated nodes (recursively for the nested hubs) and return the aggregated progression ratio
+     *  @param touched Receive the drained hubs having a master model
+     */
+    private synchronized double drain(final List<ConcurrentBoundedRangeModelHub> touched) {
+        Node node;
+        while( ( node = this.dirty.poll() ) != null ) {
+            /** Clear the flag before reading the node, updates done after will queue it again
+             */
+            node.dirty.set(false);
+            if( node.removed ) continue;
+
+            double contribution = node.weight * node.computeRatio( touched );
+            this.progress += contribution - node.contribution;
+            node.contribution = contribution;
+        }
+        this.ratio = this.totalWeight <= 0f ? 0d : Math.max( 0d , Math.min( 1d , this.progress / this.totalWeight ) );
+        if( this.master != null ) touched.add( this );
+        return this.ratio;
+    }
+
+    /** Recompute the dirty nodes of this tree and publish the aggregated progressions to the master models (on EDT)
+     */
+    private void publish() {
+        List<ConcurrentBoundedRangeModelHub> touched = new ArrayList<ConcurrentBoundedRangeModelHub>();
+        drain( touched );
+
+        /** Masters are updated once all the locks are released
+         */
+        for(int i = 0 ; i < touched.size() ; i++ ) {
+            ConcurrentBoundedRangeModelHub hub = touched.get(i);
+            hub.publish( hub.master , hub.ratio );
+        }
+    }
+
+    /** Publish a progression ratio to a master model.<br>
+     *  The value is rounded: the incremental sum of the contributions drift of a few ulps, a truncation would
+     *  leave a completed tree one unit short of the maximum.
+     */
+    private void publish(final BoundedRangeModel model , final double ratio) {
+        if( model == null ) return;
+
+        this.publishing = true;
+        try {
+            if( model instanceof LongBoundedRangeModel ) {
+                LongBoundedRangeModel lbrm = (LongBoundedRangeModel)model;
+                double length = (double)lbrm.getLongMaximum() - (double)lbrm.getLongMinimum() - (double)lbrm.getLongExtent();
+                lbrm.setLongValue( lbrm.getLongMinimum() + Math.round( length * ratio ) );
+            }
+            else {
+                double length = (double)model.getMaximum() - (double)model.getMinimum() - (double)model.getExtent();
+                model.setValue( model.getMinimum() + (int)Math.round( length * ratio ) );
+            }
+        }
+        finally {
+            this.publishing = false;
+        }
+    }
+
+    /** Listener receiving a pulse from the {@link AnimationClock} once per publish delay while fragments are updated
+     */
+    private class Publisher implements ActionListener {
+
+        public void actionPerformed(ActionEvent e) {
+            /** Unsubscribe before draining, updates done after will request a new publication
+             */
+            AnimationClock.getInstance().unsubscribe( this );
+            publishPending.set(false);
+
+            /** This hub has been nested since the request, the root hub will publish it
+             */
+            if( link == null ) publish();
+        }
+    }
+
+    /** Listener of the master model, it's range changes require a new publication
+     */
+    private class MasterListener implements ChangeListener {
+
+        public void stateChanged(ChangeEvent e) {
+            if( ! publishing ) schedulePublish();
+        }
+    }
+
+    /**
+     * A weighted node taking part on a hub: a fragment or a nested hub
+     */
+    private static abstract class Node {
+
+        final ConcurrentBoundedRangeModelHub owner;
+        final AtomicBoolean                  dirty        = new AtomicBoolean(false);
+
+        /** Owned by the hub (guarded by the owner lock)
+         */
+        float                                weight;
+        double                               contribution = 0d;
+        boolean                              removed      = false;
+
+        Node(final ConcurrentBoundedRangeModelHub owner , final float weight) {
+            this.owner  = owner;
+            this.weight = weight;
+        }
+
+        /** Compute the current progression of this node as a ratio [0 ~ 1] (on EDT, with the owner lock)
+         */
+        abstract double computeRatio(List<ConcurrentBoundedRangeModelHub> touched);
+
+        /** Queue this node for the next publication if it is not already queued
+         */
+        final void markDirty() {
+            if( ! this.dirty.get() && this.dirty.compareAndSet( false , true ) ) {
+                this.owner.dirty.offer( this );
+                this.owner.schedulePublish();
+            }
+        }
+    }
+
+    /**
+     * Attachment of a nested hub to it's parent.<br>
+     * A new attachment is created each time a hub is nested, so a removed one never publish into the new parent.
+     */
+    private static final class Link extends Node {
+
+        private final ConcurrentBoundedRangeModelHub hub;
+
+        private Link(final ConcurrentBoundedRangeModelHub owner , final ConcurrentBoundedRangeModelHub hub , final float weight) {
+            super( owner , weight );
+            this.hub = hub;
+        }
+
+        double computeRatio(final List<ConcurrentBoundedRangeModelHub> touched) {
+            return this.hub.drain( touched );
+        }
+    }
+
+    /**
+     * Lock-free progress cell of a {@link ConcurrentBoundedRangeModelHub}.
+     * <p>
+     * A fragment progression is a value in the range <code>[0 ~ maximum]</code>.<br>
+     * Any thread can update a fragment, it never block and never fire any listener.
+     */
+    public static final class Fragment extends Node {
+
+        private final AtomicLong                     value        = new AtomicLong(0L);
+        private volatile long                        maximum      = 100L;
+
+        private Fragment(final ConcurrentBoundedRangeModelHub hub , final float weight) {
+            super( hub , weight );
+        }
+
+        /** Define the progression of this fragment
+         *  @param n New value in the range <code>[0 ~ maximum]</code>
+         */
+        public void setValue(final long n) {
+            this.value.set( n );
+            markDirty();
+        }
+
+        /** Add some units of work to the progression of this fragment
+         *  @param delta Number of units of work done
+         */
+        public void increment(final long delta) {
+            if( delta == 0L ) return;
+            this.value.addAndGet( delta );
+            markDirty();
+        }
+
+        /** Return the progression of this fragment
+         *  @return current value
+         */
+        public long getValue() {
+            return this.value.get();
+        }
+
+        /** Define the maximum of this fragment
+         *  @param n New maximum
+         */
+        public void setMaximum(final long n) {
+            this.maximum = n;
+            markDirty();
+        }
+
+        /** Return the maximum of this fragment
+         *  @return current maximum
+         */
+        public long getMaximum() {
+            return this.maximum;
+        }
+
+        /** Mark this fragment as completed
+         */
+        public void complete() {
+            setValue( this.maximum );
+        }
+
+        /** Return the progression of this fragment as a ratio [0 ~ 1]
+         *  @return progression ratio
+         */
+        public double getRatio() {
+            long max = this.maximum;
+            if( max <= 0L ) return 0d;
+            return Math.max( 0d , Math.min( 1d , (double)this.value.get() / (double)max ) );
+        }
+
+        double computeRatio(final List<ConcurrentBoundedRangeModelHub> touched) {
+            return getRatio();
+        }
+    }
+}
@@ -0,0 +1,443 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * EstimationHistory.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local persistent history of the durations and throughputs of the tasks, keyed by operation name.
+ * <p>
+ * A {@link RemainingTimeMonitor} bound to an history (see {@link RemainingTimeMonitor#setHistory(EstimationHistory, String)})
+ * give an estimation as soon as the task start from the past runs of the same operation, then refine it as live samples arrive.
+ * The monitor record the duration and the throughput of each completed task.
+ * <p>
+ * The history is an append-only text file: each recorded run is appended as one line.
+ * The file is compacted (one summary line by operation) when too many runs are appended,
+ * and only the most recently used operations are kept (see {@link #EstimationHistory(File, int)}), so it's size stay bounded.<br>
+ * The compacted file replace the previous one with an atomic move when the platform support it (Java 7+).
+ * <p>
+ * Statistics are updated immediately, but the file is written by a background thread: recording a run
+ * never block the caller (typically the <code>Event Dispatch Thread</code>). Use {@link #flush()} for wait the pending writes.
+ * <p>
+ * Distributions are kept as their count, mean and variance. The count is capped, so the oldest runs are progressively forgotten.
+ * <p>
+ * Exemple:
+ * <pre>
+ *          EstimationHistory history = new EstimationHistory( new File( System.getProperty("user.home") , ".myapp-eta" ) );
+ *          monitor.setHistory( history , "import" );
+ * </pre>
+ *
+ * @author Andr Sbastien (divxdede)
+ * @since 1.2.4
+ */
+public class EstimationHistory {
+
+    private static final int           DEFAULT_MAX_OPERATIONS = 256;
+    private static final int           MAX_COUNT              = 32;
+    private static final String        ENCODING               = "UTF-8";
+    private static final String        SUMMARY                = "S";
+    private static final String        RUN                    = "R";
+
+    /** Files are written by a single daemon thread (in submission order) that stop when it's idle
+     */
+    private static final ExecutorService WRITER = new ThreadPoolExecutor( 0 , 1 , 1L , TimeUnit.SECONDS , new LinkedBlockingQueue<Runnable>() , new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread( r , "EstimationHistory writer" );
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final File                          file;
+    private final int                           maxOperations;
+    private final Map<String,Statistics>        operations;
+    private       int                           appended = 0;
+    private volatile IOException                lastError = null;
+
+    /** Create an history stored in the specified file, keeping the 256 most recently used operations.<br>
+     *  The file is loaded if it exists.
+     *
+     *  @param file File storing the history
+     */
+    public EstimationHistory(final File file) {
+        this( file , DEFAULT_MAX_OPERATIONS );
+    }
+
+    /** Create an history stored in the specified file.<br>
+     *  The file is loaded if it exists.
+     *
+     *  @param file File storing the history
+     *  @param maxOperations Maximum count of operations kept by this history
+     */
+    public EstimationHistory(final File file , final int maxOperations) {
+        if( file == null ) throw new NullPointerException("file can't be null");
+        if( maxOperations < 1 ) throw new IllegalArgumentException("maxOperations must be positive");
+        this.file          = file;
+        this.maxOperations = maxOperations;
+        this.operations    = new LinkedHashMap<String,Statistics>( 16 , 0.75f , true ) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String,Statistics> eldest) {
+                return size() > EstimationHistory.this.maxOperations;
+            }
+        };
+        load();
+    }
+
+    /** Return the file storing this history
+     *  @return file of this history
+     */
+    public File getFile() {
+        return this.file;
+    }
+
+    /** Return the last I/O failure while reading or writing the file.<br>
+     *  The file is only a best-effort storage: a failure never prevent the statistics to be updated.
+     *  @return last I/O failure or <code>null</code> if none
+     */
+    public IOException getLastError() {
+        return this.lastError;
+    }
+
+    /** Return the statistics of the past runs of an operation
+     *  @param operation Name of the operation
+     *  @return statistics of the operation or <code>null</code> if it never ran
+     */
+    public synchronized Statistics getStatistics(final String operation) {
+        Statistics statistics = this.operations.get( operation );
+        return statistics == null ? null : statistics.copy();
+    }
+
+    /** Record a completed run of an operation.<br>
+     *  The statistics are updated immediately and the run is appended to the file by a background thread.
+     *
+     *  @param operation Name of the operation
+     *  @param duration Duration of the run in milliseconds
+     *  @param throughput Average throughput of the run in units per second
+     */
+    public synchronized void record(final String operation , final long duration , final double throughput) {
+        if( operation == null ) throw new NullPointerException("operation can't be null");
+        if( duration <= 0L ) return;
+
+        update( operation , duration , throughput );
+        if( ++this.appended > this.maxOperations * 4 ) {
+            compact();
+            return;
+        }
+        final String line = RUN + "\t" + encode( operation ) + "\t" + duration + "\t" + throughput + "\n";
+        WRITER.execute( new Runnable() {
+            public void run() {
+                try {
+                    Writer writer = open( file , true );
+                    try {
+                        writer.write( line );
+                    }
+                    finally {
+                        writer.close();
+                    }
+                }
+                catch(final IOException e) {
+                    lastError = e;
+                }
+            }
+        });
+    }
+
+    /** Rewrite the file with one summary line by operation.<br>
+     *  The file is written by a background thread.
+     */
+    public synchronized void compact() {
+        final StringBuilder content = new StringBuilder();
+        for(Iterator<Map.Entry<String,Statistics>> it = this.operations.entrySet().iterator() ; it.hasNext() ; ) {
+            Map.Entry<String,Statistics> entry = it.next();
+            Statistics s = entry.getValue();
+            content.append( SUMMARY + "\t" + encode( entry.getKey() ) + "\t" + s.count + "\t" + s.meanDuration + "\t" + s.m2Duration
+                                    + "\t" + s.meanThroughput + "\t" + s.m2Throughput + "\n" );
+        }
+        this.appended = 0;
+
+        WRITER.execute( new Runnable() {
+            public void run() {
+                File temp = new File( file.getPath() + ".tmp" );
+                try {
+                    Writer writer = open( temp , false );
+                    try {
+                        writer.write( content.toString() );
+                    }
+                    finally {
+                        writer.close();
+                    }
+                    replace( temp , file );
+                }
+                catch(final IOException e) {
+                    lastError = e;
+                }
+            }
+        });
+    }
+
+    /** Wait until the pending writes of the histories are done
+     *  @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public void flush() throws InterruptedException {
+        try {
+            WRITER.submit( new Runnable() {
+                public void run() {
+                }
+            }).get();
+        }
+        catch(final ExecutionException e) {
+            throw new IllegalStateException( e.getCause() );
+        }
+    }
+
+    /** Load the file
+     */
+    private void load() {
+        if( ! this.file.exists() ) return;
+        int lines = 0;
+        try {
+            BufferedReader reader = new BufferedReader( new InputStreamReader( new FileInputStream( this.file ) , ENCODING ) );
+            try {
+                String line;
+                while( ( line = reader.readLine() ) != null ) {
+                    lines++;
+                    String[] fields = line.split("\t");
+                    try {
+                        if( fields.length == 4 && fields[0].equals( RUN ) ) {
+                            update( decode( fields[1] ) , Long.parseLong( fields[2] ) , Double.parseDouble( fields[3] ) );
+                        }
+                        else if( fields.length == 7 && fields[0].equals( SUMMARY ) ) {
+                            Statistics s = new Statistics();
+                            s.count          = Integer.parseInt( fields[2] );
+                            s.meanDuration   = Double.parseDouble( fields[3] );
+                            s.m2Duration     = Double.parseDouble( fields[4] );
+                            s.meanThroughput = Double.parseDouble( fields[5] );
+                            s.m2Throughput   = Double.parseDouble( fields[6] );
+                            this.operations.put( decode( fields[1] ) , s );
+                        }
+                    }
+                    catch(final NumberFormatException e) {
+                        // truncated line (interrupted append), ignore it
+                    }
+                }
+            }
+            finally {
+                reader.close();
+            }
+        }
+        catch(final IOException e) {
+            this.lastError = e;
+        }
+        this.appended = lines - this.operations.size();
+        if( this.appended > this.maxOperations * 4 ) compact();
+    }
+
+    /** Add a run to the statistics of an operation
+     */
+    private void update(final String operation , final long duration , final double throughput) {
+        Statistics statistics = this.operations.get( operation );
+        if( statistics == null ) {
+            statistics = new Statistics();
+            this.operations.put( operation , statistics );
+        }
+        statistics.add( duration , throughput );
+    }
+
+    private static Writer open(final File target , final boolean append) throws IOException {
+        File parent = target.getAbsoluteFile().getParentFile();
+        if( parent != null && ! parent.exists() ) parent.mkdirs();
+        return new BufferedWriter( new OutputStreamWriter( new FileOutputStream( target , append ) , ENCODING ) );
+    }
+
+    /** Replace a file by another one.<br>
+     *  The file is moved atomically with <code>java.nio.file.Files</code> (Java 7+) when it's possible, so a crash can't lose the history.
+     *  Otherwise it's renamed over the target, and deleted before only on platforms that can't rename over an existing file.
+     */
+    private static void replace(final File source , final File target) throws IOException {
+        if( MOVE_METHOD != null ) {
+            try {
+                Object options = Array.newInstance( MOVE_METHOD.getParameterTypes()[2].getComponentType() , 2 );
+                Array.set( options , 0 , MOVE_OPTION_CLASS.getField("ATOMIC_MOVE").get( null ) );
+                Array.set( options , 1 , MOVE_OPTION_CLASS.getField("REPLACE_EXISTING").get( null ) );
+                MOVE_METHOD.invoke( null , TO_PATH_METHOD.invoke( source ) , TO_PATH_METHOD.invoke( target ) , options );
+                return;
+            }
+            catch(final Exception e) {
+                // atomic move not supported by this file system, fallback on a rename
+            }
+        }
+        if( source.renameTo( target ) ) return;
+        if( ! target.exists() || ! target.delete() || ! source.renameTo( target ) ) {
+            throw new IOException("can't replace " + target);
+        }
+    }
+
+    /** Files.move(Path, Path, CopyOption...) and File.toPath() resolved by reflection (Java 7+)
+     */
+    private static final Method   TO_PATH_METHOD    = method( File.class , "toPath" );
+    private static final Class<?> MOVE_OPTION_CLASS = type( "java.nio.file.StandardCopyOption" );
+    private static final Method   MOVE_METHOD       = moveMethod();
+
+    private static Method moveMethod() {
+        Class<?> files  = type( "java.nio.file.Files" );
+        Class<?> path   = type( "java.nio.file.Path" );
+        Class<?> option = type( "java.nio.file.CopyOption" );
+        if( files == null || path == null || option == null || MOVE_OPTION_CLASS == null || TO_PATH_METHOD == null ) return null;
+        return method( files , "move" , path , path , Array.newInstance( option , 0 ).getClass() );
+    }
+
+    private static Class<?> type(final String name) {
+        try {
+            return Class.forName( name );
+        }
+        catch(ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static Method method(final Class<?> type , final String name , final Class<?>... parameters) {
+        try {
+            return type.getMethod( name , parameters );
+        }
+        catch(NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static String encode(final String operation) {
+        try {
+            return URLEncoder.encode( operation , ENCODING );
+        }
+        catch(final UnsupportedEncodingException e) {
+            throw new IllegalStateException( e ); // UTF-8 is always supported
+        }
+    }
+
+    private static String decode(final String operation) throws UnsupportedEncodingException {
+        return URLDecoder.decode( operation , ENCODING );
+    }
+
+    /**
+     * Distributions of the durations and throughputs of the past runs of an operation.
+     */
+    public static final class Statistics {
+
+        private int    count          = 0;
+        private double meanDuration   = 0d;
+        private double m2Duration     = 0d;
+        private double meanThroughput = 0d;
+        private double m2Throughput   = 0d;
+
+        private Statistics() {
+        }
+
+        /** Add a run (Welford's algorithm), the count is capped so the oldest runs are progressively forgotten
+         */
+        private void add(final double duration , final double throughput) {
+            if( this.count >= MAX_COUNT ) {
+                double scale = (double)( MAX_COUNT - 1 ) / this.count;
+                this.m2Duration   *= scale;
+                this.m2Throughput *= scale;
+                this.count         = MAX_COUNT - 1;
+            }
+            this.count++;
+            double delta = duration - this.meanDuration;
+            this.meanDuration += delta / this.count;
+            this.m2Duration   += delta * ( duration - this.meanDuration );
+
+            delta = throughput - this.meanThroughput;
+            this.meanThroughput += delta / this.count;
+            this.m2Throughput   += delta * ( throughput - this.meanThroughput );
+        }
+
+        private Statistics copy() {
+            Statistics copy = new Statistics();
+            copy.count          = this.count;
+            copy.meanDuration   = this.meanDuration;
+            copy.m2Duration     = this.m2Duration;
+            copy.meanThroughput = this.meanThroughput;
+            copy.m2Throughput   = this.m2Throughput;
+            return copy;
+        }
+
+        /** Return the count of runs these statistics are made of
+         *  @return count of runs
+         */
+        public int getCount() {
+            return this.count;
+        }
+
+        /** Return the mean duration of the runs
+         *  @return mean duration in milliseconds
+         */
+        public double getMeanDuration() {
+            return this.meanDuration;
+        }
+
+        /** Return the standard deviation of the durations of the runs
+         *  @return standard deviation in milliseconds
+         */
+        public double getDurationDeviation() {
+            return this.count < 2 ? 0d : Math.sqrt( this.m2Duration / ( this.count - 1 ) );
+        }
+
+        /** Return the mean throughput of the runs
+         *  @return mean throughput in units per second
+         */
+        public double getMeanThroughput() {
+            return this.meanThroughput;
+        }
+
+        /** Return the standard deviation of the throughputs of the runs
+         *  @return standard deviation in units per second
+         */
+        public double getThroughputDeviation() {
+            return this.count < 2 ? 0d : Math.sqrt( this.m2Throughput / ( this.count - 1 ) );
+        }
+
+        @Override
+        public String toString() {
+            return "Statistics[" + this.count + " runs, " + (long)this.meanDuration + "ms +/- " + (long)getDurationDeviation() + "ms]";
+        }
+    }
+}
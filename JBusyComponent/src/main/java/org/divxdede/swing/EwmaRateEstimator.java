@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * EwmaRateEstimator.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing;
+
+/**
+ * Estimate the remaining time with an exponentially weighted moving average (EWMA) of the samples rates.
+ * <p>
+ * The most recent samples weight more than older ones, so the estimation follow quickly a task changing it's speed.<br>
+ * The <code>alpha</code> smoothing factor define the weight of the most recent sample: the higher, the more reactive.
+ * <p>
+ * The confidence interval is given by the exponentially weighted variance of the samples rates.
+ *
+ * @author Andr Sbastien (divxdede)
+ * @since 1.2.4
+ */
+public class EwmaRateEstimator implements RemainingTimeEstimator {
+
+    private final double alpha;
+
+    /** Create an estimator with a smoothing factor of <code>0.3</code>
+     */
+    public EwmaRateEstimator() {
+        this( 0.3d );
+    }
+
+    /** Create an estimator with the specified smoothing factor
+     *  @param alpha Smoothing factor in the range ]0 ~ 1]
+     */
+    public EwmaRateEstimator(final double alpha) {
+        if( !( alpha > 0d && alpha <= 1d ) ) throw new IllegalArgumentException("alpha must be in ]0 ~ 1]");
+        this.alpha = alpha;
+    }
+
+    /** Return the smoothing factor
+     *  @return smoothing factor
+     */
+    public double getAlpha() {
+        return this.alpha;
+    }
+
+    public Estimation estimate(final ProgressSamples samples , final double remainingRatio) {
+        double mean     = samples.getRate(0);
+        double variance = 0d;
+        for(int i = 1 ; i < samples.size() ; i++ ) {
+            double diff      = samples.getRate(i) - mean;
+            double increment = this.alpha * diff;
+            mean     += increment;
+            variance  = ( 1d - this.alpha ) * ( variance + diff * increment );
+        }
+
+        /** Standard error of an EWMA of independent values
+         */
+        double error = Math.sqrt( variance * this.alpha / ( 2d - this.alpha ) );
+        return Estimation.fromRate( remainingRatio , mean , error );
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * LinearRegressionEstimator.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing;
+
+/**
+ * Estimate the remaining time with a least-squares linear regression of the progression over the time.
+ * <p>
+ * The points of the regression are the boundaries of the samples, the advance speed is the slope of the regression line.<br>
+ * The confidence interval is given by the standard error of the slope.
+ *
+ * @author Andr Sbastien (divxdede)
+ * @since 1.2.4
+ */
+public class LinearRegressionEstimator implements RemainingTimeEstimator {
+
+    public Estimation estimate(final ProgressSamples samples , final double remainingRatio) {
+        /** Points: start of the oldest sample followed by the end of each sample (times relative to the first point)
+         */
+        final int    n      = samples.size() + 1;
+        final long   origin = samples.getStartTime(0);
+
+        double sumT = 0d;
+        double sumR = samples.getStartRatio(0);
+        for(int i = 0 ; i < samples.size() ; i++ ) {
+            sumT += samples.getEndTime(i) - origin;
+            sumR += samples.getEndRatio(i);
+        }
+        double meanT = sumT / n;
+        double meanR = sumR / n;
+
+        double sxx = sq( -meanT );
+        double sxy = -meanT * ( samples.getStartRatio(0) - meanR );
+        for(int i = 0 ; i < samples.size() ; i++ ) {
+            double t = samples.getEndTime(i) - origin - meanT;
+            sxx += t * t;
+            sxy += t * ( samples.getEndRatio(i) - meanR );
+        }
+        if( sxx <= 0d ) {
+            return Estimation.fromRate( remainingRatio , 0d , 0d );
+        }
+        double slope     = sxy / sxx;
+        double intercept = meanR - slope * meanT;
+
+        /** Standard error of the slope
+         */
+        double error = 0d;
+        if( n > 2 ) {
+            double sse = sq( samples.getStartRatio(0) - intercept );
+            for(int i = 0 ; i < samples.size() ; i++ ) {
+                sse += sq( samples.getEndRatio(i) - ( intercept + slope * ( samples.getEndTime(i) - origin ) ) );
+            }
+            error = Math.sqrt( sse / ( n - 2 ) / sxx );
+        }
+        return Estimation.fromRate( remainingRatio , slope , error );
+    }
+
+    private static double sq(final double value) {
+        return value * value;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * LongBoundedRangeModel.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing;
+
+import javax.swing.BoundedRangeModel;
+
+/**
+ * A {@link BoundedRangeModel} using a 64 bits range.
+ * <p>
+ * Long properties (<code>value</code>, <code>extent</code>, <code>minimum</code>, <code>maximum</code>) are the real state of this model.<br>
+ * The <code>int</code> properties inherited from {@link BoundedRangeModel} are a view of theses long properties, so this model can be bound
+ * to any component expecting a <code>BoundedRangeModel</code> like a <code>JProgressBar</code> or a <code>BusyIcon</code>.
+ * When the long range don't fit in an <code>int</code>, this view is scaled and loose precision.
+ * <p>
+ * Tools like {@link RemainingTimeMonitor} and {@link BoundedRangeModelHub} use the long properties when they are available.
+ *
+ * @author Andr Sbastien (divxdede)
+ * @since 1.2.4
+ */
+public interface LongBoundedRangeModel extends BoundedRangeModel {
+
+    /** Returns the minimum acceptable value.
+     *  @return the value of the long minimum property
+     */
+    public long getLongMinimum();
+
+    /** Sets the model's long minimum.
+     *  The other properties may be changed as well to ensure that <code>minimum &lt;= value &lt;= value+extent &lt;= maximum</code>
+     *  @param newMinimum the model's new long minimum
+     */
+    public void setLongMinimum(long newMinimum);
+
+    /** Returns the model's long maximum.
+     *  @return the value of the long maximum property
+     */
+    public long getLongMaximum();
+
+    /** Sets the model's long maximum.
+     *  The other properties may be changed as well to ensure that <code>minimum &lt;= value &lt;= value+extent &lt;= maximum</code>
+     *  @param newMaximum the model's new long maximum
+     */
+    public void setLongMaximum(long newMaximum);
+
+    /** Returns the model's current long value.
+     *  @return the model's current long value
+     */
+    public long getLongValue();
+
+    /** Sets the model's current long value.
+     *  The value is forced to fit in the range <code>minimum &lt;= value &lt;= maximum - extent</code>
+     *  @param newValue the model's new long value
+     */
+    public void setLongValue(long newValue);
+
+    /** Returns the model's long extent.
+     *  @return the value of the model's long extent property
+     */
+    public long getLongExtent();
+
+    /** Sets the model's long extent.
+     *  The extent is forced to fit in the range <code>0 &lt;= extent &lt;= maximum - value</code>
+     *  @param newExtent the model's new long extent
+     */
+    public void setLongExtent(long newExtent);
+
+    /** Sets all the long properties of this model in a single change.
+     *
+     *  @param value the model's new long value
+     *  @param extent the model's new long extent
+     *  @param min the model's new long minimum
+     *  @param max the model's new long maximum
+     *  @param adjusting the new value of the valueIsAdjusting property
+     */
+    public void setLongRangeProperties(long value , long extent , long min , long max , boolean adjusting);
+}
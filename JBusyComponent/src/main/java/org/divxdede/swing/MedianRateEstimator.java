@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * MedianRateEstimator.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing;
+
+import java.util.Arrays;
+
+/**
+ * Estimate the remaining time with the median of the samples rates.
+ * <p>
+ * Unlike an average, the median is not disturbed by few samples of burst or stall.<br>
+ * The confidence interval is given by the median absolute deviation of the samples rates.
+ * <p>
+ * The rates are sorted in a scratch array reused between estimations, guarded by the estimator lock:
+ * an instance can still be shared between monitors.
+ *
+ * @author Andr Sbastien (divxdede)
+ * @since 1.2.4
+ */
+public class MedianRateEstimator implements RemainingTimeEstimator {
+
+    /** Scale factors: MAD to standard deviation (normal distribution) and standard error of the median against the mean one
+     */
+    private static final double MAD_TO_DEVIATION = 1.4826d;
+    private static final double MEDIAN_EFFICIENCY = 1.2533d;
+
+    private double[] rates = new double[0];
+
+    public synchronized Estimation estimate(final ProgressSamples samples , final double remainingRatio) {
+        final int n = samples.size();
+        if( this.rates.length < n ) this.rates = new double[n];
+        double[] rates = this.rates;
+        for(int i = 0 ; i < n ; i++ ) rates[i] = samples.getRate(i);
+
+        double median = median( rates , n );
+        for(int i = 0 ; i < n ; i++ ) rates[i] = Math.abs( rates[i] - median );
+        double deviation = median( rates , n ) * MAD_TO_DEVIATION;
+
+        return Estimation.fromRate( remainingRatio , median , MEDIAN_EFFICIENCY * deviation / Math.sqrt(n) );
+    }
+
+    /** Median of the first values (they are sorted)
+     */
+    private static double median(final double[] values , final int count) {
+        Arrays.sort( values , 0 , count );
+        int middle = count / 2;
+        return count % 2 == 1 ? values[middle] : ( values[middle - 1] + values[middle] ) / 2d;
+    }
+}
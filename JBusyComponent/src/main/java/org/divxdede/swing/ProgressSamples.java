@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * ProgressSamples.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing;
+
+/**
+ * Fixed size window of the most recent samples of a task progression.
+ * <p>
+ * A sample is the advance (as a ratio [0 ~ 1]) made by the task during a duration (in milliseconds).<br>
+ * Samples are stored in primitive ring buffers: adding a sample don't allocate anything and overwrite the oldest one when the window is full.
+ * <p>
+ * Samples are indexed from <code>0</code> (the oldest) to <code>size() - 1</code> (the most recent).
+ * <p>
+ * This class is not thread safe.
+ *
+ * @author Andr Sbastien (divxdede)
+ * @since 1.2.4
+ */
+public final class ProgressSamples {
+
+    private final long[]   endTimes;
+    private final long[]   durations;
+    private final double[] endRatios;
+    private final double[] advances;
+    private       int      head      = 0;
+    private       int      size      = 0;
+    private       long     count     = 0L;
+
+    /** Create a window holding the specified count of samples
+     *  @param capacity Maximum count of samples in the window
+     */
+    public ProgressSamples(final int capacity) {
+        if( capacity < 1 ) throw new IllegalArgumentException("capacity must be positive");
+        this.endTimes  = new long[capacity];
+        this.durations = new long[capacity];
+        this.endRatios = new double[capacity];
+        this.advances  = new double[capacity];
+    }
+
+    /** Add a sample as the most recent one
+     *  @param startTime Time (ms) when the sample started
+     *  @param startRatio Progression ratio when the sample started
+     *  @param endTime Time (ms) when the sample ended
+     *  @param endRatio Progression ratio when the sample ended
+     */
+    public void add(final long startTime , final double startRatio , final long endTime , final double endRatio) {
+        int index = ( this.head + this.size ) % this.endTimes.length;
+        if( this.size == this.endTimes.length ) {
+            this.head = ( this.head + 1 ) % this.endTimes.length;
+        }
+        else {
+            this.size++;
+        }
+        this.endTimes[index]  = endTime;
+        this.durations[index] = endTime - startTime;
+        this.endRatios[index] = endRatio;
+        this.advances[index]  = endRatio - startRatio;
+        this.count++;
+    }
+
+    /** Remove all samples
+     */
+    public void clear() {
+        this.head = 0;
+        this.size = 0;
+    }
+
+    /** Return the maximum count of samples in this window
+     *  @return capacity of this window
+     */
+    public int getCapacity() {
+        return this.endTimes.length;
+    }
+
+    /** Return the count of samples in this window
+     *  @return count of samples
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /** Indicate if this window is empty
+     *  @return true if there is no sample
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /** Return the count of samples added since the creation of this window.<br>
+     *  This count change each time a sample is added, even when the window is full.
+     *  @return count of samples added
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /** Return the duration (ms) of a sample
+     *  @param index Index of the sample (0 is the oldest)
+     *  @return duration of the sample
+     */
+    public long getDuration(final int index) {
+        return this.durations[ physical(index) ];
+    }
+
+    /** Return the advance (ratio) made during a sample
+     *  @param index Index of the sample (0 is the oldest)
+     *  @return advance of the sample
+     */
+    public double getAdvance(final int index) {
+        return this.advances[ physical(index) ];
+    }
+
+    /** Return the advance speed of a sample (ratio per millisecond)
+     *  @param index Index of the sample (0 is the oldest)
+     *  @return rate of the sample or 0 if the sample has no duration
+     */
+    public double getRate(final int index) {
+        int i = physical(index);
+        return this.durations[i] <= 0L ? 0d : this.advances[i] / this.durations[i];
+    }
+
+    /** Return the time (ms) when a sample ended
+     *  @param index Index of the sample (0 is the oldest)
+     *  @return end time of the sample
+     */
+    public long getEndTime(final int index) {
+        return this.endTimes[ physical(index) ];
+    }
+
+    /** Return the progression ratio when a sample ended
+     *  @param index Index of the sample (0 is the oldest)
+     *  @return end ratio of the sample
+     */
+    public double getEndRatio(final int index) {
+        return this.endRatios[ physical(index) ];
+    }
+
+    /** Return the time (ms) when a sample started
+     *  @param index Index of the sample (0 is the oldest)
+     *  @return start time of the sample
+     */
+    public long getStartTime(final int index) {
+        int i = physical(index);
+        return this.endTimes[i] - this.durations[i];
+    }
+
+    /** Return the progression ratio when a sample started
+     *  @param index Index of the sample (0 is the oldest)
+     *  @return start ratio of the sample
+     */
+    public double getStartRatio(final int index) {
+        int i = physical(index);
+        return this.endRatios[i] - this.advances[i];
+    }
+
+    /** Return the total duration (ms) of the samples in this window
+     *  @return total duration
+     */
+    public long getTotalDuration() {
+        long total = 0L;
+        for(int i = 0 ; i < this.size ; i++ ) total += getDuration(i);
+        return total;
+    }
+
+    /** Return the total advance (ratio) of the samples in this window
+     *  @return total advance
+     */
+    public double getTotalAdvance() {
+        double total = 0d;
+        for(int i = 0 ; i < this.size ; i++ ) total += getAdvance(i);
+        return total;
+    }
+
+    private int physical(final int index) {
+        if( index < 0 || index >= this.size ) throw new IndexOutOfBoundsException( "index: " + index + ", size: " + this.size );
+        return ( this.head + index ) % this.endTimes.length;
+    }
+}
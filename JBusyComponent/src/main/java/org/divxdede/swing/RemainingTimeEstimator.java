@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * RemainingTimeEstimator.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing;
+
+/**
+ * Strategy used by a {@link RemainingTimeMonitor} for estimating the remaining time of a task from it's recent {@link ProgressSamples samples}.
+ * <p>
+ * Available implementations:
+ * <ul>
+ *   <li>{@link AverageRateEstimator}: total advance by total duration of the samples (default)</li>
+ *   <li>{@link EwmaRateEstimator}: exponentially weighted moving average of the samples rates</li>
+ *   <li>{@link LinearRegressionEstimator}: least-squares linear regression of the progression over the time</li>
+ *   <li>{@link MedianRateEstimator}: median of the samples rates, robust to bursts and stalls</li>
+ * </ul>
+ *
+ * @author Andr Sbastien (divxdede)
+ * @since 1.2.4
+ */
+public interface RemainingTimeEstimator {
+
+    /** Estimate the remaining time of a task
+     *
+     *  @param samples Most recent samples of the task progression (never empty)
+     *  @param remainingRatio Part of the task remaining to do (as a ratio [0 ~ 1])
+     *  @return Estimation of the remaining time
+     */
+    public Estimation estimate(ProgressSamples samples , double remainingRatio);
+
+    /**
+     * Remaining time estimation with it's 95% confidence interval.<br>
+     * All times are in milliseconds, <code>Long.MAX_VALUE</code> means the task don't advance enough for being completed in a finite time.
+     */
+    public static final class Estimation {
+
+        /** Standard score of a 95% confidence interval
+         */
+        private static final double Z_95 = 1.96d;
+
+        private final long   remainingTime;
+        private final long   lowerBound;
+        private final long   upperBound;
+        private final double rate;
+
+        /** Create an estimation
+         *  @param remainingTime Estimated remaining time
+         *  @param lowerBound Lower bound of the confidence interval
+         *  @param upperBound Upper bound of the confidence interval
+         *  @param rate Estimated advance speed (ratio per millisecond)
+         */
+        public Estimation(final long remainingTime , final long lowerBound , final long upperBound , final double rate) {
+            this.remainingTime = remainingTime;
+            this.lowerBound    = lowerBound;
+            this.upperBound    = upperBound;
+            this.rate          = rate;
+        }
+
+        /** Create an estimation from an estimated advance speed and it's standard error
+         *  @param remainingRatio Part of the task remaining to do
+         *  @param rate Estimated advance speed (ratio per millisecond)
+         *  @param rateError Standard error of the advance speed
+         *  @return estimation
+         */
+        public static Estimation fromRate(final double remainingRatio , final double rate , final double rateError) {
+            if( !( rate > 0d ) || Double.isInfinite(rate) ) {
+                return new Estimation( Long.MAX_VALUE , Long.MAX_VALUE , Long.MAX_VALUE , rate );
+            }
+            double error = Double.isNaN(rateError) ? 0d : Math.abs(rateError) * Z_95;
+            return new Estimation( toTime( remainingRatio / rate ) ,
+                                   toTime( remainingRatio / ( rate + error ) ) ,
+                                   rate - error > 0d ? toTime( remainingRatio / ( rate - error ) ) : Long.MAX_VALUE ,
+                                   rate );
+        }
+
+        /** Return the estimated remaining time
+         *  @return remaining time in milliseconds
+         */
+        public long getRemainingTime() {
+            return this.remainingTime;
+        }
+
+        /** Return the lower bound of the 95% confidence interval
+         *  @return lower bound in milliseconds
+         */
+        public long getLowerBound() {
+            return this.lowerBound;
+        }
+
+        /** Return the upper bound of the 95% confidence interval
+         *  @return upper bound in milliseconds
+         */
+        public long getUpperBound() {
+            return this.upperBound;
+        }
+
+        /** Return the estimated advance speed
+         *  @return ratio per millisecond
+         */
+        public double getRate() {
+            return this.rate;
+        }
+
+        @Override
+        public String toString() {
+            return "Estimation[" + this.remainingTime + "ms in [" + this.lowerBound + " ~ " + this.upperBound + "]]";
+        }
+
+        private static long toTime(final double time) {
+            if( time >= Long.MAX_VALUE ) return Long.MAX_VALUE;
+            return Math.max( 0L , (long)time );
+        }
+    }
+}
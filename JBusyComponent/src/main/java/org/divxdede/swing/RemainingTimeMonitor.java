@@ -18,11 +18,16 @@
  */
 package org.divxdede.swing;
 
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import javax.swing.BoundedRangeModel;
+import javax.swing.SwingUtilities;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
-import org.divxdede.collection.CyclicBuffer;
+import javax.swing.event.EventListenerList;
 import org.divxdede.commons.Disposable;
 
 /**
@@ -34,6 +39,24 @@ import org.divxdede.commons.Disposable;
  * <p>
  * This monitor use at least the last <strong>10s</strong> to do estimation but it can use greater samples depending on how much frequently the {@link BoundedRangeModel} fire changes.
  * <p>
+ * The estimation itself is delegated to a {@link RemainingTimeEstimator} ({@link AverageRateEstimator} by default)
+ * that also give a confidence interval (see {@link #getEstimation()}).<br>
+ * Samples are stored in primitive ring buffers ({@link ProgressSamples}), so sampling the task progression don't allocate anything.
+ * <p>
+ * By default, the monitor sample the model on each change it fire. A <strong>sampled</strong> monitor read instead the model
+ * at a fixed cadence from the shared {@link AnimationClock}, so it's cost don't depend on how frequently the model change.<br>
+ * A sampled monitor can be shared by every observer of a model with {@link #acquire(BoundedRangeModel)}.
+ * <p>
+ * The monitor give also the throughput of the task: it's current rate ({@link #getRate()}), it's peak rate ({@link #getPeakRate()})
+ * and since how long the task don't advance anymore ({@link #getStalledTime()}).<br>
+ * A task is <strong>stalled</strong> when it don't advance during the stall threshold (see {@link #setStallThreshold(long)}).<br>
+ * A monitor bound to an {@link EstimationHistory} (see {@link #setHistory(EstimationHistory, String)}) give an estimation as soon as the task start
+ * from the past runs of the same operation, and blend it with the live samples until the samples window is full.
+ * It record the duration and the throughput of the task in the history when the task is completed.
+ * <p>
+ * {@link ChangeListener}s are notified on the <code>Event Dispatch Thread</code> each time a sample is closed and each time the task
+ * become stalled or advance again. Only a sampled monitor can notice a stall as soon as it happens, since it don't rely on the model changes.
+ * <p>
  * Exemple:
  * <pre>
  *          // Create a tracker
@@ -53,14 +76,41 @@ public class RemainingTimeMonitor implements Disposable {
 
     private BoundedRangeModel          model = null;
 
-    private static final long          MINIMUM_SAMPLE_DELAY = 1000;
+    private static final long          DEFAULT_SAMPLE_DELAY = 1000;
     private static final long          MINIMUM_INITIAL_SAMPLE_DELAY = 100;
     private static final int           SAMPLE_COUNT = 10;
 
-    private       CyclicBuffer<Sample> samples = null;
+    private final ProgressSamples        samples = new ProgressSamples(SAMPLE_COUNT);
+    private       RemainingTimeEstimator estimator = null;
+    private       long                   sampleDelay = DEFAULT_SAMPLE_DELAY;
+
+    /** Current sample: started at <code>currentStartTime</code> with the progression <code>currentStartRatio</code>
+     */
+    private       boolean              sampling = false;
+    private       long                 currentStartTime = 0L;
+    private       double               currentStartRatio = 0d;
 
-    private       Sample               currentSample = null;
-    private       Sample               lastSampleUsed = null;
+    /** Telemetry: last time the task advanced, peak rate (ratio per millisecond) and stall state
+     */
+    private static final long          DEFAULT_STALL_THRESHOLD = 3000;
+    private       long                 lastAdvanceTime = 0L;
+    private       double               lastAdvanceRatio = 0d;
+    private       double               peakRate = 0d;
+    private       long                 stallThreshold = DEFAULT_STALL_THRESHOLD;
+    private       boolean              stalled = false;
+    private final EventListenerList    listenerList = new EventListenerList();
+
+    /** History of the past runs: statistics of the operation are used as a prior estimation
+     */
+    private static final int           PRIOR_WEIGHT = 3; // the prior count as 3 live samples
+    private final long                 startTime = System.currentTimeMillis();
+    private       EstimationHistory    history = null;
+    private       String               operation = null;
+    private       EstimationHistory.Statistics prior = null;
+    private       boolean              recorded = false;
+
+    private       long                 lastSampleCountUsed = -1L;
+    private       RemainingTimeEstimator.Estimation lastEstimation = null;
     private       long                 lastRemainingTimeResult = -1;
     private       long                 whenLastRemainingTimeResult = 0L;
 
@@ -70,15 +120,121 @@ public class RemainingTimeMonitor implements Disposable {
         }
     };
 
+    /** Sampled mode: cadence of the samplings from the {@link AnimationClock}
+     */
+    private static final int           SAMPLING_DELAY = 100;
+    private       ActionListener       sampler = null;
+
+    /** Shared sampled monitors by model and their count of users
+     */
+    private static final Map<BoundedRangeModel,RemainingTimeMonitor> SHARED = new IdentityHashMap<BoundedRangeModel,RemainingTimeMonitor>();
+    private       int                  users = 0;
+
     /** Create a <code>RemainingTimeMonitor</code> for the specified {@link BoundedRangeModel}.<br>
      *  This instance will use at least samples for a total of <strong>30s</strong>.
      *
      * @param model BoundedRangeModel for which compute the remaining time
      */
     public RemainingTimeMonitor(BoundedRangeModel model) {
+        this( model , new AverageRateEstimator() );
+    }
+
+    /** Create a <code>RemainingTimeMonitor</code> for the specified {@link BoundedRangeModel} using a specific estimator.
+     *
+     * @param model BoundedRangeModel for which compute the remaining time
+     * @param estimator Estimator computing the remaining time from the samples
+     * @since 1.2.4
+     */
+    public RemainingTimeMonitor(BoundedRangeModel model , RemainingTimeEstimator estimator) {
+        this( model , estimator , false );
+    }
+
+    /** Create a <code>RemainingTimeMonitor</code> for the specified {@link BoundedRangeModel} using a specific estimator.
+     *
+     * @param model BoundedRangeModel for which compute the remaining time
+     * @param estimator Estimator computing the remaining time from the samples
+     * @param sampled <code>true</code> for reading the model at a fixed cadence, <code>false</code> for sampling it on each change
+     * @since 1.2.4
+     */
+    public RemainingTimeMonitor(BoundedRangeModel model , RemainingTimeEstimator estimator , boolean sampled) {
         this.model = model;
-        this.samples = new CyclicBuffer<Sample>(SAMPLE_COUNT);
-        this.model.addChangeListener( this.listener );
+        setEstimator( estimator );
+        if( sampled ) {
+            this.listener = null;
+            this.sampler  = new ActionListener() {
+                public void actionPerformed(ActionEvent e) {
+                    tick();
+                }
+            };
+            AnimationClock.getInstance().subscribe( this.sampler , SAMPLING_DELAY );
+        }
+        else {
+            this.model.addChangeListener( this.listener );
+        }
+    }
+
+    /** Return a sampled monitor of the specified model shared with every other caller of this method for the same model.<br>
+     *  Each call must be balanced by a call to {@link #dispose()} on the returned monitor, the monitor is really disposed
+     *  when it's last user dispose it.
+     *
+     *  @param model BoundedRangeModel for which compute the remaining time
+     *  @return shared monitor of this model
+     *  @since 1.2.4
+     */
+    public static RemainingTimeMonitor acquire(BoundedRangeModel model) {
+        synchronized(SHARED) {
+            RemainingTimeMonitor monitor = SHARED.get(model);
+            if( monitor == null ) {
+                monitor = new RemainingTimeMonitor( model , new AverageRateEstimator() , true );
+                SHARED.put( model , monitor );
+            }
+            monitor.users++;
+            return monitor;
+        }
+    }
+
+    /** Indicate if this monitor read the model at a fixed cadence instead of sampling it on each change
+     *  @return <code>true</code> if this monitor is sampled
+     *  @since 1.2.4
+     */
+    public synchronized boolean isSampled() {
+        return this.sampler != null;
+    }
+
+    /** Return the estimator computing the remaining time from the samples
+     *  @return estimator used by this monitor
+     *  @since 1.2.4
+     */
+    public synchronized RemainingTimeEstimator getEstimator() {
+        return this.estimator;
+    }
+
+    /** Define the estimator computing the remaining time from the samples
+     *  @param estimator estimator to use by this monitor
+     *  @since 1.2.4
+     */
+    public synchronized void setEstimator(RemainingTimeEstimator estimator) {
+        if( estimator == null ) throw new NullPointerException("estimator can't be null");
+        this.estimator = estimator;
+        this.lastSampleCountUsed = -1L; // force a new estimation
+    }
+
+    /** Return the minimum duration of a sample (in milliseconds), <strong>1s</strong> by default.<br>
+     *  The first samples are shorter in order to give quickly a first estimation.
+     *  @return minimum duration of a sample
+     *  @since 1.2.4
+     */
+    public synchronized long getSampleDelay() {
+        return this.sampleDelay;
+    }
+
+    /** Define the minimum duration of a sample (in milliseconds)
+     *  @param delay minimum duration of a sample
+     *  @since 1.2.4
+     */
+    public synchronized void setSampleDelay(long delay) {
+        if( delay < 1L ) throw new IllegalArgumentException("delay must be positive");
+        this.sampleDelay = delay;
     }
 
     /** Return the monitored model by this <code>RemainingTimeMonitor</code>.<br>
@@ -88,41 +244,228 @@ public class RemainingTimeMonitor implements Disposable {
         return this.model;
     }
 
-    /** Internal method that manages sample snapshot
+    /** Bind this monitor to an history of the past runs of an operation.<br>
+     *  The statistics of the operation give an estimation until the live samples are enough, and this task will be recorded once completed.
+     *
+     *  @param history History of the past runs (can be <code>null</code> for unbind this monitor)
+     *  @param operation Name of the operation of the monitored task
+     *  @since 1.2.4
      */
-    private synchronized void tick() {
-        if( currentSample == null ) {
-            currentSample = new Sample( getCurrentRatio() );
-            return;
-        }
-        long currentTime = System.currentTimeMillis();
-        long delay       = currentTime - currentSample.getStartTime();
-        if( ( samples.size() < 5 && delay >= MINIMUM_INITIAL_SAMPLE_DELAY ) || ( delay >= MINIMUM_SAMPLE_DELAY ) ) {
-            float ratio = getCurrentRatio();
+    public synchronized void setHistory(EstimationHistory history , String operation) {
+        if( history != null && operation == null ) throw new NullPointerException("operation can't be null");
+        this.history   = history;
+        this.operation = history == null ? null : operation;
+        this.prior     = history == null ? null : history.getStatistics( operation );
+        this.lastSampleCountUsed = -1L; // force a new estimation
+    }
 
-            /** Close the current bulk
-             */
-            currentSample.end( ratio );
-            samples.add(currentSample);
+    /** Return the history of the past runs bound to this monitor
+     *  @return history or <code>null</code>
+     *  @since 1.2.4
+     */
+    public synchronized EstimationHistory getHistory() {
+        return this.history;
+    }
+
+    /** Return the name of the operation of the monitored task in the history
+     *  @return operation name or <code>null</code>
+     *  @since 1.2.4
+     */
+    public synchronized String getOperation() {
+        return this.operation;
+    }
+
+    /** Return the delay (in milliseconds) without any advance after which the task is considered as stalled, <strong>3s</strong> by default.
+     *  @return stall threshold
+     *  @since 1.2.4
+     */
+    public synchronized long getStallThreshold() {
+        return this.stallThreshold;
+    }
 
-            /** Start a new one
+    /** Define the delay (in milliseconds) without any advance after which the task is considered as stalled
+     *  @param threshold stall threshold
+     *  @since 1.2.4
+     */
+    public synchronized void setStallThreshold(long threshold) {
+        if( threshold < 1L ) throw new IllegalArgumentException("threshold must be positive");
+        this.stallThreshold = threshold;
+    }
+
+    /** Add a listener notified on the <code>Event Dispatch Thread</code> when a sample is closed or when the stall state change
+     *  @param l ChangeListener to add
+     *  @since 1.2.4
+     */
+    public void addChangeListener(ChangeListener l) {
+        this.listenerList.add( ChangeListener.class , l );
+    }
+
+    /** Remove a listener previously added with {@link #addChangeListener(ChangeListener)}
+     *  @param l ChangeListener to remove
+     *  @since 1.2.4
+     */
+    public void removeChangeListener(ChangeListener l) {
+        this.listenerList.remove( ChangeListener.class , l );
+    }
+
+    /** Internal method that manages sample snapshot and notify listeners of any telemetry change
+     */
+    private void tick() {
+        if( sample() ) fireStateChanged();
+    }
+
+    /** Take a sample snapshot if needed
+     *  @return true if the telemetry has changed
+     */
+    private synchronized boolean sample() {
+        if( ! sampling ) {
+            sampling          = true;
+            currentStartTime  = System.currentTimeMillis();
+            currentStartRatio = getCurrentRatio();
+            lastAdvanceTime   = currentStartTime;
+            lastAdvanceRatio  = currentStartRatio;
+            return false;
+        }
+        long    currentTime = System.currentTimeMillis();
+        long    delay       = currentTime - currentStartTime;
+        double  ratio       = getCurrentRatio();
+        boolean changed     = false;
+
+        if( ratio > lastAdvanceRatio ) {
+            lastAdvanceTime  = currentTime;
+            lastAdvanceRatio = ratio;
+        }
+        if( ( samples.size() < 5 && delay >= MINIMUM_INITIAL_SAMPLE_DELAY ) || ( delay >= sampleDelay ) ) {
+            /** Close the current bulk and start a new one
              */
-            currentSample = new Sample( ratio );
+            samples.add( currentStartTime , currentStartRatio , currentTime , ratio );
+            currentStartTime  = currentTime;
+            currentStartRatio = ratio;
+            peakRate = Math.max( peakRate , samples.getRate( samples.size() - 1 ) );
+            changed  = true;
+        }
+        if( stalled != ( currentTime - lastAdvanceTime >= stallThreshold ) ) {
+            stalled = !stalled;
+            changed = true;
         }
         disposeIfCompleted();
+        return changed;
+    }
+
+    /** Notify listeners on the <code>Event Dispatch Thread</code>
+     */
+    private void fireStateChanged() {
+        if( this.listenerList.getListenerCount() == 0 ) return;
+        if( ! SwingUtilities.isEventDispatchThread() ) {
+            SwingUtilities.invokeLater( new Runnable() {
+                public void run() {
+                    fireStateChanged();
+                }
+            });
+            return;
+        }
+        ChangeEvent      event     = new ChangeEvent(this);
+        ChangeListener[] listeners = this.listenerList.getListeners( ChangeListener.class );
+        for(int i = listeners.length - 1 ; i >= 0 ; i-- ) {
+            listeners[i].stateChanged( event );
+        }
+    }
+
+    /** Return the current throughput of the task: the advance speed of the last sample in model units per second.<br>
+     *  A stalled task has no throughput.
+     *
+     *  @return current rate in model units per second or <code>0</code> if unknown
+     *  @since 1.2.4
+     */
+    public synchronized double getRate() {
+        if( samples.isEmpty() || isStalled() ) return 0d;
+        return toUnitsPerSecond( samples.getRate( samples.size() - 1 ) );
+    }
+
+    /** Return the highest throughput of the task among all the samples taken since the monitor creation
+     *
+     *  @return peak rate in model units per second or <code>0</code> if unknown
+     *  @since 1.2.4
+     */
+    public synchronized double getPeakRate() {
+        return toUnitsPerSecond( peakRate );
+    }
+
+    /** Return since how long the task don't advance anymore
+     *
+     *  @return time in milliseconds since the last advance of the task, <code>0</code> if the monitor don't sample the task
+     *  @since 1.2.4
+     */
+    public synchronized long getStalledTime() {
+        if( ! sampling ) return 0L;
+        return Math.max( 0L , System.currentTimeMillis() - lastAdvanceTime );
+    }
+
+    /** Indicate if the task don't advance since at least the stall threshold (see {@link #getStallThreshold()})
+     *
+     *  @return <code>true</code> if the task is stalled
+     *  @since 1.2.4
+     */
+    public synchronized boolean isStalled() {
+        return getStalledTime() >= stallThreshold;
+    }
+
+    /** Convert a ratio per millisecond to model units per second
+     */
+    private double toUnitsPerSecond(double rate) {
+        BoundedRangeModel brm = getModel();
+        double length;
+        if( brm instanceof LongBoundedRangeModel ) {
+            LongBoundedRangeModel lbrm = (LongBoundedRangeModel)brm;
+            length = (double)lbrm.getLongMaximum() - (double)lbrm.getLongMinimum();
+        }
+        else {
+            length = (double)brm.getMaximum() - (double)brm.getMinimum();
+        }
+        return rate * length * 1000d;
     }
 
     /** Free resources.<br>
-     *  After this method call, this tool don't monitor anymore the underlying {@link BoundedRangeModel}
+     *  After this method call, this tool don't monitor anymore the underlying {@link BoundedRangeModel}.<br>
+     *  A shared monitor (see {@link #acquire(BoundedRangeModel)}) is really disposed when all it's users have disposed it.
      */
-    public synchronized void dispose() {
+    public void dispose() {
+        synchronized(SHARED) {
+            if( this.users > 0 ) {
+                if( --this.users > 0 ) return;
+                unshare();
+            }
+        }
+        release();
+    }
+
+    /** Remove this monitor from the shared monitors
+     */
+    private void unshare() {
+        synchronized(SHARED) {
+            if( SHARED.get( this.model ) == this ) SHARED.remove( this.model );
+        }
+    }
+
+    /** Stop to monitor the model.<br>
+     *  A task completed since the last sample (by exemple a sampled monitor disposed as soon as the model become idle)
+     *  is recorded in the history before.
+     */
+    private synchronized void release() {
+        if( isCompleted() ) record();
+
+        if( this.sampler != null ) {
+            AnimationClock.getInstance().unsubscribe( this.sampler );
+        }
         if( this.listener != null ) {
             getModel().removeChangeListener( this.listener );
             this.listener = null;
         }
         this.samples.clear();
-        this.currentSample = null;
-        this.lastSampleUsed = null;
+        this.sampling = false;
+        this.stalled = false;
+        this.lastSampleCountUsed = this.samples.getCount();
+        this.lastEstimation = null;
         this.lastRemainingTimeResult = 0; // it's ended
     }
 
@@ -133,7 +476,7 @@ public class RemainingTimeMonitor implements Disposable {
      *  @since 1.2.2
      */
     public synchronized boolean hasNewerEstimation() {
-        return lastSampleUsed != samples.getLast();
+        return lastSampleCountUsed != samples.getCount();
     }
 
     /** Compute the remaining time of the task underlying the {@link BoundedRangeModel}.<br>
@@ -160,41 +503,63 @@ public class RemainingTimeMonitor implements Disposable {
             return Math.max( 0L , lastRemainingTimeResult - (System.currentTimeMillis() - whenLastRemainingTimeResult ) );
         }
 
-        if( samples.isEmpty() ) {
+        if( samples.isEmpty() && prior == null ) {
             lastRemainingTimeResult = -1;
             whenLastRemainingTimeResult = System.currentTimeMillis();
-            lastSampleUsed = null;
+            lastSampleCountUsed = samples.getCount();
+            lastEstimation = null;
             return -1L;
         }
 
         if( disposeIfCompleted() ) {
             return 0L;
         }
-        
-        float currentRatio = getRatio( getModel() );
-        float advance      = 0f;
-        long  time         = 0L;
-
-        for(int i = 0 ; i < samples.size() ; i++ ) {
-            lastSampleUsed = samples.get(i);
-
-            advance += lastSampleUsed.getAdvance();
-            time    += lastSampleUsed.getDuration();
-        }
 
-        float remainingRatio = 1.0f - currentRatio;
-
-        if( advance < 0.0001f )  {
-            this.lastRemainingTimeResult = Long.MAX_VALUE;
+        lastSampleCountUsed = samples.getCount();
+        double remainingRatio = 1d - getCurrentRatio();
+        if( samples.isEmpty() ) {
+            lastEstimation = getPriorEstimation( remainingRatio , null );
         }
         else {
-            this.lastRemainingTimeResult = (long)( (1f / advance) * (float)time * remainingRatio );
+            lastEstimation = estimator.estimate( samples , remainingRatio );
+            if( prior != null && samples.size() < SAMPLE_COUNT ) {
+                lastEstimation = getPriorEstimation( remainingRatio , lastEstimation );
+            }
         }
+
+        this.lastRemainingTimeResult = lastEstimation.getRemainingTime();
         this.whenLastRemainingTimeResult = System.currentTimeMillis();
 
         return this.lastRemainingTimeResult;
     }
 
+    /** Return the last estimation made by {@link #getRemainingTime()} with it's confidence interval.<br>
+     *  A new estimation is made if newer samples are available.
+     *
+     *  @return Last estimation or <code>null</code> if this monitor has not sufficient informations or is disposed
+     *  @since 1.2.4
+     */
+    public synchronized RemainingTimeEstimator.Estimation getEstimation() {
+        if( hasNewerEstimation() ) getRemainingTime();
+        return this.lastEstimation;
+    }
+
+    /** Return the estimation given by the past runs, blended with the live estimation if any
+     *  @param remainingRatio Part of the task remaining to do
+     *  @param live Estimation from the live samples or <code>null</code>
+     */
+    private RemainingTimeEstimator.Estimation getPriorEstimation(double remainingRatio , RemainingTimeEstimator.Estimation live) {
+        double mean      = Math.max( 1d , prior.getMeanDuration() );
+        double rate      = 1d / mean;                                    // ratio per millisecond
+        double rateError = prior.getDurationDeviation() / ( mean * mean ); // delta method
+        if( live != null && !Double.isNaN( live.getRate() ) && !Double.isInfinite( live.getRate() ) ) {
+            double n  = samples.size();
+            rate      = ( PRIOR_WEIGHT * rate + n * live.getRate() ) / ( PRIOR_WEIGHT + n );
+            rateError = rateError * PRIOR_WEIGHT / ( PRIOR_WEIGHT + n );
+        }
+        return RemainingTimeEstimator.Estimation.fromRate( remainingRatio , rate , rateError );
+    }
+
     /** Return the current advance ratio of the specified {@link BoundedRangeModel}.
      *  This advance is given as a ratio [0 ~ 1] where 0 = 0% and 1 == 100%
      *
@@ -203,64 +568,74 @@ public class RemainingTimeMonitor implements Disposable {
      *  @see #getSignificantRatioOffset()
      */
     public static float getRatio(BoundedRangeModel brm) {
-        if( brm != null ) {
-            int   length    = brm.getMaximum() - brm.getMinimum();
-            int   value     = brm.getValue() + brm.getExtent();
-            return (float)value / (float)length;
-        }
-        else return 0f;
+        return (float)getPreciseRatio(brm);
     }
 
-    /** Return the current advance as a ratio [0 ~ 1]
+    /** Return the current advance of the specified {@link BoundedRangeModel} as a double precision ratio [0 ~ 1].
+     *  A {@link LongBoundedRangeModel} is measured with it's long properties.
      */
-    private float getCurrentRatio() {
-        return getRatio( getModel() );
+    private static double getPreciseRatio(BoundedRangeModel brm) {
+        if( brm instanceof LongBoundedRangeModel ) {
+            LongBoundedRangeModel lbrm = (LongBoundedRangeModel)brm;
+            double length = (double)lbrm.getLongMaximum() - (double)lbrm.getLongMinimum();
+            double value  = (double)lbrm.getLongValue() + (double)lbrm.getLongExtent() - (double)lbrm.getLongMinimum();
+            return value / length;
+        }
+        else if( brm != null ) {
+            double length    = (double)brm.getMaximum() - (double)brm.getMinimum();
+            double value     = (double)brm.getValue() + (double)brm.getExtent() - (double)brm.getMinimum();
+            return value / length;
+        }
+        else return 0d;
     }
 
-    /** Dispose this monitor if the BoundedRangeModel is complete
-     *  @return true if this monitor was disposed
+    /** Return the current advance as a ratio [0 ~ 1]
      */
-    private boolean disposeIfCompleted() {
-        if( getModel().getValue() + getModel().getExtent() >= getModel().getMaximum() ) {
-            dispose();
-            return true;
-        }
-        return false;
+    private double getCurrentRatio() {
+        return getPreciseRatio( getModel() );
     }
 
-    /** Store the advance progression of the underlying task for a given duration.
-     *  Some most recents samples are holded for estimate the remaining time by extrapolation of the total amount of advance by the duration it took.
+    /** Record the completed task in the history
      */
-    private static class Sample {
-
-        private long  duration;
-        private float advance;
-
-        private long  startTime;
-        private float startRatio;
-        private long endTime;
-
-        public Sample(float ratio) {
-            startTime  = System.currentTimeMillis();
-            startRatio = ratio;
+    private synchronized void record() {
+        if( history == null || recorded ) return;
+        recorded = true;
+
+        BoundedRangeModel brm = getModel();
+        double length;
+        if( brm instanceof LongBoundedRangeModel ) {
+            LongBoundedRangeModel lbrm = (LongBoundedRangeModel)brm;
+            length = (double)lbrm.getLongMaximum() - (double)lbrm.getLongMinimum();
         }
-
-        public void end(float ratio) {
-            endTime = System.currentTimeMillis();
-            duration = endTime - startTime;
-            advance = ratio - startRatio;
-        }
-
-        public long getDuration() {
-            return this.duration;
+        else {
+            length = (double)brm.getMaximum() - (double)brm.getMinimum();
         }
+        long duration = System.currentTimeMillis() - startTime;
+        history.record( operation , duration , duration <= 0L ? 0d : length * 1000d / duration );
+    }
 
-        public float getAdvance() {
-            return this.advance;
+    /** Indicate if the BoundedRangeModel is complete
+     */
+    private boolean isCompleted() {
+        BoundedRangeModel model = getModel();
+        if( model instanceof LongBoundedRangeModel ) {
+            LongBoundedRangeModel lbrm = (LongBoundedRangeModel)model;
+            return lbrm.getLongValue() + lbrm.getLongExtent() >= lbrm.getLongMaximum();
         }
+        return model.getValue() + model.getExtent() >= model.getMaximum();
+    }
 
-        public long getStartTime() {
-            return this.startTime;
+    /** Dispose this monitor if the BoundedRangeModel is complete
+     *  @return true if this monitor was disposed
+     */
+    private boolean disposeIfCompleted() {
+        if( isCompleted() ) {
+            /** A shared monitor stay usable by it's current users, but the next ones will get a new monitor
+             */
+            unshare();
+            release();
+            return true;
         }
+        return false;
     }
-}
\ No newline at end of file
+}
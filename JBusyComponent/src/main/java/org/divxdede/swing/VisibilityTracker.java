@@ -0,0 +1,365 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * VisibilityTracker.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing;
+
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Frame;
+import java.awt.Rectangle;
+import java.awt.Window;
+import java.awt.event.ComponentEvent;
+import java.awt.event.ComponentListener;
+import java.awt.event.HierarchyBoundsListener;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.HierarchyListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import javax.swing.CellRendererPane;
+import javax.swing.JViewport;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import org.divxdede.commons.Disposable;
+
+/**
+ * Tools class that track if at least one component of a set is really visible by the user.
+ * <p>
+ * A component is considered as visible when:
+ * <ul>
+ *   <li>it is showing on the screen (see {@link Component#isShowing()})</li>
+ *   <li>it's window (or any owner of this window) is not iconified</li>
+ *   <li>a part of it's bounds is not clipped by it's ancestors, by exemple by a {@link JViewport} scrolled elsewhere</li>
+ * </ul>
+ * The tracker listen hierarchy events of tracked components, window events of their windows and change events of their enclosing viewports.<br>
+ * The {@link ChangeListener} given at the construction is notified each time the visible state of this tracker changes.
+ * <p>
+ * Tracked components are weakly referenced. Components painted through a {@link CellRendererPane} are never showing and can't be tracked.
+ * <p>
+ * Exemple:
+ * <pre>
+ *          VisibilityTracker tracker = new VisibilityTracker( new ChangeListener() {
+ *              public void stateChanged(ChangeEvent e) {
+ *                  if( ((VisibilityTracker)e.getSource()).isVisible() ) resumeAnimation();
+ *                  else                                                 suspendAnimation();
+ *              }
+ *          });
+ *          tracker.track( myComponent );
+ * </pre>
+ *
+ * @author Andr Sbastien (divxdede)
+ * @since 1.2.4
+ */
+public class VisibilityTracker implements Disposable {
+
+    private final List<Entry>    entries  = new LinkedList<Entry>();
+    private final Handler        handler  = new Handler();
+    private final Rectangle      bounds   = new Rectangle();
+    private final ChangeListener listener;
+    private       boolean        visible  = false;
+
+    /** Create a tracker notifying the specified listener each time it's visible state changes
+     *  @param listener Listener to notify (may be null)
+     */
+    public VisibilityTracker(ChangeListener listener) {
+        this.listener = listener;
+    }
+
+    /** Start to track the specified component.<br>
+     *  This method do nothing if the component is already tracked.
+     *
+     *  @param c Component to track
+     *  @return <code>true</code> if the component was not tracked and is now tracked
+     */
+    public boolean track(Component c) {
+        if( c == null ) return false;
+        synchronized(this) {
+            if( find(c) != null ) return false;
+            if( SwingUtilities.getAncestorOfClass( CellRendererPane.class , c ) != null ) return false;
+
+            Entry entry = new Entry(c);
+            this.entries.add( entry );
+            c.addHierarchyListener( this.handler );
+            c.addHierarchyBoundsListener( this.handler );
+            c.addComponentListener( this.handler );
+            entry.bind( c , this.handler );
+        }
+        refresh();
+        return true;
+    }
+
+    /** Stop to track the specified component
+     *  @param c Component to stop to track
+     *  @return <code>true</code> if the component was tracked
+     */
+    public boolean untrack(Component c) {
+        if( c == null ) return false;
+        synchronized(this) {
+            Entry entry = find(c);
+            if( entry == null ) return false;
+            this.entries.remove( entry );
+            release( entry , c );
+        }
+        refresh();
+        return true;
+    }
+
+    /** Indicate if the specified component is tracked by this tracker
+     *  @param c Component
+     *  @return <code>true</code> if this component is tracked
+     */
+    public synchronized boolean isTracking(Component c) {
+        return c != null && find(c) != null;
+    }
+
+    /** Indicate if this tracker don't track any component
+     *  @return <code>true</code> if no component is tracked
+     */
+    public synchronized boolean isEmpty() {
+        purge();
+        return this.entries.isEmpty();
+    }
+
+    /** Indicate if at least one tracked component is visible by the user
+     *  @return <code>true</code> if a tracked component is visible
+     */
+    public synchronized boolean isVisible() {
+        return this.visible;
+    }
+
+    /** Stop to track all components
+     */
+    public void dispose() {
+        synchronized(this) {
+            Iterator<Entry> i = this.entries.iterator();
+            while( i.hasNext() ) {
+                Entry entry = i.next();
+                i.remove();
+                release( entry , entry.get() );
+            }
+        }
+        refresh();
+    }
+
+    /** Indicate if a component is visible by the user.<br>
+     *  The component must be showing, it's window must not be iconified and it's ancestors must not clip all of it's bounds.
+     *
+     *  @param c Component to test
+     *  @return <code>true</code> if the component is visible
+     */
+    public static boolean isComponentVisible(Component c) {
+        return isComponentVisible( c , new Rectangle() );
+    }
+
+    /** Visible state implementation using the specified rectangle as working area
+     */
+    private static boolean isComponentVisible(Component c , Rectangle r) {
+        if( c == null || !c.isShowing() ) return false;
+
+        r.setBounds( 0 , 0 , c.getWidth() , c.getHeight() );
+        Component current = c;
+        while( !( current instanceof Window ) ) {
+            Container parent = current.getParent();
+            if( parent == null ) break;
+
+            r.translate( current.getX() , current.getY() );
+            SwingUtilities.computeIntersection( 0 , 0 , parent.getWidth() , parent.getHeight() , r );
+            if( r.isEmpty() ) return false;
+            current = parent;
+        }
+        if( r.isEmpty() ) return false;
+
+        Window window = current instanceof Window ? (Window)current : null;
+        while( window != null ) {
+            if( window instanceof Frame && ( ((Frame)window).getExtendedState() & Frame.ICONIFIED ) != 0 ) return false;
+            window = window.getOwner();
+        }
+        return true;
+    }
+
+    /** Compute again the visible state of this tracker and notify the listener if it has changed
+     */
+    private void refresh() {
+        boolean changed = false;
+        synchronized(this) {
+            boolean newValue = false;
+            Iterator<Entry> i = this.entries.iterator();
+            while( i.hasNext() ) {
+                Component c = i.next().get();
+                if( c == null ) i.remove();
+                else if( !newValue && isComponentVisible( c , this.bounds ) ) newValue = true;
+            }
+            if( newValue != this.visible ) {
+                this.visible = newValue;
+                changed      = true;
+            }
+        }
+        if( changed && this.listener != null ) {
+            this.listener.stateChanged( new ChangeEvent(this) );
+        }
+    }
+
+    /** Bind again windows and viewports of all tracked components
+     */
+    private synchronized void rebind() {
+        Iterator<Entry> i = this.entries.iterator();
+        while( i.hasNext() ) {
+            Entry     entry = i.next();
+            Component c     = entry.get();
+            if( c == null ) {
+                entry.unbind( this.handler );
+                i.remove();
+            }
+            else entry.bind( c , this.handler );
+        }
+    }
+
+    /** Remove all listeners installed for an entry
+     */
+    private void release(Entry entry , Component c) {
+        entry.unbind( this.handler );
+        if( c != null ) {
+            c.removeHierarchyListener( this.handler );
+            c.removeHierarchyBoundsListener( this.handler );
+            c.removeComponentListener( this.handler );
+        }
+    }
+
+    /** Return the entry of a component
+     */
+    private Entry find(Component c) {
+        Iterator<Entry> i = this.entries.iterator();
+        while( i.hasNext() ) {
+            Entry entry = i.next();
+            if( entry.get() == c ) return entry;
+        }
+        return null;
+    }
+
+    /** Remove entries of components reclaimed by the garbage collector
+     */
+    private void purge() {
+        Iterator<Entry> i = this.entries.iterator();
+        while( i.hasNext() ) {
+            Entry entry = i.next();
+            if( entry.get() == null ) {
+                entry.unbind( this.handler );
+                i.remove();
+            }
+        }
+    }
+
+    /** Tracked component with the windows and viewports it is bound to.<br>
+     *  Theses ancestors are bound only while the component is showing, so they never retain a component no more displayed.
+     */
+    private static class Entry extends WeakReference<Component> {
+
+        private final List<Component> ancestors = new ArrayList<Component>(2);
+
+        private Entry(Component c) {
+            super(c);
+        }
+
+        /** Listen the windows and viewports enclosing the component
+         */
+        private void bind(Component c , Handler handler) {
+            unbind(handler);
+            if( !c.isShowing() ) return;
+
+            for(Component parent = c.getParent() ; parent != null ; parent = parent.getParent() ) {
+                if( parent instanceof JViewport ) {
+                    ((JViewport)parent).addChangeListener( handler );
+                    this.ancestors.add( parent );
+                }
+                if( parent instanceof Window ) {
+                    for(Window window = (Window)parent ; window != null ; window = window.getOwner() ) {
+                        window.addWindowListener( handler );
+                        this.ancestors.add( window );
+                    }
+                    break;
+                }
+            }
+        }
+
+        /** Stop to listen windows and viewports
+         */
+        private void unbind(Handler handler) {
+            for(int i = 0 ; i < this.ancestors.size() ; i++ ) {
+                Component ancestor = this.ancestors.get(i);
+                if( ancestor instanceof JViewport ) ((JViewport)ancestor).removeChangeListener( handler );
+                if( ancestor instanceof Window )    ((Window)ancestor).removeWindowListener( handler );
+            }
+            this.ancestors.clear();
+        }
+    }
+
+    /** Listener of all events that may change the visible state of a tracked component
+     */
+    private class Handler extends WindowAdapter implements HierarchyListener, HierarchyBoundsListener, ComponentListener, ChangeListener {
+
+        public void hierarchyChanged(HierarchyEvent e) {
+            if( ( e.getChangeFlags() & ( HierarchyEvent.SHOWING_CHANGED | HierarchyEvent.PARENT_CHANGED ) ) != 0 ) {
+                rebind();
+            }
+            refresh();
+        }
+
+        public void ancestorMoved(HierarchyEvent e) {
+            // scrolling is notified by viewports
+        }
+
+        public void ancestorResized(HierarchyEvent e) {
+            refresh();
+        }
+
+        public void componentResized(ComponentEvent e) {
+            refresh();
+        }
+
+        public void componentMoved(ComponentEvent e) {
+            refresh();
+        }
+
+        public void componentShown(ComponentEvent e) {
+            refresh();
+        }
+
+        public void componentHidden(ComponentEvent e) {
+            refresh();
+        }
+
+        public void stateChanged(ChangeEvent e) {
+            refresh();
+        }
+
+        @Override
+        public void windowIconified(WindowEvent e) {
+            refresh();
+        }
+
+        @Override
+        public void windowDeiconified(WindowEvent e) {
+            refresh();
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * WeightCalibrator.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import javax.swing.BoundedRangeModel;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+/**
+ * Learn the weights of the fragments of a {@link BoundedRangeModelHub} from the durations they really took in past runs.
+ * <p>
+ * Each fragment is identified by a stable id (ex: <code>"import.parse"</code>).
+ * The calibrator measure the wall time a fragment take from the moment it's tracked (or the completion of the fragment tracked before it
+ * in the same {@link BoundedRangeModelHub}, when it's later) to it's completion and record it under it's id.<br>
+ * Next runs use the recorded durations as weights: each fragment take in the master model the part of the time it really take,
+ * so the master model advance roughly linearly in time and the {@link RemainingTimeMonitor} estimations are more accurate.
+ * <p>
+ * A fragment never recorded keep it's default weight, scaled by the average duration per unit of default weight of the recorded fragments.<br>
+ * Successive durations of a fragment are smoothed with an exponentially weighted moving average.
+ * <p>
+ * Recorded durations can be saved and restored as {@link Properties} with {@link #store(OutputStream)} and {@link #load(InputStream)}.
+ * <p>
+ * Exemple:
+ * <pre>
+ *          WeightCalibrator calibrator = new WeightCalibrator();
+ *          calibrator.load( in );
+ *
+ *          BoundedRangeModelHub hub = new BoundedRangeModelHub( myModel );
+ *          hub.setWeightCalibrator( calibrator );
+ *          BoundedRangeModel parse = hub.createFragment( "import.parse" , 1f );
+ *          BoundedRangeModel store = hub.createFragment( "import.store" , 3f );
+ *
+ *          // run the job, then save the learned durations
+ *          calibrator.store( out );
+ * </pre>
+ *
+ * @author Andr Sbastien (divxdede)
+ * @since 1.2.4
+ */
+public class WeightCalibrator {
+
+    /** Weight of the last measured duration in the smoothed duration
+     */
+    private static final double        ALPHA            = 0.5d;
+    private static final String        DURATION_SUFFIX  = ".duration";
+    private static final String        WEIGHT_SUFFIX    = ".weight";
+
+    private final Map<String,Entry>    entries          = new HashMap<String,Entry>();
+    private       double               totalDuration    = 0d;
+    private       double               totalWeight      = 0d;
+
+    /** Create an empty calibrator
+     */
+    public WeightCalibrator() {
+    }
+
+    /** Return the calibrated weight of a fragment.<br>
+     *  It's the recorded duration of the fragment if any, otherwise it's default weight scaled to the recorded durations.
+     *
+     *  @param id Stable id of the fragment
+     *  @param defaultWeight Weight of the fragment when nothing is recorded
+     *  @return calibrated weight
+     */
+    public synchronized float getWeight(final String id , final float defaultWeight) {
+        Entry entry = this.entries.get( id );
+        if( entry != null ) return (float)Math.max( 1d , entry.duration );
+        if( this.totalWeight <= 0d ) return defaultWeight;
+        return (float)( defaultWeight * ( this.totalDuration / this.totalWeight ) );
+    }
+
+    /** Return the recorded duration of a fragment
+     *  @param id Stable id of the fragment
+     *  @return smoothed duration in milliseconds or <code>-1</code> if nothing is recorded
+     */
+    public synchronized long getDuration(final String id) {
+        Entry entry = this.entries.get( id );
+        return entry == null ? -1L : (long)entry.duration;
+    }
+
+    /** Record a duration of a fragment
+     *  @param id Stable id of the fragment
+     *  @param defaultWeight Default weight of the fragment
+     *  @param duration Duration in milliseconds the fragment took
+     */
+    public synchronized void record(final String id , final float defaultWeight , final long duration) {
+        if( id == null ) throw new NullPointerException("id can't be null");
+        if( duration < 0L ) throw new IllegalArgumentException("duration must be positive");
+
+        Entry entry = this.entries.get( id );
+        if( entry == null ) {
+            this.entries.put( id , new Entry( duration , defaultWeight ) );
+        }
+        else {
+            forget( entry );
+            entry.duration = ALPHA * duration + ( 1d - ALPHA ) * entry.duration;
+            entry.weight   = defaultWeight;
+        }
+        remember( this.entries.get( id ) );
+    }
+
+    /** Measure the duration of a fragment and record it once completed.<br>
+     *  The measure start now and end when the fragment is completed (<code>value + extent &gt;= maximum</code>).
+     *
+     *  @param id Stable id of the fragment
+     *  @param defaultWeight Default weight of the fragment
+     *  @param fragment Fragment to measure
+     */
+    public void track(final String id , final float defaultWeight , final BoundedRangeModel fragment) {
+        track( id , defaultWeight , fragment , null );
+    }
+
+    /** Measure the duration of a fragment following another one.<br>
+     *  The measure start now or when the previous fragment is completed if it's later,
+     *  so fragments created together and run one after the other are measured separately.
+     *
+     *  @param id Stable id of the fragment
+     *  @param defaultWeight Default weight of the fragment
+     *  @param fragment Fragment to measure
+     *  @param previous Token returned when the previous fragment was tracked (may be <code>null</code>)
+     *  @return token to give when tracking the next fragment
+     */
+    Object track(final String id , final float defaultWeight , final BoundedRangeModel fragment , final Object previous) {
+        if( id == null ) throw new NullPointerException("id can't be null");
+        Tracker tracker = new Tracker( id , defaultWeight , fragment , (Tracker)previous );
+        fragment.addChangeListener( tracker );
+        return tracker;
+    }
+
+    /** Remove all recorded durations
+     */
+    public synchronized void clear() {
+        this.entries.clear();
+        this.totalDuration = 0d;
+        this.totalWeight   = 0d;
+    }
+
+    /** Load recorded durations previously saved by {@link #store(OutputStream)}.<br>
+     *  Loaded durations replace the recorded ones with the same ids.
+     *
+     *  @param in Stream to read
+     *  @throws IOException if an error occurs when reading the stream
+     */
+    public synchronized void load(final InputStream in) throws IOException {
+        Properties properties = new Properties();
+        properties.load( in );
+
+        for(Iterator<Object> it = properties.keySet().iterator() ; it.hasNext() ; ) {
+            String key = (String)it.next();
+            if( ! key.endsWith( DURATION_SUFFIX ) ) continue;
+
+            String id = key.substring( 0 , key.length() - DURATION_SUFFIX.length() );
+            try {
+                double duration = Double.parseDouble( properties.getProperty( key ) );
+                float  weight   = Float.parseFloat( properties.getProperty( id + WEIGHT_SUFFIX , "1" ) );
+
+                Entry previous = this.entries.get( id );
+                if( previous != null ) forget( previous );
+                Entry entry = new Entry( duration , weight );
+                this.entries.put( id , entry );
+                remember( entry );
+            }
+            catch(final NumberFormatException e) {
+                // malformed entry, skip it
+            }
+        }
+    }
+
+    /** Save the recorded durations
+     *
+     *  @param out Stream to write
+     *  @throws IOException if an error occurs when writing the stream
+     */
+    public synchronized void store(final OutputStream out) throws IOException {
+        Properties properties = new Properties();
+        for(Iterator<Map.Entry<String,Entry>> it = this.entries.entrySet().iterator() ; it.hasNext() ; ) {
+            Map.Entry<String,Entry> entry = it.next();
+            properties.setProperty( entry.getKey() + DURATION_SUFFIX , Long.toString( (long)entry.getValue().duration ) );
+            properties.setProperty( entry.getKey() + WEIGHT_SUFFIX   , Float.toString( entry.getValue().weight ) );
+        }
+        properties.store( out , "JBusyComponent fragment durations" );
+    }
+
+    private void remember(final Entry entry) {
+        this.totalDuration += entry.duration;
+        this.totalWeight   += entry.weight;
+    }
+
+    private void forget(final Entry entry) {
+        this.totalDuration -= entry.duration;
+        this.totalWeight   -= entry.weight;
+    }
+
+    /** Recorded duration of a fragment with it's default weight
+     */
+    private static final class Entry {
+
+        private double duration;
+        private float  weight;
+
+        private Entry(final double duration , final float weight) {
+            this.duration = duration;
+            this.weight   = weight;
+        }
+    }
+
+    /** Listener measuring the duration of a fragment
+     */
+    private class Tracker implements ChangeListener {
+
+        private final String            id;
+        private final float             defaultWeight;
+        private final BoundedRangeModel fragment;
+        private final long              startTime;
+        private       Tracker           previous;
+        private       long              endTime;
+        private volatile boolean        finished  = false;
+
+        private Tracker(final String id , final float defaultWeight , final BoundedRangeModel fragment , final Tracker previous) {
+            this.id            = id;
+            this.defaultWeight = defaultWeight;
+            this.fragment      = fragment;
+            this.previous      = previous;
+            this.startTime     = System.nanoTime();
+        }
+
+        public void stateChanged(ChangeEvent e) {
+            if( this.finished || ! isCompleted( this.fragment ) ) return;
+
+            long now   = System.nanoTime();
+            long start = this.startTime;
+            if( this.previous != null ) {
+                if( this.previous.finished && this.previous.endTime - start > 0L ) start = this.previous.endTime;
+                this.previous = null;
+            }
+            this.endTime  = now;
+            this.finished = true;
+            this.fragment.removeChangeListener( this );
+            record( this.id , this.defaultWeight , ( now - start ) / 1000000L );
+        }
+
+        private boolean isCompleted(final BoundedRangeModel fragment) {
+            if( fragment instanceof LongBoundedRangeModel ) {
+                LongBoundedRangeModel lbrm = (LongBoundedRangeModel)fragment;
+                return lbrm.getLongValue() + lbrm.getLongExtent() >= lbrm.getLongMaximum();
+            }
+            return fragment.getValue() + fragment.getExtent() >= fragment.getMaximum();
+        }
+    }
+}
@@ -23,12 +23,15 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.swing.BoundedRangeModel;
 import javax.swing.DefaultBoundedRangeModel;
 import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
+import org.divxdede.swing.AnimationClock;
+import org.divxdede.swing.LongBoundedRangeModel;
 import org.divxdede.swing.RemainingTimeMonitor;
 
 /**
@@ -43,6 +46,10 @@ import org.divxdede.swing.RemainingTimeMonitor;
  * <p>
  * You can use the {@link #getProgressModel()} for updating the progression of this <code>worker</code> with your own value range (you must define {@link BoundedRangeModel#getMinimum()} and {@link BoundedRangeModel#getMaximum()}).<br>
  * The underlying {@link BoundedRangeModel} call the {@link #setProgress(int)} with the value automatically scale to the [0 ~ 100] range.
+ * <p>
+ * For fine-grained or frequent progressions, use instead the direct progress channel {@link #setProgressValue(long)}:
+ * each call is a simple field store and the last value is published to the {@link BusyModel} once per frame,
+ * with the full resolution of the model range (64 bits for a {@link LongBoundedRangeModel}).
  *
  * @author Andr Sbastien (divxdede)
  * @since 1.2.2
@@ -53,6 +60,18 @@ public abstract class BusySwingWorker<T,V> extends SwingWorker<T,V> {
     private       BusyModel                model    = null;
     private final BoundedRangeModel        progress = new DefaultBoundedRangeModel();
 
+    /** Direct progress channel
+     */
+    private static final int               PUBLISH_DELAY     = 16;
+    private final AtomicBoolean            channelOpened     = new AtomicBoolean(false);
+    private final ActionListener           channelPublisher  = new ProgressPublisher();
+    private volatile long                  channelValue      = 0L;
+    private volatile long                  channelMinimum    = 0L;
+    private volatile long                  channelMaximum    = 100L;
+    private long                           publishedValue    = Long.MIN_VALUE;
+    private long                           publishedMinimum  = Long.MIN_VALUE;
+    private long                           publishedMaximum  = Long.MIN_VALUE;
+
     /**
      * Constructs this {@code BusySwingWorker} providing the specified {@link BusyModel} to use with.
      */
@@ -111,6 +130,83 @@ public abstract class BusySwingWorker<T,V> extends SwingWorker<T,V> {
         return myModel;
     }
 
+    /** Schedules this worker for execution on the library shared executor ({@link BusyExecutors}) instead of the <code>SwingWorker</code> one.<br>
+     *  The <code>SwingWorker</code> executor run at most 10 workers at a time on platform threads,
+     *  the shared executor run each worker on it's own virtual thread when the runtime support them (Java 21).
+     *  <p>
+     *  Like {@link #execute()}, a worker is meant to be executed only once.
+     *  @since 1.2.4
+     */
+    public final void start() {
+        BusyExecutors.getExecutor().execute( this );
+    }
+
+    /** Define the range of the direct progress channel (<code>[0 ~ 100]</code> by default).<br>
+     *  This method can be called from any thread, typically from {@link #doInBackground()} before the first {@link #setProgressValue(long)}.
+     *
+     *  @param minimum Value of the progression when the task start
+     *  @param maximum Value of the progression when the task is completed
+     *  @since 1.2.4
+     */
+    protected final void setProgressRange(final long minimum , final long maximum) {
+        if( minimum > maximum ) throw new IllegalArgumentException("minimum must be lower or equals than maximum");
+        this.channelMinimum = minimum;
+        this.channelMaximum = maximum;
+    }
+
+    /** Set the progression through the direct progress channel.<br>
+     *  Unlike {@link #setProgress(int)}, this method doesn't fire any event: it's a simple field store.
+     *  The last value is published to the {@link BusyModel} on the <code>Event Dispatch Thread</code> once per frame
+     *  and when this worker is done.
+     *  <p>
+     *  The value is interpreted in the range defined by {@link #setProgressRange(long, long)} and mapped on the model range,
+     *  or set as is on a {@link LongBoundedRangeModel} model.
+     *
+     *  @param value New progression value
+     *  @since 1.2.4
+     */
+    protected final void setProgressValue(final long value) {
+        this.channelValue = value;
+        if( ! this.channelOpened.get() && this.channelOpened.compareAndSet( false , true ) ) {
+            AnimationClock.getInstance().subscribe( this.channelPublisher , PUBLISH_DELAY );
+        }
+    }
+
+    /** Publish the direct progress channel to the model (on EDT)
+     */
+    private void publishProgressValue() {
+        final long value   = this.channelValue;
+        final long minimum = this.channelMinimum;
+        final long maximum = this.channelMaximum;
+        if( value == this.publishedValue && minimum == this.publishedMinimum && maximum == this.publishedMaximum ) return;
+        this.publishedValue   = value;
+        this.publishedMinimum = minimum;
+        this.publishedMaximum = maximum;
+
+        BusyModel myModel = getBusyModel();
+        if( myModel == null ) return;
+        myModel.setDeterminate(true);
+
+        if( myModel instanceof LongBoundedRangeModel ) {
+            ((LongBoundedRangeModel)myModel).setLongRangeProperties( value , 0L , minimum , maximum , false );
+        }
+        else {
+            double ratio = maximum == minimum ? 1d : ( (double)value - (double)minimum ) / ( (double)maximum - (double)minimum );
+            ratio = Math.max( 0d , Math.min( 1d , ratio ) );
+            double range = (double)myModel.getMaximum() - (double)myModel.getMinimum() - (double)myModel.getExtent();
+            myModel.setValue( myModel.getMinimum() + (int)Math.round( ratio * range ) );
+        }
+    }
+
+    /** Close the direct progress channel after a last publication (on EDT)
+     */
+    private void closeProgressChannel() {
+        if( this.channelOpened.get() ) {
+            AnimationClock.getInstance().unsubscribe( this.channelPublisher );
+            publishProgressValue();
+        }
+    }
+
     /** Return a {@link BoundedRangeModel} that can be used to set the progression of this worker.<br>
      *  This tool facilite the way to set the progression without the restriction of a range [0 ~ 100].
      *  <p>
@@ -141,13 +237,15 @@ public abstract class BusySwingWorker<T,V> extends SwingWorker<T,V> {
             if( evt.getPropertyName().equals("state") ) {
                 StateValue newValue = (StateValue)evt.getNewValue();
                 switch( newValue ) {
-                    case DONE    : getBusyModel().setBusy(false);
+                    case DONE    : closeProgressChannel();
+                                   getBusyModel().setBusy(false);
                                    progress.removeChangeListener( this );
                                    break;
                     case PENDING : // Do nothing
                                    break;
                     case STARTED : getBusyModel().setBusy(true);
                                    getBusyModel().setValue( getBusyModel().getMinimum() );
+                                   publishedValue = Long.MIN_VALUE; // values published before the start must be published again
                                    progress.addChangeListener( this );
                                    break;
                 }
@@ -191,4 +289,13 @@ public abstract class BusySwingWorker<T,V> extends SwingWorker<T,V> {
             return Math.round(result);
         }
     }
+
+    /** Listener receiving a pulse from the {@link AnimationClock} once per frame while the direct progress channel is opened
+     */
+    private class ProgressPublisher implements ActionListener {
+
+        public void actionPerformed(ActionEvent e) {
+            publishProgressValue();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,564 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * ConcurrentBusyModel.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing.busy;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.event.EventListenerList;
+
+/**
+ * Thread safe and lock-free implementation of interface <code>BusyModel</code>.
+ * <p>
+ * All properties of this model (range, busy, determinate, cancellable, auto completion and description) are stored
+ * in an immutable {@link Snapshot} replaced atomically (compare and set) at each update.<br>
+ * Any thread can update this model without any lock and without waiting the <code>Event Dispatch Thread</code>.
+ * Compound rules are applied atomically: the auto completion (see {@link DefaultBusyModel}) never let an intermediate state visible.
+ * <p>
+ * Listeners are always notified on the <code>Event Dispatch Thread</code>. At most one dispatch is pending at a time:
+ * consecutive updates are merged in a single {@link ChangeEvent} and action events (start, stop, cancel) are delivered
+ * in the order of their state transitions.<br>
+ * A listener needing many properties should read them with a single {@link #getSnapshot()} call in order to read a consistent state.
+ * <p>
+ * Exemple:
+ * <pre>
+ *          final ConcurrentBusyModel model = new ConcurrentBusyModel();
+ *          model.setDeterminate(true);
+ *          model.setBusy(true);
+ *
+ *          // from any worker thread
+ *          model.setValue( done );
+ *
+ *          // from a listener
+ *          ConcurrentBusyModel.Snapshot state = model.getSnapshot();
+ *          float ratio = (float)( state.getValue() - state.getMinimum() ) / (float)( state.getMaximum() - state.getMinimum() );
+ * </pre>
+ *
+ * @author Andr Sbastien (divxdede)
+ * @since 1.2.4
+ */
+public class ConcurrentBusyModel implements BusyModel {
+
+    private final AtomicReference<Snapshot> state           = new AtomicReference<Snapshot>( new Snapshot( 0 , 0 , 0 , 100 , false , false , false , false , false , null , null , false ) );
+    private final AtomicBoolean             dispatchPending = new AtomicBoolean(false);
+    private final EventListenerList         listenerList    = new EventListenerList();
+    private final ChangeEvent               changeEvent     = new ChangeEvent(this);
+    private final Runnable                  dispatcher      = new Runnable() {
+        public void run() {
+            dispatchPendingEvents();
+        }
+    };
+
+    /** Create a model with a range [0 ~ 100]
+     */
+    public ConcurrentBusyModel() {
+    }
+
+    /** Create a model with the specified range
+     *  @param value Initial value
+     *  @param extent Initial extent
+     *  @param min Minimum value
+     *  @param max Maximum value
+     */
+    public ConcurrentBusyModel(int value , int extent , int min , int max) {
+        setRangeProperties( value , extent , min , max , false );
+    }
+
+    /** Return the current state of this model.<br>
+     *  A snapshot is immutable, all it's properties are consistent with each others.
+     *  @return current state of this model
+     */
+    public Snapshot getSnapshot() {
+        return this.state.get();
+    }
+
+    /**
+     * Define if the model is on a "busy" state.
+     * This method fire an {@link ActionEvent} of {@link #START_ACTION_ID} or  {@link #STOP_ACTION_ID} following by a {@link ChangeEvent}
+     * @param value true to going in a busy state
+     */
+    public void setBusy(final boolean value) {
+        Snapshot current, next;
+        do {
+            current = this.state.get();
+            next    = update( current , current.value , current.extent , current.min , current.max , current.adjusting ,
+                              value , current.determinate , current.cancellable , current.autoCompletion , current.description , null );
+        } while( next != current && !this.state.compareAndSet( current , next ) );
+        if( next != current ) stateChanged();
+    }
+
+    /**
+     * Returns true if the model is currently on a <code>busy</code> state
+     * @return tue if the model is currently busy
+     */
+    public boolean isBusy() {
+        return this.state.get().busy;
+    }
+
+    /**
+     * Define if the model is in a <code>determinate mode</code> or not
+     * @param value true for change this model in a determinate mode
+     */
+    public void setDeterminate(final boolean value) {
+        Snapshot current, next;
+        do {
+            current = this.state.get();
+            next    = update( current , current.value , current.extent , current.min , current.max , current.adjusting ,
+                              current.busy , value , current.cancellable , current.autoCompletion , current.description , null );
+        } while( next != current && !this.state.compareAndSet( current , next ) );
+        if( next != current ) stateChanged();
+    }
+
+    /**
+     * Returns true if the model is in a <code>determinate mode</code>.
+     * @return true if the model is in a determinate mode.
+     */
+    public boolean isDeterminate() {
+        return this.state.get().determinate;
+    }
+
+    /**
+     * Define if the range value must manage the completion automatically.
+     * This property is significant only when this model is <code>determinate</code>.
+     * When the <code>busy</code> property is set to true the range <code>value</code> is set to the <code>minimum</code>.
+     * When the range <code>value</code> reach the <code>maximum</code>, the <code>busy</code> property is set to <code>false</code>.
+     */
+    public void setAutoCompletionEnabled(final boolean value) {
+        Snapshot current, next;
+        do {
+            current = this.state.get();
+            next    = update( current , current.value , current.extent , current.min , current.max , current.adjusting ,
+                              current.busy , current.determinate , current.cancellable , value , current.description , null );
+        } while( next != current && !this.state.compareAndSet( current , next ) );
+        if( next != current ) stateChanged();
+    }
+
+    /**
+     * Returns <code>true</code> if the range value must manage the completion automatically.
+     * @see #setAutoCompletionEnabled(boolean)
+     */
+    public boolean isAutoCompletionEnabled() {
+        return this.state.get().autoCompletion;
+    }
+
+    /**
+     * Returns true if the model is <code>cancellable</code> the performing the job responsible on the <code>busy</code> state
+     * @return true is the model is cancellable
+     */
+    public boolean isCancellable() {
+        return this.state.get().cancellable;
+    }
+
+    /**
+     * Define if this model is <code>cancellable</code>
+     * @param value true for set this model cancellable.
+     */
+    public void setCancellable(final boolean value) {
+        Snapshot current, next;
+        do {
+            current = this.state.get();
+            next    = update( current , current.value , current.extent , current.min , current.max , current.adjusting ,
+                              current.busy , current.determinate , value , current.autoCompletion , current.description , null );
+        } while( next != current && !this.state.compareAndSet( current , next ) );
+        if( next != current ) stateChanged();
+    }
+
+    /**
+     * Default implementation that simply stop the <code>busy</code> state.<br>
+     * The cancel action event and the stop of the busy state are done in the same atomic update.
+     */
+    public void cancel() {
+        Snapshot current, next;
+        do {
+            current = this.state.get();
+            if( ! current.cancellable ) throw new IllegalStateException("this model is not cancellable");
+            next    = update( current , current.value , current.extent , current.min , current.max , current.adjusting ,
+                              false , current.determinate , current.cancellable , current.autoCompletion , current.description ,
+                              new ActionEvent( this , CANCEL_ACTION_ID , CANCEL_ACTION_COMMAND , System.currentTimeMillis() , 0 ) );
+        } while( !this.state.compareAndSet( current , next ) );
+        stateChanged();
+    }
+
+    /** Description to show by UI when the model is busy
+     *  Return null for let the UI render the native description
+     *  @return Description to show by UI when the model is busy
+     */
+    public String getDescription() {
+        return this.state.get().description;
+    }
+
+    /** Define the description to show by UI when the model is busy
+     *  @param s new description to show by UI, set null if you want to restore default value
+     */
+    public void setDescription(final String s) {
+        Snapshot current, next;
+        do {
+            current = this.state.get();
+            next    = update( current , current.value , current.extent , current.min , current.max , current.adjusting ,
+                              current.busy , current.determinate , current.cancellable , current.autoCompletion , s , null );
+        } while( next != current && !this.state.compareAndSet( current , next ) );
+        if( next != current ) stateChanged();
+    }
+
+    public int getMinimum() {
+        return this.state.get().min;
+    }
+
+    public void setMinimum(final int n) {
+        Snapshot current, next;
+        do {
+            current = this.state.get();
+            int newMax    = Math.max( n , current.max );
+            int newValue  = Math.max( n , current.value );
+            int newExtent = Math.min( newMax - newValue , current.extent );
+            next    = update( current , newValue , newExtent , n , newMax , current.adjusting ,
+                              current.busy , current.determinate , current.cancellable , current.autoCompletion , current.description , null );
+        } while( next != current && !this.state.compareAndSet( current , next ) );
+        if( next != current ) stateChanged();
+    }
+
+    public int getMaximum() {
+        return this.state.get().max;
+    }
+
+    public void setMaximum(final int n) {
+        Snapshot current, next;
+        do {
+            current = this.state.get();
+            int newMin    = Math.min( n , current.min );
+            int newExtent = Math.min( n - newMin , current.extent );
+            int newValue  = Math.min( n - newExtent , current.value );
+            next    = update( current , newValue , newExtent , newMin , n , current.adjusting ,
+                              current.busy , current.determinate , current.cancellable , current.autoCompletion , current.description , null );
+        } while( next != current && !this.state.compareAndSet( current , next ) );
+        if( next != current ) stateChanged();
+    }
+
+    public int getValue() {
+        return this.state.get().value;
+    }
+
+    /** Define the current value.<br>
+     *  When the auto completion is enabled, reaching the maximum stop the busy state in the same atomic update.
+     */
+    public void setValue(final int n) {
+        Snapshot current, next;
+        do {
+            current = this.state.get();
+            int newValue = Math.min( n , Integer.MAX_VALUE - current.extent );
+            newValue = Math.max( newValue , current.min );
+            if( newValue + current.extent > current.max ) newValue = current.max - current.extent;
+            next    = update( current , newValue , current.extent , current.min , current.max , current.adjusting ,
+                              current.busy , current.determinate , current.cancellable , current.autoCompletion , current.description , null );
+        } while( next != current && !this.state.compareAndSet( current , next ) );
+        if( next != current ) stateChanged();
+    }
+
+    /** Add atomically a delta to the current value.<br>
+     *  Many threads can report their progression on the same model without loosing any update.
+     *  @param delta Delta to add to the current value
+     */
+    public void addValue(final int delta) {
+        Snapshot current, next;
+        do {
+            current = this.state.get();
+            int newValue = (int)Math.min( (long)current.value + delta , (long)Integer.MAX_VALUE - current.extent );
+            newValue = Math.max( newValue , current.min );
+            if( newValue + current.extent > current.max ) newValue = current.max - current.extent;
+            next    = update( current , newValue , current.extent , current.min , current.max , current.adjusting ,
+                              current.busy , current.determinate , current.cancellable , current.autoCompletion , current.description , null );
+        } while( next != current && !this.state.compareAndSet( current , next ) );
+        if( next != current ) stateChanged();
+    }
+
+    public int getExtent() {
+        return this.state.get().extent;
+    }
+
+    public void setExtent(final int n) {
+        Snapshot current, next;
+        do {
+            current = this.state.get();
+            int newExtent = Math.max( 0 , n );
+            if( current.value + newExtent > current.max ) newExtent = current.max - current.value;
+            next    = update( current , current.value , newExtent , current.min , current.max , current.adjusting ,
+                              current.busy , current.determinate , current.cancellable , current.autoCompletion , current.description , null );
+        } while( next != current && !this.state.compareAndSet( current , next ) );
+        if( next != current ) stateChanged();
+    }
+
+    public boolean getValueIsAdjusting() {
+        return this.state.get().adjusting;
+    }
+
+    public void setValueIsAdjusting(final boolean b) {
+        Snapshot current, next;
+        do {
+            current = this.state.get();
+            next    = update( current , current.value , current.extent , current.min , current.max , b ,
+                              current.busy , current.determinate , current.cancellable , current.autoCompletion , current.description , null );
+        } while( next != current && !this.state.compareAndSet( current , next ) );
+        if( next != current ) stateChanged();
+    }
+
+    public void setRangeProperties(final int value , final int extent , final int min , final int max , final boolean adjusting) {
+        int newValue  = value;
+        int newExtent = extent;
+        int newMin    = min;
+        int newMax    = max;
+        if( newMin > newMax )                                  newMin    = newMax;
+        if( newValue > newMax )                                newMax    = newValue;
+        if( newValue < newMin )                                newMin    = newValue;
+        if( ( (long)newExtent + (long)newValue ) > newMax )    newExtent = newMax - newValue;
+        if( newExtent < 0 )                                    newExtent = 0;
+
+        Snapshot current, next;
+        do {
+            current = this.state.get();
+            next    = update( current , newValue , newExtent , newMin , newMax , adjusting ,
+                              current.busy , current.determinate , current.cancellable , current.autoCompletion , current.description , null );
+        } while( next != current && !this.state.compareAndSet( current , next ) );
+        if( next != current ) stateChanged();
+    }
+
+    public void addChangeListener(final ChangeListener l) {
+        this.listenerList.add( ChangeListener.class , l );
+    }
+
+    public void removeChangeListener(final ChangeListener l) {
+        this.listenerList.remove( ChangeListener.class , l );
+    }
+
+    /**
+     * Returns an array of all the <code>ChangeListener</code>s added to this model.
+     * @return all of the <code>ChangeListener</code>s added or an empty array if no listeners have been added
+     */
+    public ChangeListener[] getChangeListeners() {
+        return this.listenerList.getListeners( ChangeListener.class );
+    }
+
+    /**
+     * Adds an <code>ActionListener</code> to the model.
+     * @param l the <code>ActionListener</code> to be added
+     */
+    public void addActionListener(final ActionListener l) {
+        this.listenerList.add( ActionListener.class , l );
+    }
+
+    /**
+     * Removes an <code>ActionListener</code> from the model.
+     * @param l the listener to be removed
+     */
+    public void removeActionListener(final ActionListener l) {
+        this.listenerList.remove( ActionListener.class , l );
+    }
+
+    /**
+     * Returns an array of all the <code>ActionListener</code>s added to this model.
+     * @return all of the <code>ActionListener</code>s added or an empty array if no listeners have been added
+     */
+    public ActionListener[] getActionListeners() {
+        return this.listenerList.getListeners( ActionListener.class );
+    }
+
+    /** Compute the next state from the requested properties.<br>
+     *  This method apply the auto completion rules, record the start/stop action events and return the
+     *  current state itself if nothing has changed.
+     */
+    private Snapshot update(Snapshot current , int value , int extent , int min , int max , boolean adjusting ,
+                            boolean busy , boolean determinate , boolean cancellable , boolean autoCompletion , String description ,
+                            ActionEvent action) {
+        boolean autoComplete = determinate && autoCompletion;
+
+        if( busy && !current.busy && autoComplete ) {
+            value = min; // a new job start from the minimum
+        }
+        else if( busy && autoComplete && value != current.value && value >= max ) {
+            busy = false; // the job is completed
+        }
+
+        Pending actions = current.actions;
+        if( action != null ) actions = new Pending( action , actions );
+        if( busy != current.busy ) {
+            actions = new Pending( busy ? new ActionEvent( this , START_ACTION_ID , START_ACTION_COMMAND , System.currentTimeMillis() , 0 )
+                                        : new ActionEvent( this , STOP_ACTION_ID  , STOP_ACTION_COMMAND  , System.currentTimeMillis() , 0 ) , actions );
+        }
+
+        if( actions == current.actions && value == current.value && extent == current.extent && min == current.min && max == current.max &&
+            adjusting == current.adjusting && busy == current.busy && determinate == current.determinate && cancellable == current.cancellable &&
+            autoCompletion == current.autoCompletion && ( description == null ? current.description == null : description.equals( current.description ) ) ) {
+            return current;
+        }
+        return new Snapshot( value , extent , min , max , adjusting , busy , determinate , cancellable , autoCompletion , description , actions , true );
+    }
+
+    /** The state has changed: notify listeners directly on the <code>Event Dispatch Thread</code>
+     *  or post a dispatch if no dispatch is already pending
+     */
+    private void stateChanged() {
+        if( SwingUtilities.isEventDispatchThread() ) {
+            dispatchPendingEvents();
+        }
+        else if( this.dispatchPending.compareAndSet( false , true ) ) {
+            SwingUtilities.invokeLater( this.dispatcher );
+        }
+    }
+
+    /** Deliver pending action events in their order followed by a single change event.<br>
+     *  This method must be called from the <code>Event Dispatch Thread</code>.
+     */
+    private void dispatchPendingEvents() {
+        this.dispatchPending.set(false);
+
+        Snapshot current, next;
+        do {
+            current = this.state.get();
+            if( ! current.dirty ) return;
+            next = new Snapshot( current.value , current.extent , current.min , current.max , current.adjusting , current.busy , current.determinate ,
+                                 current.cancellable , current.autoCompletion , current.description , null , false );
+        } while( !this.state.compareAndSet( current , next ) );
+
+        /** Pending actions are stored from the newest to the oldest
+         */
+        int count = 0;
+        for(Pending p = current.actions ; p != null ; p = p.next ) count++;
+        ActionEvent[] actions = new ActionEvent[count];
+        for(Pending p = current.actions ; p != null ; p = p.next ) actions[--count] = p.event;
+
+        Object[] listeners = this.listenerList.getListenerList();
+        for(int a = 0 ; a < actions.length ; a++ ) {
+            for(int i = listeners.length - 2 ; i >= 0 ; i -= 2 ) {
+                if( listeners[i] == ActionListener.class ) {
+                    ((ActionListener)listeners[i+1]).actionPerformed( actions[a] );
+                }
+            }
+        }
+        for(int i = listeners.length - 2 ; i >= 0 ; i -= 2 ) {
+            if( listeners[i] == ChangeListener.class ) {
+                ((ChangeListener)listeners[i+1]).stateChanged( this.changeEvent );
+            }
+        }
+    }
+
+    /** Action event waiting to be delivered, linked to the previous one
+     */
+    private static final class Pending {
+
+        private final ActionEvent event;
+        private final Pending     next;
+
+        private Pending(ActionEvent event , Pending next) {
+            this.event = event;
+            this.next  = next;
+        }
+    }
+
+    /**
+     * Immutable state of a {@link ConcurrentBusyModel}.
+     * <p>
+     * All properties of a snapshot were set by the same atomic update and are consistent with each others.
+     *
+     * @author Andr Sbastien (divxdede)
+     * @since 1.2.4
+     */
+    public static final class Snapshot {
+
+        private final int     value;
+        private final int     extent;
+        private final int     min;
+        private final int     max;
+        private final boolean adjusting;
+        private final boolean busy;
+        private final boolean determinate;
+        private final boolean cancellable;
+        private final boolean autoCompletion;
+        private final String  description;
+
+        /** Dispatch members: action events not yet delivered and pending change
+         */
+        private final Pending actions;
+        private final boolean dirty;
+
+        private Snapshot(int value , int extent , int min , int max , boolean adjusting , boolean busy , boolean determinate ,
+                         boolean cancellable , boolean autoCompletion , String description , Pending actions , boolean dirty) {
+            this.value          = value;
+            this.extent         = extent;
+            this.min            = min;
+            this.max            = max;
+            this.adjusting      = adjusting;
+            this.busy           = busy;
+            this.determinate    = determinate;
+            this.cancellable    = cancellable;
+            this.autoCompletion = autoCompletion;
+            this.description    = description;
+            this.actions        = actions;
+            this.dirty          = dirty;
+        }
+
+        public int getValue() {
+            return this.value;
+        }
+
+        public int getExtent() {
+            return this.extent;
+        }
+
+        public int getMinimum() {
+            return this.min;
+        }
+
+        public int getMaximum() {
+            return this.max;
+        }
+
+        public boolean getValueIsAdjusting() {
+            return this.adjusting;
+        }
+
+        public boolean isBusy() {
+            return this.busy;
+        }
+
+        public boolean isDeterminate() {
+            return this.determinate;
+        }
+
+        public boolean isCancellable() {
+            return this.cancellable;
+        }
+
+        public boolean isAutoCompletionEnabled() {
+            return this.autoCompletion;
+        }
+
+        public String getDescription() {
+            return this.description;
+        }
+
+        @Override
+        public String toString() {
+            return "value=" + this.value + ", extent=" + this.extent + ", min=" + this.min + ", max=" + this.max + ", adj=" + this.adjusting +
+                   ", busy=" + this.busy + ", determinate=" + this.determinate + ", cancellable=" + this.cancellable;
+        }
+    }
+}
@@ -21,6 +21,7 @@ package org.divxdede.swing.busy;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.LinkedList;
 import javax.swing.DefaultBoundedRangeModel;
 import javax.swing.SwingUtilities;
 import javax.swing.event.ChangeEvent;
@@ -34,6 +35,16 @@ import javax.swing.event.EventListenerList;
  * property is set to <code>true</code>.<br>
  * At the other side, when the  current value reach the maximum bounded range, it set
  * automatically the busy property to <code>false</code>.
+ * <p>
+ * Events are always fired on the <code>Event Dispatch Thread</code>.<br>
+ * When this model is updated from another thread, each event is posted to the <code>Event Dispatch Thread</code>.
+ * A worker updating it's progression very often can flood the event queue, that's why a <strong>coalescing</strong> mode can be enabled
+ * with {@link #setCoalescingEnabled(boolean)}:
+ * <ul>
+ *   <li>At most one pending dispatch is posted at a time to the <code>Event Dispatch Thread</code></li>
+ *   <li>Consecutive state changes are merged in a single {@link ChangeEvent}, listeners read the latest state of this model</li>
+ *   <li>Action events (start, stop, cancel) are all delivered in their original order, each one separated by the state changes occured between them</li>
+ * </ul>
  * 
  * @author Andr Sbastien (divxdede)
  */
@@ -44,6 +55,23 @@ public class DefaultBusyModel extends DefaultBoundedRangeModel implements BusyMo
     private boolean         autoCompletionState = false;
     private boolean         cancellableState    = false;
     private String          description         = null;
+
+    /** Coalescing members.
+     *  Pending events are action events or the STATE_CHANGED marker, they are guarded by the pending list itself.
+     *  dispatchPending is set while the dispatcher is queued on the Event Dispatch Thread
+     */
+    private static final Object      STATE_CHANGED   = new Object();
+    private volatile boolean         coalescingState = false;
+    private final LinkedList<Object> pendingEvents   = new LinkedList<Object>();
+    private boolean                  dispatchPending = false;
+    private final Runnable           dispatcher      = new Runnable() {
+        public void run() {
+            synchronized( pendingEvents ) {
+                dispatchPending = false;
+            }
+            dispatchPendingEvents();
+        }
+    };
     
     /** 
      * Define if the model is on a "busy" state.
@@ -190,6 +218,28 @@ public class DefaultBusyModel extends DefaultBoundedRangeModel implements BusyMo
         }
     }
 
+    /**
+     * Define if events fired from another thread than the <code>Event Dispatch Thread</code> are coalesced.
+     * <p>
+     * When enabled, at most one dispatch is pending at a time on the <code>Event Dispatch Thread</code>.
+     * Consecutive state changes are merged in a single {@link ChangeEvent} and action events are delivered in their original order.
+     *
+     * @param value <code>true</code> for coalesce events fired outside the <code>Event Dispatch Thread</code>
+     * @since 1.2.4
+     */
+    public void setCoalescingEnabled(final boolean value) {
+        this.coalescingState = value;
+    }
+
+    /**
+     * Returns <code>true</code> if events fired from another thread than the <code>Event Dispatch Thread</code> are coalesced.
+     * @return <code>true</code> if events are coalesced
+     * @since 1.2.4
+     */
+    public boolean isCoalescingEnabled() {
+        return this.coalescingState;
+    }
+
     /**
      * Adds an <code>ActionListener</code> to the model.
      * @param l the <code>ActionListener</code> to be added
@@ -227,6 +277,10 @@ public class DefaultBusyModel extends DefaultBoundedRangeModel implements BusyMo
     @Override
     protected void fireStateChanged() {
         if( ! SwingUtilities.isEventDispatchThread() ) {
+            if( isCoalescingEnabled() ) {
+                postEvent( STATE_CHANGED );
+                return;
+            }
             final Runnable doRun = new Runnable() {
                 public void run() {
                     fireStateChanged();
@@ -235,6 +289,7 @@ public class DefaultBusyModel extends DefaultBoundedRangeModel implements BusyMo
             SwingUtilities.invokeLater(doRun);
             return;
         }
+        dispatchPendingEvents();
         super.fireStateChanged();
     }
 
@@ -251,6 +306,10 @@ public class DefaultBusyModel extends DefaultBoundedRangeModel implements BusyMo
     protected void fireActionPerformed(final ActionEvent event) {
         // Ensure on EDT
         if( !SwingUtilities.isEventDispatchThread() ) {
+            if( isCoalescingEnabled() ) {
+                postEvent( event );
+                return;
+            }
             Runnable doRun = new Runnable() {
                 public void run() {
                     fireActionPerformed(event);
@@ -259,6 +318,13 @@ public class DefaultBusyModel extends DefaultBoundedRangeModel implements BusyMo
             SwingUtilities.invokeLater(doRun);
             return;
         }
+        dispatchPendingEvents();
+        fireActionPerformedImpl(event);
+    }
+
+    /** Notify all action listeners, this method must be called from the <code>Event Dispatch Thread</code>
+     */
+    private void fireActionPerformedImpl(final ActionEvent event) {
         // Guaranteed to return a non-null array
         Object[] listeners = listenerList.getListenerList();
         // Process the listeners last to first, notifying
@@ -269,4 +335,38 @@ public class DefaultBusyModel extends DefaultBoundedRangeModel implements BusyMo
             }
         }
     }
+
+    /** Post an event fired outside the <code>Event Dispatch Thread</code> in coalescing mode.<br>
+     *  A state change following another pending state change is merged with it.
+     *  A single dispatch is posted for all pending events.
+     */
+    private void postEvent(final Object event) {
+        synchronized( this.pendingEvents ) {
+            if( event == STATE_CHANGED && !this.pendingEvents.isEmpty() && this.pendingEvents.getLast() == STATE_CHANGED ) {
+                return; // merged with the pending state change
+            }
+            this.pendingEvents.add( event );
+            if( this.dispatchPending ) return;
+            this.dispatchPending = true;
+        }
+        SwingUtilities.invokeLater( this.dispatcher );
+    }
+
+    /** Deliver all pending events in their original order.<br>
+     *  It's also called before any event fired directly from the <code>Event Dispatch Thread</code>
+     *  in order to never deliver an event before the events posted previously.
+     *  In this case the queued dispatcher stay pending (it will find no event), so no other one is queued meanwhile.
+     */
+    private void dispatchPendingEvents() {
+        final Object[] events;
+        synchronized( this.pendingEvents ) {
+            if( this.pendingEvents.isEmpty() ) return;
+            events = this.pendingEvents.toArray();
+            this.pendingEvents.clear();
+        }
+        for(int i = 0 ; i < events.length ; i++ ) {
+            if( events[i] == STATE_CHANGED ) super.fireStateChanged();
+            else                             fireActionPerformedImpl( (ActionEvent)events[i] );
+        }
+    }
 }
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * FutureBatchBusyModel.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing.busy;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.Future;
+import org.divxdede.commons.Disposable;
+
+/**
+ * A BusyModel implementation reflecting the execution of a whole batch of {@link Future} tasks.
+ * <p>
+ * This model stay <code>busy</code> until all the futures added with {@link #addFuture(Future)} are done.<br>
+ * It's <code>determinate</code> and it's progression is the weight of done futures against the weight of all added futures
+ * (each future weight <code>1</code> unless specified with {@link #addFuture(Future, long)}).
+ * <p>
+ * Futures are tracked without blocking any thread (see {@link FutureBusyModel}) and each completion update this model in a constant time.
+ * <p>
+ * Cancelling this model (by example from the cancel hyperlink of a <code>JBusyComponent</code>) cancel all futures not already done.<br>
+ * Once all futures are done, the next added future start a new batch.
+ * <p>
+ * Exemple:
+ * <pre>
+ *          FutureBatchBusyModel model = new FutureBatchBusyModel();
+ *          for( File file : files ) {
+ *              model.addFuture( executor.submit( new CopyTask(file) ) , file.length() );
+ *          }
+ *          busyComponent.setBusyModel( model );
+ * </pre>
+ *
+ * @author Andr Sbastien (divxdede)
+ * @since 1.2.4
+ */
+public class FutureBatchBusyModel extends LongBusyModel implements Disposable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Members
+     */
+    private final Set<Entry> pending         = new LinkedHashSet<Entry>();
+    private long             submittedWeight = 0L;
+    private long             doneWeight      = 0L;
+    private int              submittedCount  = 0;
+    private int              doneCount       = 0;
+
+    /** Default constructor
+     */
+    public FutureBatchBusyModel() {
+        this.setDeterminate(true);
+        this.setCancellable(true);
+        this.setAutoCompletionEnabled(false);
+    }
+
+    /** Add a future of weight <code>1</code> to the batch
+     *  @param future Future to add
+     */
+    public void addFuture(final Future<?> future) {
+        addFuture( future , 1L );
+    }
+
+    /** Add a future to the batch
+     *  @param future Future to add
+     *  @param weight Weight of this future in the batch progression
+     */
+    public synchronized void addFuture(final Future<?> future , final long weight) {
+        if( future == null ) throw new NullPointerException();
+        if( weight < 0L ) throw new IllegalArgumentException("weight must be positive");
+
+        if( this.pending.isEmpty() ) {
+            /** Start a new batch
+             */
+            this.submittedWeight = 0L;
+            this.doneWeight      = 0L;
+            this.submittedCount  = 0;
+            this.doneCount       = 0;
+            super.setBusy(true);
+        }
+
+        Entry entry = new Entry( future , weight );
+        this.pending.add( entry );
+        this.submittedWeight += weight;
+        this.submittedCount++;
+        updateProgress();
+
+        entry.tracking = FutureTracker.getInstance().track( future , entry );
+    }
+
+    /** Return the number of futures of the current batch not already done
+     *  @return count of pending futures
+     */
+    public synchronized int getPendingCount() {
+        return this.pending.size();
+    }
+
+    /** Return the number of futures added to the current batch
+     *  @return count of submitted futures
+     */
+    public synchronized int getSubmittedCount() {
+        return this.submittedCount;
+    }
+
+    /** Return the number of done futures of the current batch
+     *  @return count of done futures
+     */
+    public synchronized int getDoneCount() {
+        return this.doneCount;
+    }
+
+    /** You can't define the busy state manually on a {@link FutureBatchBusyModel}
+     *  Use instead the {@link #addFuture(Future)} for define which tasks to track.
+     */
+    @Override
+    public final void setBusy(final boolean value) {
+        // do nothing
+    }
+
+    /** Cancel all futures of the current batch not already done
+     */
+    @Override
+    public void cancel() {
+        Entry[] entries;
+        synchronized(this) {
+            entries = this.pending.toArray( new Entry[ this.pending.size() ] );
+        }
+        for(int i = 0 ; i < entries.length ; i++ ) {
+            entries[i].future.cancel(true);
+        }
+    }
+
+    /** Dispose the model by stopping the tracking of all futures.
+     *  The futures are not cancelled.
+     */
+    public synchronized void dispose() {
+        for( Entry entry : this.pending ) {
+            if( entry.tracking != null ) entry.tracking.cancel();
+        }
+        this.pending.clear();
+        super.setBusy(false);
+    }
+
+    /** Invoked when a future is done
+     */
+    private synchronized void done(final Entry entry) {
+        if( ! this.pending.remove( entry ) ) return;
+
+        this.doneWeight += entry.weight;
+        this.doneCount++;
+        updateProgress();
+
+        if( this.pending.isEmpty() ) {
+            super.setBusy(false);
+        }
+    }
+
+    /** Reflect the current progression in the long range of this model
+     */
+    private void updateProgress() {
+        setLongRangeProperties( this.doneWeight , 0L , 0L , this.submittedWeight , getValueIsAdjusting() );
+    }
+
+    /** A future of the batch, it's also the callback notified by the {@link FutureTracker}
+     */
+    private class Entry implements Runnable {
+
+        private final Future<?>        future;
+        private final long             weight;
+        private FutureTracker.Tracking tracking = null;
+
+        private Entry(final Future<?> future , final long weight) {
+            this.future = future;
+            this.weight = weight;
+        }
+
+        public void run() {
+            done( this );
+        }
+    }
+}
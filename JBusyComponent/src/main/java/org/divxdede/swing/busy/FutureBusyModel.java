@@ -21,8 +21,6 @@ package org.divxdede.swing.busy;
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import javax.swing.SwingWorker;
 import org.divxdede.commons.Disposable;
@@ -35,7 +33,10 @@ import org.divxdede.commons.Disposable;
  * Since {@link SwingWorker} is also a {@link Future}, you can bound a SwingWorker to this model.<br>
  * When you bound a {@link SwingWorker} to this model, this model will be determinate and use the {@link SwingWorker#getProgress()}
  * <p>
- * When you don't need anymore to use this model, you must invoke {@link #dispose()} in order to free all threading resources.<br>
+ * The completion of the future is tracked without blocking any thread: a {@link SwingWorker} is listened,
+ * a <code>CompletionStage</code> is hooked and any other future is polled once per frame by a shared tracker.
+ * <p>
+ * When you don't need anymore to use this model, you should invoke {@link #dispose()} in order to stop the tracking.<br>
  * 
  * @author Andr Sbastien (divxdede)
  */
@@ -43,10 +44,9 @@ public class FutureBusyModel extends DefaultBusyModel implements Disposable {
     
     /** Members
      */
-    private ExecutorService service             = null;
-    private int             ticket              = 0;
-    private Future          trackedFuture       = null;
-    private Future          trackerFuture       = null;
+    private int                      ticket        = 0;
+    private Future                   trackedFuture = null;
+    private FutureTracker.Tracking   tracking      = null;
 
     /** Listener of {@link SwingWorker} that listen "progress" property
      */
@@ -137,37 +137,22 @@ public class FutureBusyModel extends DefaultBusyModel implements Disposable {
             setDeterminate(false);
         }
 
-        if( this.trackedFuture != null ) {
-            /** Tracker job to execute on our dedicated thread
+        if( this.trackedFuture != null && ! this.trackedFuture.isDone() ) {
+            final Future myFuture = this.trackedFuture;
+            final int    myTicket = setBusyImpl(true);
+
+            /** Callback invoked by the shared tracker when the future is done
              */
-            final Runnable tracker = new Runnable() {
+            final Runnable onDone = new Runnable() {
                 public void run() {
-                    int myTicket = 0;
-                    try {
-                        final Future myFuture = FutureBusyModel.this.trackedFuture;
-                        while( ! myFuture.isDone() ) {
-                            myTicket = setBusyImpl(true);
-                            try {
-                                myFuture.get();
-                            }
-                            catch(final Exception e) {
-                               if( myFuture != FutureBusyModel.this.trackedFuture ) {
-                                   /** probably the model must reflet now a different Future
-                                    *  We must stop to reflet this one
-                                    */
-                                   break;
-                               }
-                            }
+                    synchronized(FutureBusyModel.this) {
+                        if( myFuture == FutureBusyModel.this.trackedFuture ) {
+                            compareAndSetBusy( false , myTicket );
                         }
                     }
-                    finally {
-                        compareAndSetBusy( false, myTicket );
-                    }
                 }
             };
-
-            if( this.service == null ) this.service = Executors.newSingleThreadExecutor();
-            this.trackerFuture = this.service.submit(tracker);
+            this.tracking = FutureTracker.getInstance().track( myFuture , onDone );
         }
         else {
             setBusyImpl(false);
@@ -186,9 +171,9 @@ public class FutureBusyModel extends DefaultBusyModel implements Disposable {
         this.setDeterminate(false);
         this.trackedFuture = null;
 
-        if( this.trackerFuture != null ) {
-            this.trackerFuture.cancel(true);
-            this.trackerFuture = null;
+        if( this.tracking != null ) {
+            this.tracking.cancel();
+            this.tracking = null;
         }
     }
 
@@ -202,14 +187,10 @@ public class FutureBusyModel extends DefaultBusyModel implements Disposable {
         }
     }
 
-    /** Dispose the model by freeing threading resources.
+    /** Dispose the model by stopping the tracking of the current future.
      *  @since 1.2.2
      */
     public synchronized void dispose() {
         setFuture(null,false);
-        if( this.service != null ) {
-            this.service.shutdownNow();
-            this.service = null;
-        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * FutureTracker.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing.busy;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.SwingWorker;
+import org.divxdede.swing.AnimationClock;
+
+/**
+ * Shared tracker notifying the completion of {@link Future}s without blocking any thread.
+ * <p>
+ * Depending on the future kind, the completion is detected by:
+ * <ul>
+ *   <li>{@link SwingWorker}: the <code>state</code> property change to <code>DONE</code></li>
+ *   <li><code>java.util.concurrent.CompletionStage</code> (when available at runtime): a <code>whenComplete</code> hook</li>
+ *   <li>any other {@link Future}: a job waiting it on a virtual thread when {@link BusyExecutors#isVirtual() available},
+ *       otherwise a poll of {@link Future#isDone()} driven by the shared {@link AnimationClock} once per frame</li>
+ * </ul>
+ * So tracking any count of futures don't cost any dedicated platform thread.
+ *
+ * @author Andr Sbastien (divxdede)
+ * @since 1.2.4
+ */
+final class FutureTracker {
+
+    /** Delay between two polls of plain futures (one frame)
+     */
+    private static final int           POLL_DELAY    = 16;
+
+    private static final FutureTracker INSTANCE      = new FutureTracker();
+
+    /** CompletionStage support resolved by reflection (null when not available)
+     */
+    private static final Class<?>      STAGE_CLASS   = loadClass("java.util.concurrent.CompletionStage");
+    private static final Class<?>      HOOK_CLASS    = loadClass("java.util.function.BiConsumer");
+    private static final Method        WHEN_COMPLETE = whenCompleteMethod();
+
+    private final List<Tracking>       polled        = new ArrayList<Tracking>();
+    private final ActionListener       poller        = new Poller();
+
+    private FutureTracker() {
+    }
+
+    /** Return the shared tracker
+     */
+    static FutureTracker getInstance() {
+        return INSTANCE;
+    }
+
+    /** Track the completion of a future.<br>
+     *  The <code>onDone</code> callback is invoked once when the future is done (immediatly if it's already done).
+     *  It may be invoked from any thread.
+     *
+     *  @param future Future to track
+     *  @param onDone Callback to invoke when the future is done
+     *  @return Tracking handle allowing to cancel this tracking
+     */
+    Tracking track(final Future<?> future , final Runnable onDone) {
+        return track( future , onDone , BusyExecutors.isVirtual() ? BusyExecutors.getExecutor() : null );
+    }
+
+    /** Track the completion of a future, plain futures being waited by a job of the specified executor.
+     *
+     *  @param future Future to track
+     *  @param onDone Callback to invoke when the future is done
+     *  @param waiters Executor running the jobs waiting the plain futures (<code>null</code> for polling them)
+     *  @return Tracking handle allowing to cancel this tracking
+     */
+    Tracking track(final Future<?> future , final Runnable onDone , final ExecutorService waiters) {
+        final Tracking tracking = new Tracking( future , onDone );
+
+        if( future instanceof SwingWorker ) {
+            ((SwingWorker<?,?>)future).addPropertyChangeListener( tracking );
+        }
+        else if( WHEN_COMPLETE != null && STAGE_CLASS.isInstance( future ) ) {
+            try {
+                Object hook = Proxy.newProxyInstance( FutureTracker.class.getClassLoader() , new Class<?>[]{ HOOK_CLASS } , tracking );
+                WHEN_COMPLETE.invoke( future , hook );
+            }
+            catch(Exception e) {
+                // the hook can't be installed, poll this future instead
+                poll( tracking );
+            }
+        }
+        else if( waiters != null ) {
+            tracking.waiter = waiters.submit( new Waiter( tracking ) );
+        }
+        else {
+            poll( tracking );
+        }
+
+        /** The future may be done before the hook was installed
+         */
+        if( future.isDone() ) tracking.fire();
+        return tracking;
+    }
+
+    /** Add a tracking to the polled list
+     */
+    private void poll(final Tracking tracking) {
+        synchronized(this.polled) {
+            this.polled.add( tracking );
+            if( this.polled.size() == 1 ) {
+                AnimationClock.getInstance().subscribe( this.poller , POLL_DELAY );
+            }
+        }
+    }
+
+    /** Remove a tracking from the polled list
+     */
+    private void unpoll(final Tracking tracking) {
+        synchronized(this.polled) {
+            if( this.polled.remove( tracking ) && this.polled.isEmpty() ) {
+                AnimationClock.getInstance().unsubscribe( this.poller );
+            }
+        }
+    }
+
+    private static Class<?> loadClass(final String name) {
+        try {
+            return Class.forName( name );
+        }
+        catch(ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static Method whenCompleteMethod() {
+        if( STAGE_CLASS == null || HOOK_CLASS == null ) return null;
+        try {
+            return STAGE_CLASS.getMethod( "whenComplete" , HOOK_CLASS );
+        }
+        catch(NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /** Tracking of one future.<br>
+     *  It act as the <code>SwingWorker</code> listener and as the <code>CompletionStage</code> hook.
+     */
+    final class Tracking implements PropertyChangeListener, InvocationHandler {
+
+        private final Future<?>       future;
+        private final Runnable        onDone;
+        private final AtomicBoolean   finished = new AtomicBoolean(false);
+        private volatile Future<?>    waiter   = null;
+
+        private Tracking(final Future<?> future , final Runnable onDone) {
+            this.future = future;
+            this.onDone = onDone;
+        }
+
+        /** Cancel this tracking, the callback will not be invoked if it was not already.<br>
+         *  The tracked future itself is not cancelled.
+         */
+        void cancel() {
+            if( this.finished.compareAndSet( false , true ) ) {
+                release();
+                if( this.waiter != null ) this.waiter.cancel(true);
+            }
+        }
+
+        /** Invoke the callback if not already done.<br>
+         *  A waiting job is not cancelled: the future being done, it ends by itself
+         *  (cancelling it from it's own thread would interrupt the callback).
+         */
+        private void fire() {
+            if( this.finished.compareAndSet( false , true ) ) {
+                release();
+                this.onDone.run();
+            }
+        }
+
+        /** Release the hook of this tracking
+         */
+        private void release() {
+            if( this.future instanceof SwingWorker ) {
+                ((SwingWorker<?,?>)this.future).removePropertyChangeListener( this );
+            }
+            else {
+                unpoll( this );
+            }
+        }
+
+        public void propertyChange(PropertyChangeEvent evt) {
+            if( "state".equals( evt.getPropertyName() ) && evt.getNewValue() == SwingWorker.StateValue.DONE ) {
+                fire();
+            }
+        }
+
+        public Object invoke(Object proxy , Method method , Object[] args) throws Throwable {
+            if( method.getDeclaringClass() == Object.class ) {
+                if( method.getName().equals("equals") )   return proxy == args[0];
+                if( method.getName().equals("hashCode") ) return System.identityHashCode( proxy );
+                return "FutureTracker.Hook[" + this.future + "]";
+            }
+            fire();
+            return null;
+        }
+    }
+
+    /** Job waiting the completion of a future on a virtual thread
+     */
+    private static class Waiter implements Runnable {
+
+        private final Tracking tracking;
+
+        private Waiter(final Tracking tracking) {
+            this.tracking = tracking;
+        }
+
+        public void run() {
+            try {
+                this.tracking.future.get();
+            }
+            catch(InterruptedException e) {
+                /** The tracking was cancelled
+                 */
+                return;
+            }
+            catch(Exception e) {
+                /** Done by a failure or a cancellation
+                 */
+            }
+            this.tracking.fire();
+        }
+    }
+
+    /** Listener receiving a pulse from the {@link AnimationClock} while plain futures are tracked
+     */
+    private class Poller implements ActionListener {
+
+        public void actionPerformed(ActionEvent e) {
+            Tracking[] trackings;
+            synchronized(polled) {
+                trackings = polled.toArray( new Tracking[ polled.size() ] );
+            }
+            for(int i = 0 ; i < trackings.length ; i++ ) {
+                if( trackings[i].future.isDone() ) {
+                    trackings[i].fire();
+                }
+            }
+        }
+    }
+}
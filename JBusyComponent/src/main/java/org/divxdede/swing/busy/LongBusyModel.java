@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * LongBusyModel.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing.busy;
+
+import org.divxdede.swing.LongBoundedRangeModel;
+
+/**
+ * A BusyModel implementation using a 64 bits range, designed for byte-scale operations (file transfers, ...).
+ * <p>
+ * The long properties are the real state of this model. The <code>int</code> properties inherited from
+ * {@link javax.swing.BoundedRangeModel} are a view of theses long properties:
+ * <ul>
+ *   <li>When the long range fit in an <code>int</code>, the view is exactly the long range</li>
+ *   <li>Otherwise, the view is scaled in the range <code>[0 ~ 2^30]</code></li>
+ * </ul>
+ * Setting the <code>value</code> or the <code>extent</code> through the <code>int</code> view is converted in the long range.
+ * Setting the <code>minimum</code> or the <code>maximum</code> through the <code>int</code> view define directly the long range.
+ * <p>
+ * The auto completion feature (see {@link DefaultBusyModel}) works on the long range.
+ * <p>
+ * Exemple:
+ * <pre>
+ *          LongBusyModel model = new LongBusyModel();
+ *          model.setDeterminate(true);
+ *          model.setAutoCompletionEnabled(true);
+ *          model.setLongMaximum( file.length() );
+ *          model.setBusy(true);
+ *
+ *          while( (read = in.read(buffer)) != -1 ) {
+ *              out.write( buffer , 0 , read );
+ *              model.setLongValue( model.getLongValue() + read );
+ *          }
+ * </pre>
+ *
+ * @author Andr Sbastien (divxdede)
+ * @since 1.2.4
+ */
+public class LongBusyModel extends DefaultBusyModel implements LongBoundedRangeModel {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Maximum of the int view when the long range don't fit in an int
+     */
+    private static final int VIEW_RESOLUTION = 1 << 30;
+
+    private long    longValue   = 0L;
+    private long    longExtent  = 0L;
+    private long    longMin     = 0L;
+    private long    longMax     = 100L;
+    private boolean syncing     = false;
+    private boolean fired       = false;
+
+    /** Create a model with a range [0 ~ 100]
+     */
+    public LongBusyModel() {
+        this( 0L , 0L , 0L , 100L );
+    }
+
+    /** Create a model with the specified long range
+     *  @param value Initial value
+     *  @param extent Initial extent
+     *  @param min Minimum value
+     *  @param max Maximum value
+     */
+    public LongBusyModel(long value , long extent , long min , long max) {
+        setLongRangeProperties( value , extent , min , max , false );
+    }
+
+    public long getLongValue() {
+        return this.longValue;
+    }
+
+    public void setLongValue(long n) {
+        long newValue = Math.min( n , Long.MAX_VALUE - this.longExtent );
+        newValue = Math.max( newValue , this.longMin );
+        if( newValue + this.longExtent > this.longMax ) newValue = this.longMax - this.longExtent;
+        setLongRangeProperties( newValue , this.longExtent , this.longMin , this.longMax , getValueIsAdjusting() );
+
+        if( isDeterminate() && isAutoCompletionEnabled() && getLongValue() >= getLongMaximum() ) {
+            setBusy(false);
+        }
+    }
+
+    public long getLongExtent() {
+        return this.longExtent;
+    }
+
+    public void setLongExtent(long n) {
+        long newExtent = Math.max( 0L , n );
+        if( this.longValue + newExtent > this.longMax ) newExtent = this.longMax - this.longValue;
+        setLongRangeProperties( this.longValue , newExtent , this.longMin , this.longMax , getValueIsAdjusting() );
+    }
+
+    public long getLongMinimum() {
+        return this.longMin;
+    }
+
+    public void setLongMinimum(long n) {
+        long newMax    = Math.max( n , this.longMax );
+        long newValue  = Math.max( n , this.longValue );
+        long newExtent = Math.min( newMax - newValue , this.longExtent );
+        setLongRangeProperties( newValue , newExtent , n , newMax , getValueIsAdjusting() );
+    }
+
+    public long getLongMaximum() {
+        return this.longMax;
+    }
+
+    public void setLongMaximum(long n) {
+        long newMin    = Math.min( n , this.longMin );
+        long newExtent = Math.min( n - newMin , this.longExtent );
+        long newValue  = Math.min( n - newExtent , this.longValue );
+        setLongRangeProperties( newValue , newExtent , newMin , n , getValueIsAdjusting() );
+    }
+
+    public void setLongRangeProperties(long newValue , long newExtent , long newMin , long newMax , boolean adjusting) {
+        if( newMin > newMax )                                                   newMin    = newMax;
+        if( newValue > newMax )                                                 newMax    = newValue;
+        if( newValue < newMin )                                                 newMin    = newValue;
+        if( newExtent > newMax - newValue || newExtent + newValue > newMax )    newExtent = newMax - newValue;
+        if( newExtent < 0L )                                                    newExtent = 0L;
+
+        boolean changed = newValue != this.longValue || newExtent != this.longExtent || newMin != this.longMin || newMax != this.longMax;
+        this.longValue  = newValue;
+        this.longExtent = newExtent;
+        this.longMin    = newMin;
+        this.longMax    = newMax;
+
+        /** Update the int view, a change event is fired only if the view has changed
+         */
+        this.syncing = true;
+        this.fired   = false;
+        try {
+            if( isViewScaled() ) {
+                super.setRangeProperties( toView( newValue ) , toView( newMin + newExtent ) , 0 , VIEW_RESOLUTION , adjusting );
+            }
+            else {
+                super.setRangeProperties( (int)newValue , (int)newExtent , (int)newMin , (int)newMax , adjusting );
+            }
+        }
+        finally {
+            this.syncing = false;
+        }
+        if( changed && !this.fired ) fireStateChanged();
+    }
+
+    /** Define the value through the int view.
+     *  When the view is scaled, the value is converted in the long range.
+     */
+    @Override
+    public void setValue(int n) {
+        setLongValue( toLong(n) );
+    }
+
+    /** Define the extent through the int view.
+     *  When the view is scaled, the extent is converted in the long range.
+     */
+    @Override
+    public void setExtent(int n) {
+        setLongExtent( toLong(n) - ( isViewScaled() ? this.longMin : 0L ) );
+    }
+
+    /** Define directly the long minimum
+     */
+    @Override
+    public void setMinimum(int n) {
+        setLongMinimum( n );
+    }
+
+    /** Define directly the long maximum
+     */
+    @Override
+    public void setMaximum(int n) {
+        setLongMaximum( n );
+    }
+
+    @Override
+    public void setValueIsAdjusting(boolean b) {
+        setLongRangeProperties( this.longValue , this.longExtent , this.longMin , this.longMax , b );
+    }
+
+    /** Define directly all long properties
+     */
+    @Override
+    public void setRangeProperties(int newValue , int newExtent , int newMin , int newMax , boolean adjusting) {
+        if( this.syncing ) {
+            super.setRangeProperties( newValue , newExtent , newMin , newMax , adjusting );
+            return;
+        }
+        setLongRangeProperties( newValue , newExtent , newMin , newMax , adjusting );
+    }
+
+    @Override
+    protected void fireStateChanged() {
+        if( this.syncing ) this.fired = true;
+        super.fireStateChanged();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getName() + "[value=" + this.longValue + ", extent=" + this.longExtent + ", min=" + this.longMin +
+               ", max=" + this.longMax + ", adj=" + getValueIsAdjusting() + "]";
+    }
+
+    /** Indicate if the int view is scaled (long range don't fit in an int)
+     */
+    private boolean isViewScaled() {
+        return this.longMin < Integer.MIN_VALUE || this.longMax > Integer.MAX_VALUE;
+    }
+
+    /** Convert a long position to the scaled int view
+     */
+    private int toView(long position) {
+        double range = (double)this.longMax - (double)this.longMin;
+        return (int)Math.round( ( (double)position - (double)this.longMin ) * VIEW_RESOLUTION / range );
+    }
+
+    /** Convert an int view position to the long range
+     */
+    private long toLong(int view) {
+        if( ! isViewScaled() ) return view;
+        double range = (double)this.longMax - (double)this.longMin;
+        return this.longMin + Math.round( view * range / VIEW_RESOLUTION );
+    }
+}
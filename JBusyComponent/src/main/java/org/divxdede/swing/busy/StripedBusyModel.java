@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * StripedBusyModel.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing.busy;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.swing.SwingUtilities;
+import org.divxdede.swing.AnimationClock;
+
+/**
+ * A BusyModel implementation designed to count units of work done by many concurrent workers.
+ * <p>
+ * Workers report their progression with {@link #increment()} or {@link #increment(long)}.
+ * Increments are accumulated in striped counters (cells) spread over distinct cache lines:
+ * a worker that collides with another one on a cell moves to another cell, so workers don't contend on a single counter.
+ * <p>
+ * The summed counter is published as the model value on the <code>Event Dispatch Thread</code> at a bounded rate
+ * using the shared {@link AnimationClock} (see {@link #setPublishDelay(int)}).<br>
+ * Whatever the number of workers and increments, listeners receive at most one change per publish delay.
+ * <p>
+ * Setting directly the value with {@link #setValue(int)} (or by the auto completion when the model become busy) define the counter.
+ * It can be done from any thread, even while workers increment the counter.
+ * <p>
+ * Exemple:
+ * <pre>
+ *          final StripedBusyModel model = new StripedBusyModel();
+ *          model.setDeterminate(true);
+ *          model.setAutoCompletionEnabled(true);
+ *          model.setMaximum( units );
+ *          model.setBusy(true);
+ *
+ *          // from each worker thread
+ *          doUnitOfWork();
+ *          model.increment();
+ * </pre>
+ *
+ * @author Andr Sbastien (divxdede)
+ * @since 1.2.4
+ */
+public class StripedBusyModel extends DefaultBusyModel {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Each cell use it's own cache line (8 longs = 64 bytes)
+     */
+    private static final int            PADDING       = 8;
+    private static final int            STRIPES       = stripes();
+    private static final int            DEFAULT_DELAY = 50;
+
+    private static final ThreadLocal<int[]> PROBE     = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            int probe = (int)( Thread.currentThread().getId() * 0x9E3779B9L );
+            return new int[]{ probe == 0 ? 1 : probe };
+        }
+    };
+
+    private final AtomicLongArray cells          = new AtomicLongArray( STRIPES * PADDING );
+    private final AtomicLong      base           = new AtomicLong(0L);
+    private final AtomicBoolean   publishPending = new AtomicBoolean(false);
+    private final ActionListener  publisher      = new Publisher();
+    private volatile int          publishDelay   = DEFAULT_DELAY;
+
+    /** Default constructor
+     */
+    public StripedBusyModel() {
+    }
+
+    /** Report one unit of work done.<br>
+     *  This method can be called from any thread.
+     */
+    public void increment() {
+        increment(1L);
+    }
+
+    /** Report some units of work done.<br>
+     *  This method can be called from any thread, the new value will be published later on the <code>Event Dispatch Thread</code>.
+     *  @param delta Number of units of work done
+     */
+    public void increment(final long delta) {
+        if( delta == 0L ) return;
+
+        int[] probe = PROBE.get();
+        int   index = ( probe[0] & ( STRIPES - 1 ) ) * PADDING;
+        long  value = this.cells.get( index );
+        if( ! this.cells.compareAndSet( index , value , value + delta ) ) {
+            /** Contention: move this thread on another cell for the next increments
+             */
+            int p = probe[0];
+            p ^= p << 13;
+            p ^= p >>> 17;
+            p ^= p << 5;
+            probe[0] = p;
+            this.cells.getAndAdd( ( p & ( STRIPES - 1 ) ) * PADDING , delta );
+        }
+        schedulePublish();
+    }
+
+    /** Return the exact count of units of work done.<br>
+     *  Unlike {@link #getValue()}, this count include increments not yet published.
+     *  @return count of units of work done
+     */
+    public long getCount() {
+        return this.base.get() + sumCells();
+    }
+
+    /** Define the minimum delay between two publications of the counter to the model value.
+     *  @param delay Delay in milliseconds
+     */
+    public void setPublishDelay(final int delay) {
+        this.publishDelay = Math.max( 1 , delay );
+    }
+
+    /** Return the minimum delay between two publications of the counter to the model value.
+     *  @return Delay in milliseconds
+     */
+    public int getPublishDelay() {
+        return this.publishDelay;
+    }
+
+    /** Define the value of this model.<br>
+     *  The counter is set to the new value: increments not yet published are discarded.<br>
+     *  Each concurrent increment is either discarded or counted on top of the new value, never partially.
+     */
+    @Override
+    public void setValue(final int n) {
+        rebase( Math.min( Math.max( (long)n , (long)getMinimum() ) , (long)getMaximum() - getExtent() ) );
+        super.setValue(n);
+
+        /** A publication running on the Event Dispatch Thread may have read the previous counter, publish again
+         */
+        if( ! SwingUtilities.isEventDispatchThread() ) schedulePublish();
+    }
+
+    /** Define the counter.<br>
+     *  Each cell is drained atomically: an increment done before the drain of it's cell is discarded, one done after is kept.
+     *  @param count New count
+     */
+    private void rebase(final long count) {
+        for(int i = 0 ; i < STRIPES ; i++ ) {
+            long drained = this.cells.getAndSet( i * PADDING , 0L );
+            if( drained != 0L ) this.base.addAndGet( drained );
+        }
+        this.base.set( count );
+    }
+
+    /** Return the sum of all cells
+     */
+    private long sumCells() {
+        long sum = 0L;
+        for(int i = 0 ; i < STRIPES ; i++ ) {
+            sum += this.cells.get( i * PADDING );
+        }
+        return sum;
+    }
+
+    /** Request a publication of the counter if none is pending
+     */
+    private void schedulePublish() {
+        if( ! this.publishPending.get() && this.publishPending.compareAndSet( false , true ) ) {
+            AnimationClock.getInstance().subscribe( this.publisher , this.publishDelay );
+        }
+    }
+
+    /** Publish the counter as the model value (on the Event Dispatch Thread).<br>
+     *  The value is set without defining the counter again.
+     */
+    private void publish() {
+        long count = getCount();
+        super.setValue( (int)Math.max( Integer.MIN_VALUE , Math.min( Integer.MAX_VALUE , count ) ) );
+    }
+
+    /** Return the number of cells: a power of two greater or equals than twice the processors count
+     */
+    private static int stripes() {
+        int wanted = Math.min( 64 , Runtime.getRuntime().availableProcessors() * 2 );
+        int result = 1;
+        while( result < wanted ) result <<= 1;
+        return result;
+    }
+
+    /** Listener receiving a pulse from the {@link AnimationClock} once per publish delay while increments are pending
+     */
+    private class Publisher implements ActionListener {
+
+        public void actionPerformed(ActionEvent e) {
+            /** Unsubscribe before reading the counter, increments done after will request a new publication
+             */
+            AnimationClock.getInstance().unsubscribe( this );
+            publishPending.set(false);
+            publish();
+        }
+    }
+}
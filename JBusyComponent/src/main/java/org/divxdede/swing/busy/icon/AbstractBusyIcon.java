@@ -23,10 +23,10 @@ import java.awt.Component;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.GraphicsConfiguration;
-import java.awt.GraphicsEnvironment;
-import java.awt.Transparency;
+import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.lang.ref.WeakReference;
 import java.util.Iterator;
@@ -36,9 +36,10 @@ import java.util.Observable;
 import java.util.Observer;
 
 import javax.swing.BoundedRangeModel;
-import javax.swing.Timer;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
+import org.divxdede.swing.AnimationClock;
+import org.divxdede.swing.VisibilityTracker;
 import org.divxdede.swing.busy.BusyIcon;
 import org.divxdede.swing.busy.BusyModel;
 
@@ -52,6 +53,8 @@ import org.divxdede.swing.busy.BusyModel;
  *   <li>Common implementation for storing either a simple {@link BoundedRangeModel} or a more featured {@link BusyModel}</li>
  *   <li>Buffer Image cache for optimize repaint's event from {@link BoundedRangeModel} changes : {@link #setUseCache(boolean)}, {@link #getSignificantRatioOffset()}</li>
  *   <li>Automatic frame rate mecanism for render undeterminate state animation : {@link #setUndeterminateFrameRate(int, int)}</li>
+ *   <li>Shared pre-rendered frames for undeterminate state animation : {@link #setUseFrameAtlas(boolean)}, {@link #getFrameAtlasKey()}</li>
+ *   <li>Buffer images shared between identical icons : {@link #setUseSharedCache(boolean)}, {@link SharedImageCache}</li>
  *   <li>Provide a {@link #repaint(boolean)} for subclasses uses when they needs to send a repaint event</li>
  *   <li>Extends {@link Observable} providing a delegate mecanism for repaint's event</li>
  * </ul>
@@ -74,15 +77,28 @@ import org.divxdede.swing.busy.BusyModel;
  * This basis implementation help us to prevent from various change from the {@link BoundedRangeModel}.
  * Theses models can have data range that can be large, and any minor change will fire a repaint event even if the change
  * don't be significant in the ui representation. That's why, you should implements the {@link #getSignificantRatioOffset()} accordingly
- * to your ui.
+ * to your ui.<br>
+ * The buffer image is rendered in the device pixels of the screen showing the component (HiDPI scale included)
+ * and is rebuilt when the component move to another screen.
  * <p>
- * When this busy icon is on an <code>undeterminate</code> state, an internal timer will fire repaint events periodically.<br>
+ * When this busy icon is on an <code>undeterminate</code> state, the shared {@link AnimationClock} will fire repaint events periodically.<br>
  * The {@link #paintUndeterminate(java.awt.Component, java.awt.Graphics, int, int, int)} method will be use for rendering this icon.<br>
- * The provided frame number is incremented each paint event and is cyclic accordingly to the configuration done by {@link #setUndeterminateFrameRate(int, int)}.<br>
+ * The provided frame number is derived from the elapsed time since the animation start and is cyclic accordingly to the configuration done by {@link #setUndeterminateFrameRate(int, int)}.<br>
+ * When the clock lower the frame rate because the <code>Event Dispatch Thread</code> is overloaded, frames are skipped and the animation keeps it's speed.<br>
  * This method should be used by subclasses in order to configure the undeterminate frame rate animation.
  * <p>
+ * The animation is suspended while none of the components painting this icon is visible by the user
+ * (hidden, iconified window or scrolled out of a viewport, see {@link VisibilityTracker}).<br>
+ * When a component become visible again, the animation resume directly on the frame matching the elapsed time since the animation start.
+ * <p>
+ * When the frame atlas is enabled with {@link #setUseFrameAtlas(boolean)}, each undeterminate frame is rendered only once
+ * in small chunks on the <code>Event Dispatch Thread</code> and shared between all icons having the same configuration (see {@link #getFrameAtlasKey()}).<br>
+ * Once theses frames are ready, an undeterminate paint is a simple image copy.
+ * Frame atlases are rendered at the default scale, they are not used on scaled (HiDPI) screens.
+ * <p>
  * A protected {@link #repaint(boolean)} method is provided for subclasses when they need to fire a repaint event.<br>
- * This method call a {@link Component#repaint()} on each components registered on this icon.<br>
+ * This method call a {@link Component#repaint(int, int, int, int)} on each components registered on this icon
+ * with the bounds where this icon was painted the last time.<br>
  * Registered components are all components specified to the {@link #paintIcon(java.awt.Component, java.awt.Graphics, int, int)}.<br>
  * In the other side, you can specify an {@link Observer} to this icon. If it's the case, components are not registered and only observer
  * will receive repaint's event.
@@ -98,28 +114,42 @@ public abstract class AbstractBusyIcon extends Observable implements BusyIcon {
      */
     private       BoundedRangeModel              model                  = null;
     private final ModelListener                  modelListener          = new ModelListener();
-    private final List<WeakReference<Component>> components             = new LinkedList<WeakReference<Component>>();
+    private final List<PaintedComponent>         components             = new LinkedList<PaintedComponent>();
 
     /** Buffer image cache members
      */
     private       BufferedImage                  cache                  = null;
+    private       GraphicsConfiguration          cacheConfiguration     = null;
     private       float                          lastRatio              = -1f;
     private       int                            lastStateFlag          = 0;
     private       boolean                        discarded              = false;
     private       boolean                        useCache               = true;
 
-    /** Undeterminate timer members
+    /** Undeterminate animation members
      */
     private       int                            undeterminateFrameRate = 0;
-    private       Timer                          undeterminateTimer     = null;
     private final ActionListener                 undeterminateListener  = new TimerListener();
     private       int                            frameCount             = 0;
     private       int                            frame                  = 0;
+    private       long                           animationStart         = 0L;
+    private       boolean                        animating              = false;
+    private final VisibilityTracker              visibility             = new VisibilityTracker( new VisibilityListener() );
+
+    /** Frame atlas members
+     */
+    private       boolean                        useFrameAtlas          = false;
+    private       FrameAtlas                     frameAtlas             = null;
+    private       boolean                        frameAtlasResolved     = false;
+
+    /** Shared image cache members
+     */
+    private       boolean                        useSharedCache         = false;
+    private       FrameAtlas.Key                 sharedCacheKey         = null;
+    private       boolean                        sharedCacheKeyResolved = false;
 
     /** Default constructor
      */
     public AbstractBusyIcon() {
-        this.undeterminateTimer = new Timer(0,this.undeterminateListener);
     }
 
     /** Paint this icon in a <code>determinate</code> state at the given ratio.
@@ -180,6 +210,27 @@ public abstract class AbstractBusyIcon extends Observable implements BusyIcon {
      */
     protected abstract float getSignificantRatioOffset();
 
+    /** Return all attributes that have an influence on the {@link #paintUndeterminate(java.awt.Component, java.awt.Graphics, int, int, int)} rendering.
+     *  <p>
+     *  Theses attributes (paints, decorated icon, insets...) are used with this icon class, size and frame count as the key of a shared frame atlas.<br>
+     *  Two icons returning equal keys must paint exactly the same undeterminate frames.<br>
+     *  When the {@link SharedImageCache} is used (see {@link #setUseSharedCache(boolean)}), theses attributes are also the key of the shared
+     *  idle and determinate images: they must cover every rendering of this icon.
+     *  Gradient paints and image icons are compared by value, other attributes use their own <code>equals</code> method.
+     *  <p>
+     *  Attributes mutated directly (by exemple a painter modified after being set) are not detected until the animation restart
+     *  or until a {@link #repaint(boolean)} is forced.
+     *  <p>
+     *  The default implementation return <code>null</code> meaning that this icon can't use a frame atlas.
+     *
+     *  @return Attributes of this icon rendering or <code>null</code> if the frame atlas is not supported
+     *  @see #setUseFrameAtlas(boolean)
+     *  @since 1.2.4
+     */
+    protected List<Object> getFrameAtlasKey() {
+        return null;
+    }
+
     /** Define the {@link BoundedRangeModel} used for render this icon progression.
      *  <p>
      *  If the BoundedRangeModel is a {@link BusyModel}, this icon will use
@@ -241,9 +292,18 @@ public abstract class AbstractBusyIcon extends Observable implements BusyIcon {
     protected void setUndeterminateFrameRate(int delay, int frameCount) {
         this.undeterminateFrameRate = delay;
         this.frameCount = frameCount;
+        discardFrameAtlas();
         refreshUndeterminateTimer();
     }
 
+    /** Return the number of frames of the undeterminate animation
+     *  @return number of frames of the undeterminate animation
+     *  @since 1.2.4
+     */
+    protected int getUndeterminateFrameCount() {
+        return this.frameCount;
+    }
+
     /** Paint this icon.
      *  <p>
      *  This method can use an image buffer for render quickly this icon if no significant change is available since the last paint process.<br>
@@ -259,26 +319,66 @@ public abstract class AbstractBusyIcon extends Observable implements BusyIcon {
      * @param y Upper left corner (vertical value)
      */
     public final void paintIcon(Component c, Graphics g, int x, int y) {
-       if( this.countObservers() == 0 )
-            register(c);
-       
+       if( this.visibility.track(c) ) {
+            refreshUndeterminateTimer();
+       }
+       if( this.countObservers() == 0 ) {
+            register(c,x,y);
+
+            /** Report our paint duration to the clock when we animate ourself the registered components
+             */
+            if( this.frame >= 0 && AnimationClock.getInstance().isSubscribed( this.undeterminateListener ) ) {
+                long start = System.nanoTime();
+                paintIconImpl(c, g, x, y);
+                AnimationClock.getInstance().reportPaintDuration( System.nanoTime() - start );
+                return;
+            }
+       }
+       paintIconImpl(c, g, x, y);
+    }
+
+    /** Paint implementation using the frame atlas or the buffer image cache when it's possible
+     */
+    private void paintIconImpl(Component c, Graphics g, int x, int y) {
        boolean isBusy      = isBusy();
        boolean determinate = isBusy && isDeterminate();
        float   ratio       = determinate ? getRatio() : 0f;
        int     nFrame      = frame < 0 ? 0 : frame;
 
+       /** Buffer images are rendered in the device pixels of the screen showing the component
+        */
+       GraphicsConfiguration gc     = c == null ? null : c.getGraphicsConfiguration();
+       AffineTransform       device = SharedImageCache.getDeviceTransform( gc );
+       boolean               scaled = device.getScaleX() != 1d || device.getScaleY() != 1d;
+
+       if( isBusy && !determinate && !scaled ) {
+           FrameAtlas atlas = getFrameAtlas();
+           if( atlas != null && atlas.isReady() ) {
+               g.drawImage( atlas.getFrame( nFrame % atlas.getFrameCount() ) , x , y , c );
+               discarded = true; // the buffer image was not updated
+               return;
+           }
+       }
+
+       FrameAtlas.Key sharedKey = getSharedCacheKey();
+       if( sharedKey != null && ( !determinate || getSignificantRatioOffset() > 0f ) ) {
+           paintShared( sharedKey , c , g , x , y , gc , device , isBusy , determinate , ratio , nFrame );
+           return;
+       }
+
+       BufferedImage offscreenImage = this.getCache( gc , device );
        if( !isCacheUpToDate(isBusy,determinate,ratio) ) {
             if( useCache() ) {
-                BufferedImage offscreenImage = this.getCache();
                 Graphics2D    offscreen      = offscreenImage.createGraphics();
 
                 offscreen.setComposite(AlphaComposite.Clear);
-                offscreen.fillRect( 0 , 0 , getIconWidth() , getIconHeight() );
+                offscreen.fillRect( 0 , 0 , offscreenImage.getWidth() , offscreenImage.getHeight() );
                 offscreen.setPaintMode();
+                offscreen.scale( device.getScaleX() , device.getScaleY() );
 
                 if( isBusy ) {
                     if( determinate ) paintDeterminate(c,offscreen,0,0,ratio);
-                    else              paintUndeterminate(c,offscreen,0,0,nFrame);
+                    else              paintUndeterminateFrame(c,offscreen,0,0,nFrame);
                 }
                 else {
                     paintIdle(c,offscreen,0,0);
@@ -291,7 +391,7 @@ public abstract class AbstractBusyIcon extends Observable implements BusyIcon {
                 // direct paint
                 if( isBusy ) {
                     if( determinate ) paintDeterminate(c,g,x,y,ratio);
-                    else              paintUndeterminate(c, g, x, y, nFrame);
+                    else              paintUndeterminateFrame(c, g, x, y, nFrame);
                 }
                 else {
                     paintIdle(c, g , x , y);
@@ -302,8 +402,20 @@ public abstract class AbstractBusyIcon extends Observable implements BusyIcon {
                 return;
             }
         }
-        BufferedImage offscreenImage = this.getCache();
-        g.drawImage( offscreenImage, x , y , c);
+        drawImage( g , offscreenImage , x , y , c );
+    }
+
+    /** Draw a buffer image rendered in device pixels at this icon size
+     */
+    private void drawImage(Graphics g , BufferedImage image , int x , int y , Component c) {
+        int width  = getIconWidth();
+        int height = getIconHeight();
+        if( image.getWidth() == width && image.getHeight() == height ) {
+            g.drawImage( image , x , y , c );
+        }
+        else {
+            g.drawImage( image , x , y , x + width , y + height , 0 , 0 , image.getWidth() , image.getHeight() , c );
+        }
     }
 
     /** Indicate if this icon is able to use a buffer image for painting code when the context allow it.
@@ -326,13 +438,127 @@ public abstract class AbstractBusyIcon extends Observable implements BusyIcon {
             repaint(true);
     }
 
+    /** Paint this icon using an image from the {@link SharedImageCache}, rendering it if it's not already cached.<br>
+     *  Determinate progressions are quantized by steps of {@link #getSignificantRatioOffset()}.
+     */
+    private void paintShared(FrameAtlas.Key sharedKey , Component c , Graphics g , int x , int y , GraphicsConfiguration gc , AffineTransform device ,
+                             boolean isBusy , boolean determinate , float ratio , int nFrame) {
+        int                   kind    = SharedImageCache.IDLE;
+        int                   index   = 0;
+        float                 painted = 0f;
+
+        if( isBusy && determinate ) {
+            float step = getSignificantRatioOffset();
+            kind    = SharedImageCache.DETERMINATE;
+            index   = (int)Math.floor( ratio / step + 0.0001f );
+            painted = Math.min( 1f , index * step );
+        }
+        else if( isBusy ) {
+            kind    = SharedImageCache.UNDETERMINATE;
+            index   = this.frameCount > 0 ? nFrame % this.frameCount : nFrame;
+        }
+
+        SharedImageCache.Key key   = new SharedImageCache.Key( sharedKey , gc , device.getScaleX() , device.getScaleY() , kind , index );
+        BufferedImage        image = SharedImageCache.get( key );
+        if( image == null ) {
+            image = SharedImageCache.createImage( gc , SharedImageCache.toDevice( getIconWidth()  , device.getScaleX() ) ,
+                                                       SharedImageCache.toDevice( getIconHeight() , device.getScaleY() ) );
+            Graphics2D offscreen = image.createGraphics();
+            try {
+                offscreen.scale( device.getScaleX() , device.getScaleY() );
+                if( kind == SharedImageCache.DETERMINATE )        paintDeterminate(c,offscreen,0,0,painted);
+                else if( kind == SharedImageCache.UNDETERMINATE ) paintUndeterminateFrame(c,offscreen,0,0,index);
+                else                                              paintIdle(c,offscreen,0,0);
+            }
+            finally {
+                offscreen.dispose();
+            }
+            image = SharedImageCache.put( key , image );
+        }
+        drawImage( g , image , x , y , c );
+
+        lastRatio     = ratio;
+        lastStateFlag = getStateFlag(isBusy, determinate);
+        discarded     = false;
+    }
+
+    /** Indicate if this icon use the {@link SharedImageCache} instead of it's own buffer image.
+     *  @return <code>true</code> if this icon use the shared image cache
+     *  @see #setUseSharedCache(boolean)
+     *  @since 1.2.4
+     */
+    public synchronized boolean useSharedCache() {
+        return this.useSharedCache;
+    }
+
+    /** Define if this icon should use the {@link SharedImageCache} instead of it's own buffer image.
+     *  <p>
+     *  When enabled, this icon don't allocate any buffer image: rendered images are shared between every icons having the same configuration
+     *  (see {@link #getFrameAtlasKey()}), which save a lot of memory when the same icon is painted in many places (by exemple in a table).<br>
+     *  Determinate progressions are rendered by steps of {@link #getSignificantRatioOffset()} so they can be shared too.
+     *  <p>
+     *  This is effective only if this icon provide a {@link #getFrameAtlasKey()}, otherwise this icon use it's own buffer image as usual.
+     *
+     *  @param enable <code>true</code> for use the shared image cache, <code>false</code> otherwise
+     *  @since 1.2.4
+     */
+    public void setUseSharedCache(boolean enable) {
+        boolean oldValue = useSharedCache();
+        synchronized(this) {
+            this.useSharedCache = enable;
+            if( enable ) {
+                this.cache              = null;
+                this.cacheConfiguration = null;
+            }
+        }
+        if( oldValue != useSharedCache() )
+            repaint(true);
+    }
+
+    /** Indicate if this icon use a shared frame atlas for render it's undeterminate animation.
+     *  @return <code>true</code> if this icon use a frame atlas
+     *  @see #setUseFrameAtlas(boolean)
+     *  @since 1.2.4
+     */
+    public synchronized boolean useFrameAtlas() {
+        return this.useFrameAtlas;
+    }
+
+    /** Define if this icon should use a shared frame atlas for render it's undeterminate animation.
+     *  <p>
+     *  When enabled, all undeterminate frames are rendered once (in small chunks on the <code>Event Dispatch Thread</code>) and shared between
+     *  every icons having the same configuration. Until theses frames are ready, this icon paint itself as usual.<br>
+     *  This is effective only if this icon provide a {@link #getFrameAtlasKey()}.
+     *
+     *  @param enable <code>true</code> for enable the frame atlas, <code>false</code> otherwise
+     *  @since 1.2.4
+     */
+    public void setUseFrameAtlas(boolean enable) {
+        boolean oldValue = useFrameAtlas();
+        synchronized(this) {
+            this.useFrameAtlas = enable;
+        }
+        if( oldValue != useFrameAtlas() )
+            repaint(true);
+    }
+
     /** Request a paint update on any components that are previously painted this icon.
      *  <p>
      *  This method check the buffer-image up to date and if it's the case, the repaint will be ignored unless the <code>force</code> attribute is at <code>true</code>.
      *
+     *  <p>
+     *  A forced repaint also discard the frame atlas of this icon since it's configuration may have changed.
+     *
      *  @param force <code>true</code> for serve a repaint in all cases.
      */
     protected synchronized void repaint(boolean force) {
+        if( force ) discardFrameAtlas();
+        repaintImpl(force);
+    }
+
+    /** Repaint implementation keeping the current frame atlas
+     */
+    private synchronized void repaintImpl(boolean force) {
         if( !force ) {
             if( isCacheUpToDate( isBusy() , isDeterminate()  , getRatio() ) )
                 return; // repaint request ignored
@@ -341,16 +567,16 @@ public abstract class AbstractBusyIcon extends Observable implements BusyIcon {
             this.discarded = true;
         }
 
-        Iterator<WeakReference<Component>> i = components.iterator();
+        Iterator<PaintedComponent> i = components.iterator();
         while( i.hasNext() ) {
-            WeakReference<Component> ref = i.next();
+            PaintedComponent ref = i.next();
             Component comp = ref.get();
             if( comp == null ) {
                 i.remove();
             }
             else {
                 if( comp.isShowing() ) {
-                    comp.repaint();
+                    ref.repaint(comp);
                 }
                 else {
                     // we wan remove it, when this component will become visible again,
@@ -366,6 +592,50 @@ public abstract class AbstractBusyIcon extends Observable implements BusyIcon {
         this.notifyObservers();
     }
 
+    /** Paint an undeterminate frame.<br>
+     *  Painting is done under this icon lock since the frame atlas may render this icon at the same time.
+     */
+    private void paintUndeterminateFrame(Component c , Graphics g , int x , int y , int frame) {
+        synchronized(this) {
+            paintUndeterminate(c, g, x, y, frame);
+        }
+    }
+
+    /** Return the frame atlas matching the current configuration of this icon.
+     *  @return Frame atlas of this icon or <code>null</code> if this icon don't use a frame atlas
+     */
+    private synchronized FrameAtlas getFrameAtlas() {
+        if( !this.useFrameAtlas ) return null;
+        if( !this.frameAtlasResolved ) {
+            this.frameAtlasResolved = true;
+            List<Object> parts = this.frameCount > 0 && getIconWidth() > 0 && getIconHeight() > 0 ? getFrameAtlasKey() : null;
+            this.frameAtlas = parts == null ? null : FrameAtlas.getFrameAtlas( this , parts );
+        }
+        return this.frameAtlas;
+    }
+
+    /** Return the configuration key of this icon in the shared image cache.
+     *  @return Configuration key or <code>null</code> if this icon don't use the shared image cache
+     */
+    private synchronized FrameAtlas.Key getSharedCacheKey() {
+        if( !this.useSharedCache ) return null;
+        if( !this.sharedCacheKeyResolved ) {
+            this.sharedCacheKeyResolved = true;
+            List<Object> parts = getIconWidth() > 0 && getIconHeight() > 0 ? getFrameAtlasKey() : null;
+            this.sharedCacheKey = parts == null ? null : FrameAtlas.createKey( this , parts );
+        }
+        return this.sharedCacheKey;
+    }
+
+    /** Discard the current frame atlas and shared cache key, they will be resolved again at the next paint
+     */
+    private synchronized void discardFrameAtlas() {
+        this.frameAtlas             = null;
+        this.frameAtlasResolved     = false;
+        this.sharedCacheKey         = null;
+        this.sharedCacheKeyResolved = false;
+    }
+
     /** Return the underlying BusyModel if the model is instanceof of BusyModel.<br>
      *  return <code>null</code> otherwhise
      */
@@ -392,15 +662,22 @@ public abstract class AbstractBusyIcon extends Observable implements BusyIcon {
         }
     }
 
-    /** Create/Update or return the buffer image used as a cache
+    /** Create/Update or return the buffer image used as a cache.<br>
+     *  The buffer image is rebuilt (and discarded) when the component move to a screen with another graphics configuration or scale.
+     *
+     *  @param gc Graphics configuration of the component painting this icon (may be <code>null</code>)
+     *  @param device Device transform of this graphics configuration
      */
-    private synchronized BufferedImage getCache() {
+    private synchronized BufferedImage getCache(GraphicsConfiguration gc , AffineTransform device) {
         if( !useCache() )
             return null;
 
-        if( this.cache == null || this.cache.getWidth() != getIconWidth() || this.cache.getHeight() != getIconHeight() ) {
-             GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
-             this.cache = gc.createCompatibleImage( getIconWidth() , getIconHeight() , Transparency.TRANSLUCENT );
+        int width  = SharedImageCache.toDevice( getIconWidth()  , device.getScaleX() );
+        int height = SharedImageCache.toDevice( getIconHeight() , device.getScaleY() );
+        if( this.cache == null || this.cache.getWidth() != width || this.cache.getHeight() != height || this.cacheConfiguration != gc ) {
+             this.cache              = SharedImageCache.createImage( gc , width , height );
+             this.cacheConfiguration = gc;
+             this.discarded          = true;
         }
         return this.cache;
     }
@@ -446,41 +723,81 @@ public abstract class AbstractBusyIcon extends Observable implements BusyIcon {
         return (isBusy ? 1 : 0) + (isDeterminate ? 2 : 0 );
     }
 
-    /** Register the component for be able to fire repaint event
+    /** Register the component and where this icon is painted for be able to fire repaint event
      */
-    private synchronized void register(Component c) {
-        Iterator<WeakReference<Component>> i = components.iterator();
+    private synchronized void register(Component c , int x , int y) {
+        Iterator<PaintedComponent> i = components.iterator();
         while( i.hasNext() ) {
-            WeakReference<Component> ref = i.next();
+            PaintedComponent ref = i.next();
             Component comp = ref.get();
             if( comp == null ) i.remove();
-            if( comp == c ) return;
+            if( comp == c ) {
+                ref.painted( x , y , getIconWidth() , getIconHeight() );
+                return;
+            }
         }
-        components.add( new WeakReference<Component>(c) );
+        PaintedComponent ref = new PaintedComponent(c);
+        ref.painted( x , y , getIconWidth() , getIconHeight() );
+        components.add( ref );
     }
 
-    /** Unable to start/stop timer for paint undeterminate state
-     *  @return <code>true</code> if the timer was changed
+    /** Subscribe/Unsubscribe to the {@link AnimationClock} for paint undeterminate state.<br>
+     *  A running animation is suspended (unsubscribed) while no component painting this icon is visible.
+     *  On resume, the frame matching the current time is shown directly.
+     *
+     *  @return <code>true</code> if the animation was started or stopped
      */
-    private boolean refreshUndeterminateTimer() {
-        boolean timerEnabled = isBusy() && !isDeterminate() && this.undeterminateFrameRate > 0;
+    private synchronized boolean refreshUndeterminateTimer() {
+        AnimationClock clock        = AnimationClock.getInstance();
+        boolean        timerEnabled = isBusy() && !isDeterminate() && this.undeterminateFrameRate > 0;
         if( timerEnabled ) {
-            this.undeterminateTimer.setDelay( this.undeterminateFrameRate );
-            if( ! this.undeterminateTimer.isRunning() ) {
-                this.frame = -1;
-                this.undeterminateTimer.start();
-                return true;
+            boolean started = !this.animating;
+            if( started ) {
+                this.animating      = true;
+                this.frame          = -1;
+                this.animationStart = System.currentTimeMillis();
             }
-        }
-        else {
-            if( this.undeterminateTimer.isRunning() ) {
-                this.undeterminateTimer.stop();
-                return true;
+            if( isShown() ) {
+                boolean resumed = !started && !clock.isSubscribed( this.undeterminateListener );
+                clock.subscribe( this.undeterminateListener , this.undeterminateFrameRate );
+                if( resumed ) showFrame( System.currentTimeMillis() );
             }
+            else {
+                clock.unsubscribe( this.undeterminateListener );
+            }
+            return started;
+        }
+        else if( this.animating ) {
+            this.animating = false;
+            clock.unsubscribe( this.undeterminateListener );
+            return true;
         }
         return false;
     }
 
+    /** Indicate if this icon may be seen by the user.<br>
+     *  An icon not yet painted on any trackable component is considered as shown.
+     */
+    private boolean isShown() {
+        return this.visibility.isEmpty() || this.visibility.isVisible();
+    }
+
+    /** Show the undeterminate frame matching the specified time.<br>
+     *  Frames are derived from the elapsed time since the animation start, so frames are skipped when pulses are delayed.
+     */
+    private synchronized void showFrame(long when) {
+        int rate  = this.undeterminateFrameRate;
+        int count = this.frameCount;
+        if( rate <= 0 || count <= 0 ) return;
+
+        int next = (int)( Math.round( (double)( when - this.animationStart ) / (double)rate ) % count );
+        if( next < 0 ) next = 0;
+        if( next == this.frame ) return; // pulse in advance, nothing to paint
+
+        this.frame = next;
+        repaintImpl(true);
+    }
+
     /** Private implementation of ChangeLister performing a repaint
      */
     private class ModelListener implements ChangeListener {
@@ -501,12 +818,56 @@ public abstract class AbstractBusyIcon extends Observable implements BusyIcon {
         }
     }
 
+    /** Component registered on this icon with the bounds where this icon was painted.<br>
+     *  Theses bounds are the union of all paints done since the last repaint request,
+     *  so a component painting this icon many times is fully repainted.
+     */
+    private static class PaintedComponent extends WeakReference<Component> {
+
+        private final Rectangle bounds    = new Rectangle();
+        private       boolean   requested = true;
+
+        private PaintedComponent(Component c) {
+            super(c);
+        }
+
+        /** This icon was painted on the component at the specified bounds
+         */
+        private void painted(int x , int y , int width , int height) {
+            if( this.requested ) {
+                this.bounds.setBounds( x , y , width , height );
+                this.requested = false;
+            }
+            else {
+                this.bounds.add( x , y );
+                this.bounds.add( x + width , y + height );
+            }
+        }
+
+        /** Request a repaint of the bounds where this icon was painted
+         */
+        private void repaint(Component c) {
+            c.repaint( this.bounds.x , this.bounds.y , this.bounds.width , this.bounds.height );
+            this.requested = true;
+        }
+    }
+
+    /** Listener receiving pulses from the {@link AnimationClock}.<br>
+     *  The frame is computed from the pulse time, so frames are skipped when pulses are delayed.
+     */
     private class TimerListener implements ActionListener {
 
         public void actionPerformed(ActionEvent e) {
-            frame++;
-            if( frame >= frameCount ) frame = 0;
-            repaint(true);
+            showFrame( e.getWhen() );
+        }
+    }
+
+    /** Listener suspending or resuming the animation when the components painting this icon are hidden or shown
+     */
+    private class VisibilityListener implements ChangeListener {
+
+        public void stateChanged(ChangeEvent e) {
+            refreshUndeterminateTimer();
         }
     }
 }
\ No newline at end of file
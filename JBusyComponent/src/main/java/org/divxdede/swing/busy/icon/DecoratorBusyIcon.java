@@ -22,13 +22,15 @@ import java.awt.AlphaComposite;
 import java.awt.Component;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.GraphicsConfiguration;
-import java.awt.GraphicsEnvironment;
 import java.awt.Image;
 import java.awt.Insets;
-import java.awt.Transparency;
+import java.awt.MediaTracker;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.awt.image.ImageObserver;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Observable;
 import java.util.Observer;
 import javax.swing.Icon;
@@ -59,10 +61,13 @@ import org.divxdede.swing.busy.BusyIcon;
  */
 public abstract class DecoratorBusyIcon extends AbstractBusyIcon {
 
-    private Icon           icon          = null;
-    private BufferedImage  iconFrame     = null;
-    private FrameObserver  frameObserver = new FrameObserver();
-    private Insets         insets        = null;
+    private Icon           icon              = null;
+    private BufferedImage  iconFrame         = null;
+    private boolean        sharedFrame       = false;
+    private FrameAtlas.Key sharedFrameConfig = null;
+    private FrameObserver  frameObserver     = new FrameObserver();
+    private Insets         insets            = null;
+    private boolean        animated          = false;
 
     /** Default constructor
      *  @param icon Decorated icon to set
@@ -108,19 +113,30 @@ public abstract class DecoratorBusyIcon extends AbstractBusyIcon {
             ((Observable)this.icon).deleteObserver(this.frameObserver);
         }
 
-        this.icon = icon;
-        this.iconFrame = null;
+        this.icon              = icon;
+        this.iconFrame         = null;
+        this.sharedFrame       = false;
+        this.sharedFrameConfig = null;
+        this.animated          = false;
 
         if( this.icon != null ) {
-             GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
-             this.iconFrame = gc.createCompatibleImage( this.icon.getIconWidth() , this.icon.getIconHeight() , Transparency.TRANSLUCENT );
-
              if( this.icon instanceof ImageIcon ) {
                 ((ImageIcon)this.icon).setImageObserver( this.frameObserver );
              }
              if( this.icon instanceof Observable ) {
                  ((Observable)this.icon).addObserver( this.frameObserver );
              }
+
+             /** A static icon frame is shared with all decorators of the same icon
+              */
+             BufferedImage frame = getSharedFrame( 1d , 1d );
+             if( frame != null ) {
+                 this.iconFrame   = frame;
+                 this.sharedFrame = true;
+                 repaint(true);
+                 return;
+             }
+             this.iconFrame = SharedImageCache.createImage( null , this.icon.getIconWidth() , this.icon.getIconHeight() );
         }
         doIconFrameUpdate(null);
     }
@@ -166,10 +182,36 @@ public abstract class DecoratorBusyIcon extends AbstractBusyIcon {
                 x = margins.left;
                 y = margins.top;
             }
+
+            /** On a scaled (HiDPI) graphics, a static icon is rendered again in device pixels instead of upscaling our frame
+             */
+            AffineTransform transform = g instanceof Graphics2D ? ((Graphics2D)g).getTransform() : null;
+            if( transform != null && ( transform.getScaleX() != 1d || transform.getScaleY() != 1d ) && !this.animated ) {
+                BufferedImage frame = getSharedFrame( transform.getScaleX() , transform.getScaleY() );
+                if( frame != null ) {
+                    g.drawImage( frame , x , y , x + this.icon.getIconWidth() , y + this.icon.getIconHeight() , 0 , 0 , frame.getWidth() , frame.getHeight() , null );
+                    return;
+                }
+            }
             g.drawImage( this.iconFrame , x  , y , null );
         }
     }
 
+    /** Return the decorated icon and the insets as frame atlas attributes.<br>
+     *  An animated decorated icon (animated image or observable icon) can't be pre-rendered, in this case this method return <code>null</code>.
+     *
+     *  @return Attributes of this icon rendering or <code>null</code> if the frame atlas is not supported
+     */
+    @Override
+    protected synchronized List<Object> getFrameAtlasKey() {
+        if( this.icon == null || this.animated || this.icon instanceof Observable ) return null;
+
+        List<Object> key = new ArrayList<Object>();
+        key.add( this.icon );
+        key.add( getInsets() );
+        return key;
+    }
+
     /** Return the width of this <code>DecoratorBusyIcon</code>.<br>
      *  Width = <code>decorated icon width + insets.left + insets.right</code>
      * @return Width of this icon
@@ -206,6 +248,11 @@ public abstract class DecoratorBusyIcon extends AbstractBusyIcon {
      * @param image Image containing the new frame. If this image is <code>null</code>, we take directly the icon for refresh our buffered image
      */
     private synchronized void doIconFrameUpdate(Image image) {
+        if( this.sharedFrame ) {
+            // the decorated icon changed after all, stop sharing our frame (copy on write)
+            this.iconFrame   = SharedImageCache.createImage( null , this.icon.getIconWidth() , this.icon.getIconHeight() );
+            this.sharedFrame = false;
+        }
         if( iconFrame != null ) {
             Graphics2D g = (Graphics2D)iconFrame.createGraphics();
             try {
@@ -227,6 +274,48 @@ public abstract class DecoratorBusyIcon extends AbstractBusyIcon {
         repaint(true);
     }
     
+    /** Return the decorated icon frame rendered at the specified device scale from the shared image cache.<br>
+     *  Only icons that can't change are shared: fully loaded image icons and non observable icons.
+     *
+     *  @param scaleX Horizontal device scale
+     *  @param scaleY Vertical device scale
+     *  @return Shared icon frame or <code>null</code> if it can't be shared
+     */
+    private synchronized BufferedImage getSharedFrame(double scaleX , double scaleY) {
+        if( this.icon instanceof Observable ) return null;
+        if( this.icon instanceof ImageIcon && ((ImageIcon)this.icon).getImageLoadStatus() != MediaTracker.COMPLETE ) return null;
+        if( this.icon.getIconWidth() <= 0 || this.icon.getIconHeight() <= 0 ) return null;
+
+        if( this.sharedFrameConfig == null ) {
+            List<Object> parts = new ArrayList<Object>( 1 );
+            parts.add( this.icon );
+            this.sharedFrameConfig = new FrameAtlas.Key( DecoratorBusyIcon.class , this.icon.getIconWidth() , this.icon.getIconHeight() , 0 , parts );
+        }
+        SharedImageCache.Key key   = new SharedImageCache.Key( this.sharedFrameConfig , null , scaleX , scaleY , SharedImageCache.DECORATED , 0 );
+        BufferedImage        frame = SharedImageCache.get( key );
+        if( frame == null ) {
+            frame = SharedImageCache.createImage( null , SharedImageCache.toDevice( this.icon.getIconWidth()  , scaleX ) ,
+                                                        SharedImageCache.toDevice( this.icon.getIconHeight() , scaleY ) );
+            Graphics2D g = frame.createGraphics();
+            try {
+                g.setRenderingHint( RenderingHints.KEY_INTERPOLATION , RenderingHints.VALUE_INTERPOLATION_BICUBIC );
+                g.scale( scaleX , scaleY );
+                this.icon.paintIcon( null , g , 0 , 0 );
+            }
+            finally {
+                g.dispose();
+            }
+            frame = SharedImageCache.put( key , frame );
+        }
+        return frame;
+    }
+
+    /** The decorated icon is animated, it can't be pre-rendered anymore
+     */
+    private synchronized void setAnimated() {
+        this.animated = true;
+    }
+
     /** Listener responsible to fire repaint event each time
      *  a new frame should be painted from the decorated icon
      */
@@ -234,6 +323,7 @@ public abstract class DecoratorBusyIcon extends AbstractBusyIcon {
 
         public boolean imageUpdate(Image img, int infoflags, int x, int y, int width, int height) {
             if( (infoflags & (FRAMEBITS|ALLBITS) ) != 0) {
+                if( (infoflags & FRAMEBITS) != 0 ) setAnimated();
                 doIconFrameUpdate(img);
             }
             return (infoflags & (ALLBITS|ABORT)) == 0;
@@ -27,6 +27,7 @@ import java.awt.LinearGradientPaint;
 import java.awt.Paint;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
+import java.util.List;
 import javax.swing.Icon;
 import javax.swing.UIManager;
 import org.divxdede.swing.ColorUtilities;
@@ -86,6 +87,7 @@ public class DefaultBusyIcon extends DecoratorBusyIcon {
      */
     private boolean   backgroundPainted = true;
     private Painter   backgroundPainter = null;
+    private Color     defaultBackground = null;
 
     private Paint     barBackground = null;
     private Paint     barForeground = null;
@@ -318,6 +320,7 @@ public class DefaultBusyIcon extends DecoratorBusyIcon {
     public void setBackgroundPainter(Painter painter) {
         Painter old = getBackgroundPainter();
         this.backgroundPainter = painter;
+        this.defaultBackground = null;
         if( old != getBackgroundPainter() ) repaint(true);
     }
 
@@ -415,6 +418,7 @@ public class DefaultBusyIcon extends DecoratorBusyIcon {
         Painter filler   = new RectanglePainter( new Insets(0,0,0,0) , getIconWidth() , getIconHeight() , getIconWidth() / 4 , getIconHeight() / 4 , true , gradient  , 1.0f , colorB );
 
         setBackgroundPainter(filler);
+        this.defaultBackground = color;
     }
 
     /** Install default colors for the progress bar.<br>
@@ -448,6 +452,24 @@ public class DefaultBusyIcon extends DecoratorBusyIcon {
         setProgressBarBounds( new Rectangle( barX , barY , barWidth , barHeight ) );
     }
 
+    /** Add the background and progress bar attributes to the decorated icon attributes.<br>
+     *  A default background painter is identified by it's color, any other painter by itself.
+     */
+    @Override
+    protected synchronized List<Object> getFrameAtlasKey() {
+        List<Object> key = super.getFrameAtlasKey();
+        if( key != null ) {
+            key.add( isBackgroundPainted() );
+            if( isBackgroundPainted() ) {
+                key.add( this.defaultBackground != null ? this.defaultBackground : getBackgroundPainter() );
+            }
+            key.add( new Rectangle( getProgressBarBounds() ) );
+            key.add( getProgressBarBackground() );
+            key.add( getProgressBarForeground() );
+        }
+        return key;
+    }
+
     /** Paint the background using the {@link Painter}
      */
     protected void paintBackground(Component c, Graphics g) {
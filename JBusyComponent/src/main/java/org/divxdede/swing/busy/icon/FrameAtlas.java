@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * FrameAtlas.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing.busy.icon;
+
+import java.awt.Graphics2D;
+import java.awt.LinearGradientPaint;
+import java.awt.MultipleGradientPaint;
+import java.awt.RadialGradientPaint;
+import java.awt.image.BufferedImage;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import javax.swing.ImageIcon;
+import javax.swing.SwingUtilities;
+
+/**
+ * Pre-rendered sequence of the <code>undeterminate</code> frames of an {@link AbstractBusyIcon}.
+ * <p>
+ * An atlas is identified by a {@link Key} built from the icon class, it's size, it's frame count and
+ * the configuration parts returned by {@link AbstractBusyIcon#getFrameAtlasKey()} (paints, decorated icon, ...).<br>
+ * All icons sharing the same key share the same atlas, so each distinct frame sequence is rendered only once.
+ * <p>
+ * Frames are rendered into premultiplied images on the <code>Event Dispatch Thread</code>, since painters are not thread safe,
+ * a few frames at a time so the user interface stay responsive.
+ * Until the atlas {@link #isReady() is ready}, icons keep painting their frames themselves.
+ * <p>
+ * Atlases are softly referenced and can be reclaimed by the garbage collector when no icon use them anymore.
+ *
+ * @author Andr Sbastien (divxdede)
+ * @since 1.2.4
+ */
+final class FrameAtlas {
+
+    /** Maximum duration (in nanoseconds) of a rendering chunk on the Event Dispatch Thread
+     */
+    private static final long                               CHUNK_DURATION = 4000000L;
+    private static final Map<Key,SoftReference<FrameAtlas>> ATLASES        = new HashMap<Key,SoftReference<FrameAtlas>>();
+
+    private final    Key             key;
+    private final    BufferedImage[] frames;
+    private          int             rendered = 0;
+    private volatile boolean         ready    = false;
+
+    /** Private constructor, use {@link #getFrameAtlas(AbstractBusyIcon, List)}
+     */
+    private FrameAtlas(Key key) {
+        this.key    = key;
+        this.frames = new BufferedImage[ key.frameCount ];
+    }
+
+    /** Retrieve the atlas matching the configuration of the specified icon.<br>
+     *  If no such atlas exists, it is created and it's rendering is scheduled on the <code>Event Dispatch Thread</code> using the specified icon.
+     *
+     *  @param icon Icon requesting the atlas
+     *  @param parts Configuration parts of this icon
+     *  @return Atlas of this icon configuration (may be not yet ready)
+     */
+    static FrameAtlas getFrameAtlas(final AbstractBusyIcon icon , List<Object> parts) {
+        Key key = createKey( icon , parts );
+        synchronized( ATLASES ) {
+            SoftReference<FrameAtlas> ref   = ATLASES.get(key);
+            FrameAtlas                atlas = ref == null ? null : ref.get();
+            if( atlas == null ) {
+                purge();
+                atlas = new FrameAtlas(key);
+                ATLASES.put( key , new SoftReference<FrameAtlas>(atlas) );
+
+                atlas.scheduleRender( icon );
+            }
+            return atlas;
+        }
+    }
+
+    /** Indicate if all frames of this atlas are rendered
+     *  @return <code>true</code> if this atlas can be used for painting
+     */
+    boolean isReady() {
+        return this.ready;
+    }
+
+    /** Return the number of frames of this atlas
+     *  @return number of frames
+     */
+    int getFrameCount() {
+        return this.frames.length;
+    }
+
+    /** Return a rendered frame. This atlas must be ready.
+     *  @param frame Frame number
+     *  @return Rendered frame
+     */
+    BufferedImage getFrame(int frame) {
+        return this.frames[frame];
+    }
+
+    /** Schedule the rendering of the next frames on the Event Dispatch Thread
+     */
+    private void scheduleRender(final AbstractBusyIcon icon) {
+        SwingUtilities.invokeLater( new Runnable() {
+            public void run() {
+                render(icon);
+            }
+        });
+    }
+
+    /** Render the next frames using the specified icon, during at most {@link #CHUNK_DURATION}, and schedule the following ones.<br>
+     *  If the icon configuration has changed during the rendering, this atlas is discarded and never become ready.
+     */
+    private void render(AbstractBusyIcon icon) {
+        try {
+            long start = System.nanoTime();
+            while( this.rendered < this.frames.length ) {
+                if( this.rendered > 0 && System.nanoTime() - start >= CHUNK_DURATION ) {
+                    scheduleRender( icon );
+                    return;
+                }
+                int           i     = this.rendered++;
+                BufferedImage image = new BufferedImage( this.key.width , this.key.height , BufferedImage.TYPE_INT_ARGB_PRE );
+                Graphics2D    g2d   = image.createGraphics();
+                try {
+                    synchronized( icon ) {
+                        icon.paintUndeterminate( null , g2d , 0 , 0 , i );
+                    }
+                }
+                finally {
+                    g2d.dispose();
+                }
+                this.frames[i] = image;
+            }
+
+            Key current = null;
+            synchronized( icon ) {
+                List<Object> parts = icon.getFrameAtlasKey();
+                if( parts != null ) current = createKey( icon , parts );
+            }
+            if( !this.key.equals(current) ) {
+                synchronized( ATLASES ) {
+                    SoftReference<FrameAtlas> ref = ATLASES.get(this.key);
+                    if( ref != null && ref.get() == this ) ATLASES.remove(this.key);
+                }
+                return;
+            }
+            this.ready = true;
+        }
+        catch(RuntimeException e) {
+            // this configuration can't be rendered outside a component, icons will keep painting themselves
+        }
+    }
+
+    /** Create the key of an icon configuration
+     */
+    static Key createKey(AbstractBusyIcon icon , List<Object> parts) {
+        return new Key( icon.getClass() , icon.getIconWidth() , icon.getIconHeight() , icon.getUndeterminateFrameCount() , parts );
+    }
+
+    /** Remove atlases reclaimed by the garbage collector
+     */
+    private static void purge() {
+        Iterator<SoftReference<FrameAtlas>> i = ATLASES.values().iterator();
+        while( i.hasNext() ) {
+            if( i.next().get() == null ) i.remove();
+        }
+    }
+
+    /** Key of an atlas.<br>
+     *  Configuration parts are normalized in order to compare paints and icons by value when it's possible.
+     */
+    static final class Key {
+
+        private final Class<?>     type;
+        private final int          width;
+        private final int          height;
+        private final int          frameCount;
+        private final List<Object> parts;
+        private final int          hash;
+
+        Key(Class<?> type , int width , int height , int frameCount , List<Object> parts) {
+            this.type       = type;
+            this.width      = width;
+            this.height     = height;
+            this.frameCount = frameCount;
+            this.parts      = new ArrayList<Object>( parts.size() );
+            for(int i = 0 ; i < parts.size() ; i++ ) {
+                this.parts.add( normalize( parts.get(i) ) );
+            }
+            this.hash = ( ( ( type.hashCode() * 31 + width ) * 31 + height ) * 31 + frameCount ) * 31 + this.parts.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if( obj == this ) return true;
+            if( !(obj instanceof Key) ) return false;
+            Key other = (Key)obj;
+            return this.hash == other.hash && this.type == other.type && this.width == other.width && this.height == other.height &&
+                   this.frameCount == other.frameCount && this.parts.equals(other.parts);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        /** Return a value comparable representation of a configuration part
+         */
+        private static Object normalize(Object part) {
+            if( part instanceof ImageIcon ) {
+                return ((ImageIcon)part).getImage(); // images are shared by the toolkit for a same resource
+            }
+            if( part instanceof MultipleGradientPaint ) {
+                MultipleGradientPaint gradient = (MultipleGradientPaint)part;
+                List<Object>          result   = new ArrayList<Object>();
+                result.add( gradient.getClass() );
+                for(float fraction : gradient.getFractions() ) result.add( Float.valueOf(fraction) );
+                result.addAll( Arrays.asList( gradient.getColors() ) );
+                result.add( gradient.getCycleMethod() );
+                result.add( gradient.getColorSpace() );
+                result.add( gradient.getTransform() );
+                if( gradient instanceof LinearGradientPaint ) {
+                    result.add( ((LinearGradientPaint)gradient).getStartPoint() );
+                    result.add( ((LinearGradientPaint)gradient).getEndPoint() );
+                }
+                if( gradient instanceof RadialGradientPaint ) {
+                    result.add( ((RadialGradientPaint)gradient).getCenterPoint() );
+                    result.add( ((RadialGradientPaint)gradient).getFocusPoint() );
+                    result.add( Float.valueOf( ((RadialGradientPaint)gradient).getRadius() ) );
+                }
+                return result;
+            }
+            return part;
+        }
+    }
+}
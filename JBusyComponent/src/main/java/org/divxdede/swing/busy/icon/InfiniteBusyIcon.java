@@ -22,6 +22,8 @@ import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.util.ArrayList;
+import java.util.List;
 import javax.swing.UIManager;
 import org.jdesktop.swingx.JXBusyLabel;
 import org.jdesktop.swingx.painter.BusyPainter;
@@ -170,6 +172,28 @@ public class InfiniteBusyIcon extends AbstractBusyIcon {
         repaint(true);
     }
 
+    /** Return the {@link BusyPainter} attributes as frame atlas attributes.<br>
+     *  Theses attributes are read when the animation start, a painter modified during the animation is not detected before.
+     *
+     *  @return Attributes of this icon rendering or <code>null</code> if no painter is set
+     */
+    @Override
+    protected synchronized List<Object> getFrameAtlasKey() {
+        BusyPainter painter = getBusyPainter();
+        if( painter == null ) return null;
+
+        List<Object> key = new ArrayList<Object>();
+        key.add( painter.getPoints() );
+        key.add( painter.getTrailLength() );
+        key.add( painter.getPointShape() );
+        key.add( painter.getTrajectory() );
+        key.add( painter.getBaseColor() );
+        key.add( painter.getHighlightColor() );
+        key.add( painter.getDirection() );
+        key.add( painter.isPaintCentered() );
+        return key;
+    }
+
     /** Retrieve the {@link BusyPainter} used by this icon.
      *  @return The BusyPainter used by this icon
      */
@@ -27,6 +27,7 @@ import java.awt.Insets;
 import java.awt.Paint;
 import java.awt.RadialGradientPaint;
 import java.awt.RenderingHints;
+import java.util.List;
 import javax.swing.Icon;
 import org.divxdede.swing.ColorUtilities;
 import org.divxdede.swing.busy.BusyIcon;
@@ -254,6 +255,20 @@ public class RadialBusyIcon extends DecoratorBusyIcon {
         return 1f / 360f;
     }
 
+    /** Add the progress bar attributes to the decorated icon attributes
+     */
+    @Override
+    protected synchronized List<Object> getFrameAtlasKey() {
+        List<Object> key = super.getFrameAtlasKey();
+        if( key != null ) {
+            key.add( getProgressBarBackground() );
+            key.add( getProgressBarForeground() );
+            key.add( getProgressBarDiameter() );
+            key.add( getProgressBarThickness() );
+        }
+        return key;
+    }
+
     /** Define the delay (in milliseconds) for the <strong>undeterminate capsule</strong> to move a complete turn inside the progress bar
      *  @param delay delay (in milliseconds) for the <strong>undeterminate capsule</strong> to move a complete turn inside the progress bar
      */
@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * SharedImageCache.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing.busy.icon;
+
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Global cache of the images rendered by the busy icons, shared between all icons having the same configuration.
+ * <p>
+ * An image is identified by the icon configuration (class, size and attributes returned by {@link AbstractBusyIcon#getFrameAtlasKey()}),
+ * the {@link GraphicsConfiguration} and device scale it is rendered for and the rendered state (idle, determinate progression or undeterminate frame).<br>
+ * Images are rendered in native device pixels, so they are crisp and blitted without conversion on HiDPI screens.<br>
+ * Icons using this cache (see {@link AbstractBusyIcon#setUseSharedCache(boolean)}) don't own any buffer image:
+ * identical icons painted thousands of times (by exemple in a table) share the same pixels.
+ * <p>
+ * The cache is bounded by a byte budget (see {@link #setByteBudget(long)}). When the budget is exceeded,
+ * the least recently used images are evicted to a softly referenced area: they can still be reused
+ * until the garbage collector reclaim them.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author Andr Sbastien (divxdede)
+ * @since 1.2.4
+ */
+public final class SharedImageCache {
+
+    /** Kind of rendered states
+     */
+    static final int                                IDLE          = 0;
+    static final int                                DETERMINATE   = 1;
+    static final int                                UNDETERMINATE = 2;
+    static final int                                DECORATED     = 3;
+
+    private static final long                       DEFAULT_BUDGET = 8L * 1024L * 1024L;
+
+    private static final Map<Key,BufferedImage>     IMAGES  = new LinkedHashMap<Key,BufferedImage>( 64 , 0.75f , true );
+    private static final Map<Key,SoftImage>         EVICTED = new HashMap<Key,SoftImage>();
+    private static final ReferenceQueue<BufferedImage> QUEUE = new ReferenceQueue<BufferedImage>();
+    private static       long                       budget  = DEFAULT_BUDGET;
+    private static       long                       size    = 0L;
+
+    /** Private constructor, this class has only static methods
+     */
+    private SharedImageCache() {
+    }
+
+    /** Define the maximum amount of memory (in bytes) used by the strongly referenced images, <strong>8MB</strong> by default.<br>
+     *  Images exceeding the budget stay softly referenced.
+     *
+     *  @param bytes Byte budget of this cache
+     */
+    public static void setByteBudget(final long bytes) {
+        if( bytes < 0L ) throw new IllegalArgumentException("budget must be positive");
+        synchronized( IMAGES ) {
+            budget = bytes;
+            evict();
+        }
+    }
+
+    /** Return the maximum amount of memory (in bytes) used by the strongly referenced images
+     *  @return Byte budget of this cache
+     */
+    public static long getByteBudget() {
+        synchronized( IMAGES ) {
+            return budget;
+        }
+    }
+
+    /** Return the amount of memory (in bytes) currently used by the strongly referenced images
+     *  @return Bytes used by this cache
+     */
+    public static long getByteSize() {
+        synchronized( IMAGES ) {
+            return size;
+        }
+    }
+
+    /** Return the count of strongly referenced images
+     *  @return count of images
+     */
+    public static int getImageCount() {
+        synchronized( IMAGES ) {
+            return IMAGES.size();
+        }
+    }
+
+    /** Remove all images from this cache
+     */
+    public static void clear() {
+        synchronized( IMAGES ) {
+            IMAGES.clear();
+            EVICTED.clear();
+            size = 0L;
+        }
+    }
+
+    /** Retrieve an image
+     *  @param key Key of the image
+     *  @return Image or <code>null</code> if it is not cached
+     */
+    static BufferedImage get(final Key key) {
+        synchronized( IMAGES ) {
+            BufferedImage image = IMAGES.get( key );
+            if( image != null ) return image;
+
+            /** Evicted but not yet reclaimed: promote it again
+             */
+            SoftImage soft = EVICTED.remove( key );
+            image = soft == null ? null : soft.get();
+            if( image != null ) add( key , image );
+            return image;
+        }
+    }
+
+    /** Store an image.<br>
+     *  If an image was stored with the same key in the meantime, this one is returned and must be used instead.
+     *
+     *  @param key Key of the image
+     *  @param image Rendered image
+     *  @return Shared image for this key
+     */
+    static BufferedImage put(final Key key , final BufferedImage image) {
+        synchronized( IMAGES ) {
+            BufferedImage current = get( key );
+            if( current != null ) return current;
+            add( key , image );
+            return image;
+        }
+    }
+
+    /** Create an image compatible with a graphics configuration
+     *  @param gc Graphics configuration (may be <code>null</code> for the default screen)
+     *  @param width Image width
+     *  @param height Image height
+     *  @return translucent image
+     */
+    static BufferedImage createImage(GraphicsConfiguration gc , final int width , final int height) {
+        if( gc == null && !GraphicsEnvironment.isHeadless() ) {
+            gc = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+        }
+        if( gc == null ) return new BufferedImage( width , height , BufferedImage.TYPE_INT_ARGB_PRE );
+        return gc.createCompatibleImage( width , height , Transparency.TRANSLUCENT );
+    }
+
+    /** Return the transform from user space to device pixels of a graphics configuration (by exemple a 2x scale on an HiDPI screen)
+     *  @param gc Graphics configuration (may be <code>null</code> for the default screen)
+     *  @return device transform
+     */
+    static AffineTransform getDeviceTransform(GraphicsConfiguration gc) {
+        if( gc == null && !GraphicsEnvironment.isHeadless() ) {
+            gc = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+        }
+        return gc == null ? new AffineTransform() : gc.getDefaultTransform();
+    }
+
+    /** Return a length in device pixels
+     *  @param length Length in user space
+     *  @param scale Device scale
+     *  @return length in device pixels
+     */
+    static int toDevice(final int length , final double scale) {
+        return (int)Math.ceil( length * scale - 0.0001d );
+    }
+
+    private static void add(final Key key , final BufferedImage image) {
+        IMAGES.put( key , image );
+        size += bytes( image );
+        evict();
+    }
+
+    /** Move the least recently used images to the softly referenced area until the budget is respected
+     */
+    private static void evict() {
+        purge();
+        Iterator<Map.Entry<Key,BufferedImage>> i = IMAGES.entrySet().iterator();
+        while( size > budget && i.hasNext() ) {
+            Map.Entry<Key,BufferedImage> eldest = i.next();
+            i.remove();
+            size -= bytes( eldest.getValue() );
+            EVICTED.put( eldest.getKey() , new SoftImage( eldest.getKey() , eldest.getValue() ) );
+        }
+    }
+
+    /** Remove evicted images reclaimed by the garbage collector
+     */
+    private static void purge() {
+        Reference<? extends BufferedImage> ref;
+        while( ( ref = QUEUE.poll() ) != null ) {
+            SoftImage soft = (SoftImage)ref;
+            if( EVICTED.get( soft.key ) == soft ) EVICTED.remove( soft.key );
+        }
+    }
+
+    private static long bytes(final BufferedImage image) {
+        return (long)image.getWidth() * (long)image.getHeight() * 4L;
+    }
+
+    /** Soft reference to an evicted image
+     */
+    private static final class SoftImage extends SoftReference<BufferedImage> {
+
+        private final Key key;
+
+        private SoftImage(final Key key , final BufferedImage image) {
+            super( image , QUEUE );
+            this.key = key;
+        }
+    }
+
+    /** Key of a shared image
+     */
+    static final class Key {
+
+        private final Object                configuration;
+        private final GraphicsConfiguration gc;
+        private final double                scaleX;
+        private final double                scaleY;
+        private final int                   kind;
+        private final int                   index;
+        private final int                   hash;
+
+        /** Create a key
+         *  @param configuration Value comparable configuration of the icon
+         *  @param gc Graphics configuration the image is rendered for (may be <code>null</code>)
+         *  @param scaleX Horizontal device scale the image is rendered at
+         *  @param scaleY Vertical device scale the image is rendered at
+         *  @param kind Kind of the rendered state
+         *  @param index Determinate step or undeterminate frame
+         */
+        Key(final Object configuration , final GraphicsConfiguration gc , final double scaleX , final double scaleY , final int kind , final int index) {
+            this.configuration = configuration;
+            this.gc            = gc;
+            this.scaleX        = scaleX;
+            this.scaleY        = scaleY;
+            this.kind          = kind;
+            this.index         = index;
+            this.hash          = ( ( ( configuration.hashCode() * 31 + ( gc == null ? 0 : gc.hashCode() ) ) * 31
+                                 + (int)( scaleX * 100d ) * 7 + (int)( scaleY * 100d ) ) * 31 + kind ) * 31 + index;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if( obj == this ) return true;
+            if( !(obj instanceof Key) ) return false;
+            Key other = (Key)obj;
+            return this.hash == other.hash && this.kind == other.kind && this.index == other.index &&
+                   this.scaleX == other.scaleX && this.scaleY == other.scaleY &&
+                   ( this.gc == null ? other.gc == null : this.gc.equals( other.gc ) ) && this.configuration.equals( other.configuration );
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+}
@@ -21,24 +21,33 @@ package org.divxdede.swing.busy.ui;
 
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
+import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.text.DecimalFormat;
 import java.util.Observable;
 import java.util.Observer;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.Icon;
 import javax.swing.JComponent;
 import javax.swing.JLabel;
 import javax.swing.JProgressBar;
-import javax.swing.Timer;
+import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 import javax.swing.border.Border;
 import javax.swing.border.EmptyBorder;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import org.divxdede.swing.AnimationClock;
+import org.divxdede.swing.EstimationHistory;
 import org.divxdede.swing.RemainingTimeMonitor;
+import org.divxdede.swing.VisibilityTracker;
 import org.divxdede.swing.busy.BusyIcon;
 import org.divxdede.swing.busy.BusyModel;
 import org.divxdede.swing.busy.icon.InfiniteBusyIcon;
@@ -47,7 +56,6 @@ import org.jdesktop.jxlayer.JXLayer;
 import org.jdesktop.swingx.JXHyperlink;
 import org.jdesktop.swingx.JXPanel;
 import org.jdesktop.swingx.painter.BusyPainter;
-import org.jdesktop.swingx.painter.MattePainter;
 import org.jdesktop.swingx.painter.Painter;
 
 /**
@@ -79,6 +87,15 @@ import org.jdesktop.swingx.painter.Painter;
  *      BusyModel model = ui.getBusyModel();
  *      model.setBusy(true); // an animation over our component is shown
  * </pre>
+ * <p>
+ * While the layer is locked, the view and the veil are rendered once in the layer buffer.
+ * The glass pane (icon, progress bar, cancel link) is kept out of this buffer and painted over it,
+ * so an animation frame only repaints the bounds of the busy icon.<br>
+ * The whole layer is rendered again only when it's locked state or the veil alpha change.
+ * <p>
+ * All animations (shading, busy icon, texts) are suspended while the layer is not visible by the user:
+ * hidden, inside an iconified window or scrolled out of a viewport (see {@link VisibilityTracker}).<br>
+ * Since animations are time based, they resume at the state they would have reached if they never stopped.
  * 
  * @author Andr Sbastien (divxdede)
  */
@@ -86,12 +103,13 @@ public class BasicBusyLayerUI extends AbstractBusyLayerUI {
 
     /** Components
      */
-    JXPanel              jXGlassPane       = new JXPanel();
+    JXPanel              jXGlassPane       = new GlassPane();
     JLabel               jLabel            = new JLabel();
     JProgressBar         jProgressBar      = new JProgressBar();
     JXHyperlink          jXHyperlinkCancel = new JXHyperlink();
     BusyIcon             busyIcon          = null;
     Observer             observer          = new AnimationObserver();
+    VisibilityTracker    visibility        = new VisibilityTracker( new VisibilityListener() );
 
 
     /** Members managing popup trigger and remaining time
@@ -100,6 +118,11 @@ public class BasicBusyLayerUI extends AbstractBusyLayerUI {
     RemainingTimeMonitor monitor               = null;
     long                 monitorStartTime      = -1L;
     final TimeFormat     timeFormat            = new TimeFormat( TimeUnit.SECONDS );
+    final DecimalFormat  rateFormat            = new DecimalFormat( "#,##0.#" );
+    boolean              throughputVisible     = false;
+    EstimationHistory    history               = null;
+    String               operation             = null;
+    ChangeListener       telemetryListener     = new TelemetryListener();
     int                  millisToDecideToPopup = 300;
     int                  millisToPopup         = 1200;
     
@@ -122,9 +145,25 @@ public class BasicBusyLayerUI extends AbstractBusyLayerUI {
     /** Internal members for manage shading & veil rendering
      */
     private int            alpha              = 0;
-    private Timer          timer              = null;
-    private Painter        painter            = null;
+    private ActionListener pulseListener      = null;
+    private Veil           veil               = null;  // veil currently shown, null means no veil
+    private Veil           veilCache          = null;  // veil reused for the current veil color
+    private Color          veilCacheColor     = null;
     private AtomicBoolean  repainted          = new AtomicBoolean(false);
+    private boolean        veilChanged        = false; // the veil alpha has changed since the last layer render
+    private boolean        paintingLayer      = false; // the layer buffer is currently rendered
+
+    /** Members used for compute the busy icon bounds inside the label
+     */
+    private final Rectangle iconViewBounds    = new Rectangle();
+    private final Rectangle iconBounds        = new Rectangle();
+    private final Rectangle iconTextBounds    = new Rectangle();
+    private final Insets    iconLabelInsets   = new Insets(0,0,0,0);
+    private final Runnable  iconRepainter     = new Runnable() {
+        public void run() {
+            repaintBusyIcon();
+        }
+    };
 
     /** Insets used
      */
@@ -147,7 +186,7 @@ public class BasicBusyLayerUI extends AbstractBusyLayerUI {
     public BasicBusyLayerUI(final int shadeDelay , final float veilAlpha  , final Color veilColor) {
         
         this.cancelListener     = createCancelListener();
-        this.timer              = createTimer();
+        this.pulseListener      = createPulseListener();
                                   createGlassPane();
         
         this.shadeDelayTotal    = shadeDelay;
@@ -163,15 +202,17 @@ public class BasicBusyLayerUI extends AbstractBusyLayerUI {
         
         final JXLayer layer = (JXLayer)c;
         layer.setGlassPane( this.jXGlassPane );
+        this.visibility.track( layer );
     }
 
     @Override
     public void uninstallUI(final JComponent c) {
-        // Issue 13 : Stop timer if the view is uninstalled
-        if( this.timer.isRunning() ) this.timer.stop();
+        // Issue 13 : Stop animation if the view is uninstalled
+        AnimationClock.getInstance().unsubscribe( this.pulseListener );
         super.uninstallUI(c);
         final JXLayer layer = (JXLayer)c;
         layer.setGlassPane( null );
+        this.visibility.untrack( layer );
     }
 
     /** Define the BusyIcon to use by this ui to render the busy animation.
@@ -333,6 +374,52 @@ public class BasicBusyLayerUI extends AbstractBusyLayerUI {
         return this.remainingTimeVisible;
     }
 
+    /** Define if this {@link BusyLayerUI} should show the throughput (model units per second)
+     *  of the job underlying the busy state besides it's remaining time.
+     *  <p>
+     *  This feature works only with determinate {@link BusyModel} and when the remaining time is visible
+     *
+     *  @param value set to <code>true</code> to show the throughput when a determinate model is busy
+     *  @see #isThroughputVisible()
+     *  @see #setRemainingTimeVisible(boolean)
+     *  @since 1.2.4
+     */
+    public void setThroughputVisible(boolean value) {
+        this.throughputVisible = value;
+    }
+
+    /** Indicate if this {@link BusyLayerUI} should show the throughput of the job underlying the busy state
+     *
+     *  @return <code>true</code> of the throughput should by shown
+     *  @since 1.2.4
+     */
+    public boolean isThroughputVisible() {
+        return this.throughputVisible;
+    }
+
+    /** Define the history of the past runs used for estimating the remaining time as soon as the model become busy.<br>
+     *  The remaining time (and the popup decision of {@link #getMillisToPopup()}) is estimated from the past runs of the operation
+     *  until enough live samples are available, and each completed run is recorded in the history.
+     *
+     *  @param history History of the past runs (can be <code>null</code>)
+     *  @param operation Name of the operation reflected by the model
+     *  @see #getEstimationHistory()
+     *  @since 1.2.4
+     */
+    public void setEstimationHistory(EstimationHistory history , String operation) {
+        this.history   = history;
+        this.operation = operation;
+    }
+
+    /** Return the history of the past runs used for estimating the remaining time
+     *
+     *  @return history of the past runs or <code>null</code>
+     *  @since 1.2.4
+     */
+    public EstimationHistory getEstimationHistory() {
+        return this.history;
+    }
+
     /** 
      * Returns the busy painter to use for render the busy animation
      * @return BusyPainter used for render the friendly busy animation
@@ -365,12 +452,33 @@ public class BasicBusyLayerUI extends AbstractBusyLayerUI {
         setBusyIcon( new InfiniteBusyIcon(busyPainter,preferredSize) );
     }
     
+    /** Paint this layer and report the paint duration to the {@link AnimationClock} while this layer is animated
+     */
+    @Override
+    public void paint(final Graphics g, final JComponent c) {
+        if( ! isLocked() ) {
+            super.paint(g, c);
+            return;
+        }
+        final long start = System.nanoTime();
+        super.paint(g, c);
+        AnimationClock.getInstance().reportPaintDuration( System.nanoTime() - start );
+    }
+
     @Override
     protected void paintLayer(final Graphics2D g2, final JXLayer<? extends JComponent> l) {
-        super.paintLayer(g2, l);
-        final Painter painter = getBackGroundPainter();
-        if( painter != null ) {
-            painter.paint(g2, null , l.getWidth(), l.getHeight() );
+        /** The glass pane is painted over the layer buffer, not inside
+         */
+        this.paintingLayer = true;
+        try {
+            super.paintLayer(g2, l);
+        }
+        finally {
+            this.paintingLayer = false;
+        }
+        final Veil veil = getVeil();
+        if( veil != null ) {
+            veil.paint(g2, l.getWidth(), l.getHeight() );
         }
     }
     
@@ -380,10 +488,14 @@ public class BasicBusyLayerUI extends AbstractBusyLayerUI {
         final BusyIcon  myIcon  = getBusyIcon();
         final boolean   isBusy  = isComponentBusy();
 
-        /** Ensure the timer is running when the model is busy (Issue 13 : add getLayer() != null)
+        /** Ensure the animation is running when the model is busy or the shading not completed (Issue 13 : add getLayer() != null)
+         *  The animation is suspended while the layer is not visible
          */
-        if( myModel != null && myModel.isBusy() && !this.timer.isRunning() && getLayer() != null ) {
-            this.timer.start();
+        if( myModel != null && ( myModel.isBusy() || isBackgroundPainterDirty( isBusy ) ) && getLayer() != null && this.visibility.isVisible() ) {
+            AnimationClock.getInstance().subscribe( this.pulseListener , REFRESH_DELAI );
+        }
+        else {
+            AnimationClock.getInstance().unsubscribe( this.pulseListener );
         }
         repainted.set(true);
         
@@ -392,6 +504,7 @@ public class BasicBusyLayerUI extends AbstractBusyLayerUI {
         this.jXGlassPane.setVisible( isBusy );
         this.jLabel.setVisible( isBusy );
         this.jProgressBar.setVisible( isBusy && myModel.isDeterminate() && !myIcon.isDeterminate() );
+        this.jProgressBar.setIndeterminate( isBusy && isStalled() );
 
         { final boolean hyperlinkVisible = isBusy && myModel.isCancellable();
           if( hyperlinkVisible && !this.jXHyperlinkCancel.isVisible() ) 
@@ -441,7 +554,13 @@ public class BasicBusyLayerUI extends AbstractBusyLayerUI {
                 }
             }
         }
-        super.updateUIImpl();
+
+        /** Glass pane components repaint their own bounds.
+         *  The layer buffer is rendered again only when the lock state or the veil has changed
+         */
+        if( shouldLock() != isLocked() || consumeVeilChanged() ) {
+            super.updateUIImpl();
+        }
     }
 
     @Override
@@ -505,14 +624,33 @@ public class BasicBusyLayerUI extends AbstractBusyLayerUI {
         if( !myModel.isDeterminate() ) return null;
         
         if( this.monitor != null ) {
+            if( monitor.isStalled() ) return " Stalled";
+
             long timeRemaining = monitor.getRemainingTime( TimeUnit.SECONDS );
             if( timeRemaining > 0 ) {
                 if( timeRemaining == Long.MAX_VALUE ) return " Remaining time: \u221E";
-                return " Remaining time: " + timeFormat.format( timeRemaining );
+                return " Remaining time: " + timeFormat.format( timeRemaining ) + getThroughputString();
             }
         }
         return null;
     }
+
+    /** Return the throughput string (empty if the throughput is not visible or unknown)
+     */
+    private String getThroughputString() {
+        if( ! isThroughputVisible() ) return "";
+
+        double rate = monitor.getRate();
+        if( rate <= 0d ) return "";
+        return " (" + rateFormat.format( rate ) + "/s)";
+    }
+
+    /** Indicate if the job underlying the busy state don't advance anymore.<br>
+     *  A stalled job is rendered as an indeterminate one until it advance again.
+     */
+    private boolean isStalled() {
+        return this.monitor != null && this.monitor.isStalled();
+    }
     
     /** Create the Listener managing the cancel action when click on the hyperlink
      */
@@ -549,7 +687,11 @@ public class BasicBusyLayerUI extends AbstractBusyLayerUI {
                 monitorStartTime = System.currentTimeMillis();
             }
             if( monitor == null && monitorRequired ) {
-                monitor = new RemainingTimeMonitor( getBusyModel() );
+                monitor = RemainingTimeMonitor.acquire( getBusyModel() );
+                if( this.history != null && monitor.getHistory() == null ) {
+                    monitor.setHistory( this.history , this.operation );
+                }
+                monitor.addChangeListener( this.telemetryListener );
             }
             if( jXGlassPane.isVisible() ) {
                 // if the component is already busy, we will let it busy until the end
@@ -573,6 +715,7 @@ public class BasicBusyLayerUI extends AbstractBusyLayerUI {
         }
         else {
             if( monitor != null ) {
+                monitor.removeChangeListener( this.telemetryListener );
                 monitor.dispose();
                 monitor = null;
             }
@@ -594,22 +737,41 @@ public class BasicBusyLayerUI extends AbstractBusyLayerUI {
         return isModelBusy() || isBackgroundPainterDirty( isComponentBusy() );
     }
     
-    /** Get the painter ready for render over the specified component.
-     *  If the internal painter is not compatible with the specified component, 
-     *  then another one painter will be created
+    /** Indicate if the veil has changed since the last call and reset this flag.
      */
-    private synchronized Painter getBackGroundPainter() {
-        return this.painter;
+    private synchronized boolean consumeVeilChanged() {
+        boolean result = this.veilChanged;
+        this.veilChanged = false;
+        return result;
     }
-    
+
+    /** Get the veil ready for render over the layer.
+     *  @return Veil to paint or <code>null</code> if no veil must be painted
+     */
+    private synchronized Veil getVeil() {
+        return this.veil;
+    }
+
+    /** Return the veil to use for the current veil color.
+     *  The veil painter is created once per veil color, the shading only change the veil alpha level.
+     */
+    private synchronized Veil getVeilForColor() {
+        if( this.veilCache == null || ! this.veilColor.equals( this.veilCacheColor ) ) {
+            this.veilCache      = new Veil( createBackgroundPainter( 255 ) );
+            this.veilCacheColor = this.veilColor;
+        }
+        return this.veilCache;
+    }
+
     /** Overridable method that neeed to create a painter with a specified alpha level.
-     *  <code>BasicBusyLayerUI</code> invoke this method each time requested
-     *  for paint the shadowing animation. 
+     *  <p>
+     *  <code>BasicBusyLayerUI</code> invoke this method once per veil color with an opaque alpha (255).
+     *  The shadowing animation apply it's alpha level over this painter using a shared {@link java.awt.AlphaComposite}.
      *  @param alpha The alpha value (0 ~ 255) requested for the painter
      *  @return painter the new painter with the correct alpha value
      */
     protected Painter createBackgroundPainter( final int alpha ) {
-        return new MattePainter( 
+        return Veil.createPainter(
                 new Color( this.veilColor.getRed() ,
                            this.veilColor.getGreen() ,
                            this.veilColor.getBlue() ,
@@ -636,9 +798,10 @@ public class BasicBusyLayerUI extends AbstractBusyLayerUI {
         }
     }
 
-    /** Create the Timer responsible to animate this layerUI
+    /** Create the listener responsible to animate this layerUI.
+     *  This listener receive pulses from the shared {@link AnimationClock} while the layer is animated.
      */
-    private synchronized Timer createTimer() {
+    private synchronized ActionListener createPulseListener() {
         final ActionListener actionListener = new ActionListener() {
 
             public void actionPerformed(final ActionEvent e) {
@@ -651,16 +814,16 @@ public class BasicBusyLayerUI extends AbstractBusyLayerUI {
                     else {
                         if( !repainted.get() ) {
                             updateUI();
-                            repainted.set(false); // the timer is on the EDT, the updateUI is really done
+                            repainted.set(false); // the clock is on the EDT, the updateUI is really done
                         }
                     }
-                    if( ! isModelBusy() && ! isBackgroundPainterDirty( isBusy ) ) {
-                        ((Timer)e.getSource()).stop();
+                    if( ( ! isModelBusy() && ! isBackgroundPainterDirty( isBusy ) ) || ! visibility.isVisible() ) {
+                        AnimationClock.getInstance().unsubscribe( this );
                     }
                 }
             }
         };
-        return new Timer( REFRESH_DELAI , actionListener );
+        return actionListener;
     }
     
     /** Indicate if the background painter is dirty.
@@ -682,16 +845,17 @@ public class BasicBusyLayerUI extends AbstractBusyLayerUI {
 
     /** Update the painter for paint the next step of the shading.
      *  <p>
-     *  This method request an updateUI() if a new painter is created.
+     *  This method request an updateUI() if the veil alpha level has changed.
      *  The method update the alpha of the white veil depending <code>shadeDelayTotal</code> delay
      *  and <code>shadeDelayInterval</code> delay
      *
      *  @return <code>true</code> when this method request an {@link #updateUI()} call for refresh ui state
      */
     private synchronized boolean updateBackgroundPainter(boolean isBusy) {
-        final Painter oldPainter = this.painter;
-        
-        if( isBusy && ( this.alpha < 255 || this.painter == null ) ) {
+        final Veil oldVeil  = this.veil;
+        final int  oldLevel = oldVeil == null ? 0 : oldVeil.getAlpha();
+
+        if( isBusy && ( this.alpha < 255 || this.veil == null ) ) {
             if( backgroundVeilStartTime <= 0 ) backgroundVeilStartTime = System.currentTimeMillis();
             long   delay     = System.currentTimeMillis() - backgroundVeilStartTime;
             double veilRatio = (double)delay / (double)this.shadeDelayTotal;
@@ -707,9 +871,10 @@ public class BasicBusyLayerUI extends AbstractBusyLayerUI {
                     backgroundVeilStartTime = 0L;
                 }
             }
-            this.painter = createBackgroundPainter( (int)(this.alpha * this.veilAlpha) );
+            this.veil = getVeilForColor();
+            this.veil.setAlpha( (int)(this.alpha * this.veilAlpha) );
         }
-        else if( !isBusy && ( this.alpha > 0 || this.painter != null ) ) {
+        else if( !isBusy && ( this.alpha > 0 || this.veil != null ) ) {
             if( backgroundVeilStartTime >= 0 ) backgroundVeilStartTime = -System.currentTimeMillis();
             long   delay     = System.currentTimeMillis() + backgroundVeilStartTime;
             double veilRatio = (double)delay / (double)this.shadeDelayTotal;
@@ -722,30 +887,89 @@ public class BasicBusyLayerUI extends AbstractBusyLayerUI {
                 this.alpha = 255 - (int)(255 * veilRatio);
             }
             
-            if( this.alpha > 0 )
-                this.painter = createBackgroundPainter( (int)(this.alpha * this.veilAlpha) );
+            if( this.alpha > 0 ) {
+                this.veil = getVeilForColor();
+                this.veil.setAlpha( (int)(this.alpha * this.veilAlpha) );
+            }
             else {
                 this.alpha = 0;
-                this.painter = null;
+                this.veil  = null;
                 backgroundVeilStartTime = 0L;
             }
         }
         else {
             backgroundVeilStartTime = 0L;
         }
-        return oldPainter != this.painter;
+        if( oldVeil != this.veil || oldLevel != ( this.veil == null ? 0 : this.veil.getAlpha() ) ) {
+            this.veilChanged = true;
+        }
+        return this.veilChanged;
+    }
+
+    /** Repaint only the bounds of the busy icon inside the label.
+     *  This method must be called on the <code>Event Dispatch Thread</code>.
+     */
+    private void repaintBusyIcon() {
+        final Icon icon = this.jLabel.getIcon();
+        if( icon == null || ! this.jLabel.isShowing() ) return;
+
+        final Insets insets = this.jLabel.getInsets( this.iconLabelInsets );
+        this.iconViewBounds.setBounds( insets.left , insets.top ,
+                                       this.jLabel.getWidth()  - ( insets.left + insets.right ) ,
+                                       this.jLabel.getHeight() - ( insets.top + insets.bottom ) );
+        this.iconBounds.setBounds( 0 , 0 , 0 , 0 );
+        this.iconTextBounds.setBounds( 0 , 0 , 0 , 0 );
+
+        SwingUtilities.layoutCompoundLabel( this.jLabel , this.jLabel.getFontMetrics( this.jLabel.getFont() ) , this.jLabel.getText() , icon ,
+                                            this.jLabel.getVerticalAlignment() , this.jLabel.getHorizontalAlignment() ,
+                                            this.jLabel.getVerticalTextPosition() , this.jLabel.getHorizontalTextPosition() ,
+                                            this.iconViewBounds , this.iconBounds , this.iconTextBounds , this.jLabel.getIconTextGap() );
+
+        this.jLabel.repaint( this.iconBounds.x , this.iconBounds.y , this.iconBounds.width , this.iconBounds.height );
     }
 
     /** Observer implementation that allow the layer UI to listen any update from
-     *  the busy icon and perform an updateUI
+     *  the busy icon and repaint it
      */
     private class AnimationObserver implements Observer {
 
         public void update(Observable o, Object arg) {
             /** Observable from BusyIcon perform an update only when it is significant
-             *  So let it to refresh our layer.
+             *  So let it to repaint the icon bounds only, texts are refreshed by the pulse listener
              */
-            BasicBusyLayerUI.this.updateUI();
+            if( SwingUtilities.isEventDispatchThread() ) repaintBusyIcon();
+            else                                          SwingUtilities.invokeLater( iconRepainter );
+        }
+    }
+
+    /** Listener suspending or resuming this layer animations when the layer is hidden or shown
+     */
+    private class VisibilityListener implements ChangeListener {
+
+        public void stateChanged(ChangeEvent e) {
+            updateUI();
+        }
+    }
+
+    /** Listener refreshing the texts and the progress bar when the monitor telemetry change (new sample, stall state)
+     */
+    private class TelemetryListener implements ChangeListener {
+
+        public void stateChanged(ChangeEvent e) {
+            updateUI();
+        }
+    }
+
+    /** Glass pane excluded from the layer buffer.<br>
+     *  The {@link JXLayer} paint this glass pane over the layer buffer, so it's components can be repainted alone.
+     */
+    private class GlassPane extends JXPanel {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void paint(Graphics g) {
+            if( ! paintingLayer ) super.paint(g);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * Veil.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing.busy.ui;
+
+import java.awt.AlphaComposite;
+import java.awt.Composite;
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import org.jdesktop.swingx.painter.Painter;
+
+/**
+ * Veil painted over a busy component with a variable alpha level.
+ * <p>
+ * A veil wraps an opaque {@link Painter} created once and applies the current alpha level
+ * with an {@link AlphaComposite} taken from a precomputed table of 256 entries.<br>
+ * Changing the alpha level of a veil during a shading animation doesn't allocate anything.
+ * <p>
+ * A painter filling the veil area without any allocation can be created with {@link #createPainter(java.awt.Paint)}.
+ * <p>
+ * Exemple:
+ * <pre>
+ *          Veil veil = new Veil( Veil.createPainter( Color.WHITE ) );
+ *
+ *          // at each step of the shading animation
+ *          veil.setAlpha( alpha );
+ *          veil.paint( g2d , width , height );
+ * </pre>
+ *
+ * @author Andr Sbastien (divxdede)
+ * @since 1.2.4
+ */
+public class Veil {
+
+    /** Composites for each alpha level (0 ~ 255)
+     */
+    private static final AlphaComposite[] COMPOSITES = new AlphaComposite[256];
+
+    static {
+        for(int i = 0 ; i < COMPOSITES.length ; i++ ) {
+            COMPOSITES[i] = AlphaComposite.getInstance( AlphaComposite.SRC_OVER , (float)i / 255f );
+        }
+    }
+
+    private final Painter painter;
+    private       int     alpha   = 255;
+
+    /** Create a veil using the specified opaque painter
+     *  @param painter Painter rendering this veil at it's full opacity
+     */
+    public Veil(Painter painter) {
+        this.painter = painter;
+    }
+
+    /** Return the painter rendering this veil at it's full opacity
+     *  @return Painter of this veil
+     */
+    public Painter getPainter() {
+        return this.painter;
+    }
+
+    /** Return the current alpha level of this veil
+     *  @return alpha level (0 ~ 255)
+     */
+    public int getAlpha() {
+        return this.alpha;
+    }
+
+    /** Define the alpha level of this veil.<br>
+     *  The value is clamped in the range [0 ~ 255].
+     *
+     *  @param alpha New alpha level (0 ~ 255)
+     *  @return <code>true</code> if the alpha level has changed
+     */
+    public boolean setAlpha(int alpha) {
+        int newAlpha = Math.max( 0 , Math.min( 255 , alpha ) );
+        if( newAlpha == this.alpha ) return false;
+        this.alpha = newAlpha;
+        return true;
+    }
+
+    /** Paint this veil with it's current alpha level.<br>
+     *  The graphics composite is restored once the veil is painted.
+     *
+     *  @param g Graphics to paint on
+     *  @param width Width of the area to cover
+     *  @param height Height of the area to cover
+     */
+    public void paint(Graphics2D g , int width , int height) {
+        if( this.alpha == 0 || this.painter == null ) return;
+
+        Composite old = g.getComposite();
+        g.setComposite( getComposite( old , this.alpha ) );
+        try {
+            this.painter.paint( g , null , width , height );
+        }
+        finally {
+            g.setComposite( old );
+        }
+    }
+
+    /** Return the shared composite for the specified alpha level
+     *  @param alpha alpha level (0 ~ 255)
+     *  @return Composite for this alpha level
+     */
+    public static AlphaComposite getComposite(int alpha) {
+        return COMPOSITES[ Math.max( 0 , Math.min( 255 , alpha ) ) ];
+    }
+
+    /** Create a painter filling the whole painted area with the specified paint.<br>
+     *  Unlike a <code>MattePainter</code>, this painter doesn't allocate anything while painting.
+     *
+     *  @param paint Paint to use for fill the area
+     *  @return Painter filling the area with this paint
+     */
+    public static Painter<Object> createPainter(Paint paint) {
+        return new FillPainter(paint);
+    }
+
+    /** Return the composite to use over the current composite of a graphics.<br>
+     *  A translucent <code>SRC_OVER</code> composite is combined with the requested alpha level.
+     */
+    private static Composite getComposite(Composite current , int alpha) {
+        if( current instanceof AlphaComposite ) {
+            AlphaComposite composite = (AlphaComposite)current;
+            if( composite.getRule() == AlphaComposite.SRC_OVER && composite.getAlpha() < 1f ) {
+                return composite.derive( composite.getAlpha() * COMPOSITES[alpha].getAlpha() );
+            }
+        }
+        return COMPOSITES[alpha];
+    }
+
+    /** Painter filling the whole area with a paint
+     */
+    private static class FillPainter implements Painter<Object> {
+
+        private final Paint paint;
+
+        private FillPainter(Paint paint) {
+            this.paint = paint;
+        }
+
+        public void paint(Graphics2D g , Object object , int width , int height) {
+            Paint old = g.getPaint();
+            g.setPaint( this.paint );
+            g.fillRect( 0 , 0 , width , height );
+            g.setPaint( old );
+        }
+    }
+}
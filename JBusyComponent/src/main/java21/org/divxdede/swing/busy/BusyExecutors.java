@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * BusyExecutors.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing.busy;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Shared executor running background jobs of this library (workers started by {@link BusySwingWorker#start()}, future trackers).
+ * <p>
+ * Java 21 implementation of the multi-release jar: each job is run on it's own virtual thread.
+ *
+ * @author Andr Sbastien (divxdede)
+ * @since 1.2.4
+ */
+public final class BusyExecutors {
+
+    private static ExecutorService executor = null;
+
+    private BusyExecutors() {
+    }
+
+    /** Return the shared executor
+     *  @return the shared executor
+     */
+    public static synchronized ExecutorService getExecutor() {
+        if( executor == null ) {
+            executor = Executors.newThreadPerTaskExecutor( Thread.ofVirtual().name( "JBusyComponent worker #" , 1 ).factory() );
+        }
+        return executor;
+    }
+
+    /** Indicate if the shared executor run each job on it's own virtual thread.<br>
+     *  When it's true, blocking a job is cheap and doesn't hold a platform thread.
+     *  @return true if jobs are run on virtual threads
+     */
+    public static boolean isVirtual() {
+        return true;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * AnimationClockTest.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of {@link AnimationClock}
+ *
+ * @author Andr Sbastien (divxdede)
+ */
+public class AnimationClockTest {
+
+    /** An Error thrown by a subscriber must not stop the pulses of the others
+     */
+    @Test
+    public void keepTickingAfterAnError() throws Exception {
+        final AnimationClock clock  = AnimationClock.getInstance();
+        final AtomicInteger  pulses = new AtomicInteger(0);
+        ActionListener       failing = new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                clock.unsubscribe( this );
+                throw new AssertionError("expected failure");
+            }
+        };
+        ActionListener       counter = new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                pulses.incrementAndGet();
+            }
+        };
+        clock.subscribe( failing , 20 );
+        clock.subscribe( counter , 20 );
+        try {
+            Thread.sleep( 100 );
+            int before = pulses.get();
+            Thread.sleep( 200 );
+            assertTrue( "clock stopped after " + before + " pulses" , pulses.get() > before );
+        }
+        finally {
+            clock.unsubscribe( counter );
+        }
+    }
+
+    /** A RuntimeException thrown by a subscriber is reported to the uncaught exception handler
+     */
+    @Test
+    public void reportSubscriberFailure() throws Exception {
+        final AnimationClock             clock    = AnimationClock.getInstance();
+        final RuntimeException           failure  = new IllegalStateException("expected failure");
+        final AtomicReference<Throwable> reported = new AtomicReference<Throwable>();
+        final CountDownLatch             done     = new CountDownLatch(1);
+        Thread.UncaughtExceptionHandler  previous = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler( new Thread.UncaughtExceptionHandler() {
+            public void uncaughtException(Thread t , Throwable e) {
+                reported.set( e );
+                done.countDown();
+            }
+        });
+        try {
+            clock.subscribe( new ActionListener() {
+                public void actionPerformed(ActionEvent e) {
+                    clock.unsubscribe( this );
+                    throw failure;
+                }
+            } , 20 );
+            assertTrue( done.await( 5 , TimeUnit.SECONDS ) );
+            assertSame( failure , reported.get() );
+        }
+        finally {
+            Thread.setDefaultUncaughtExceptionHandler( previous );
+        }
+    }
+}
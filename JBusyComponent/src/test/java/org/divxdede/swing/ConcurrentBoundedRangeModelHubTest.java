@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * ConcurrentBoundedRangeModelHubTest.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.BoundedRangeModel;
+import javax.swing.DefaultBoundedRangeModel;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of {@link ConcurrentBoundedRangeModelHub}
+ *
+ * @author Andr Sbastien (divxdede)
+ */
+public class ConcurrentBoundedRangeModelHubTest {
+
+    private static final int MAXIMUM = 1000000;
+    private static final int WORKERS = 8;
+
+    /** 8 workers make 5M increments over 5000 fragments, the master must reach exactly it's maximum
+     */
+    @Test
+    public void publishConcurrentIncrements() throws Exception {
+        BoundedRangeModel              master    = new DefaultBoundedRangeModel( 0 , 0 , 0 , MAXIMUM );
+        ConcurrentBoundedRangeModelHub hub       = new ConcurrentBoundedRangeModelHub( master );
+        final List<ConcurrentBoundedRangeModelHub.Fragment> fragments = new ArrayList<ConcurrentBoundedRangeModelHub.Fragment>();
+        for(int i = 0 ; i < 5000 ; i++ ) {
+            ConcurrentBoundedRangeModelHub.Fragment fragment = hub.createFragment( 1f );
+            fragment.setMaximum( 1000L );
+            fragments.add( fragment );
+        }
+
+        runWorkers( new Work() {
+            public void run(int worker) {
+                for(int i = worker ; i < fragments.size() ; i += WORKERS ) {
+                    ConcurrentBoundedRangeModelHub.Fragment fragment = fragments.get(i);
+                    for(int j = 0 ; j < 1000 ; j++ ) fragment.increment( 1L );
+                }
+            }
+        } , null );
+
+        assertEquals( MAXIMUM , awaitValue( master , MAXIMUM ) );
+        hub.dispose();
+    }
+
+    /** A 4-level tree of 2000 chunks updated by 8 workers while a subtree is detached and reattached 100 times:
+     *  the job and stage masters must reach exactly their maximum
+     */
+    @Test
+    public void publishNestedTreeWhileRestructured() throws Exception {
+        BoundedRangeModel              jobMaster   = new DefaultBoundedRangeModel( 0 , 0 , 0 , MAXIMUM );
+        BoundedRangeModel              stageMaster = new DefaultBoundedRangeModel( 0 , 0 , 0 , MAXIMUM );
+        ConcurrentBoundedRangeModelHub job         = new ConcurrentBoundedRangeModelHub( jobMaster );
+        final List<ConcurrentBoundedRangeModelHub.Fragment> chunks = new ArrayList<ConcurrentBoundedRangeModelHub.Fragment>();
+        ConcurrentBoundedRangeModelHub moving      = null;
+
+        for(int s = 0 ; s < 4 ; s++ ) {
+            ConcurrentBoundedRangeModelHub stage = job.createHub( s + 1f );
+            if( s == 0 ) stage.setMasterBoundedRangeModel( stageMaster );
+            for(int f = 0 ; f < 5 ; f++ ) {
+                ConcurrentBoundedRangeModelHub file = stage.createHub( 1f );
+                if( moving == null ) moving = file;
+                for(int c = 0 ; c < 100 ; c++ ) {
+                    ConcurrentBoundedRangeModelHub.Fragment chunk = file.createFragment( 1f );
+                    chunk.setMaximum( 50L );
+                    chunks.add( chunk );
+                }
+            }
+        }
+        assertEquals( 2000 , chunks.size() );
+
+        final ConcurrentBoundedRangeModelHub detached = moving;
+        final ConcurrentBoundedRangeModelHub parent   = moving.getParent();
+        runWorkers( new Work() {
+            public void run(int worker) {
+                for(int i = worker ; i < chunks.size() ; i += WORKERS ) {
+                    ConcurrentBoundedRangeModelHub.Fragment chunk = chunks.get(i);
+                    for(int j = 0 ; j < 50 ; j++ ) chunk.increment( 1L );
+                }
+            }
+        } , new Runnable() {
+            public void run() {
+                for(int i = 0 ; i < 100 ; i++ ) {
+                    assertTrue( parent.removeHub( detached ) );
+                    parent.addHub( detached , 1f );
+                }
+            }
+        });
+
+        assertEquals( MAXIMUM , awaitValue( jobMaster   , MAXIMUM ) );
+        assertEquals( MAXIMUM , awaitValue( stageMaster , MAXIMUM ) );
+        job.dispose();
+    }
+
+    /** Two hubs nested in each other concurrently must not deadlock, only one of them is nested
+     */
+    @Test(timeout = 30000)
+    public void nestHubsInEachOther() throws Exception {
+        for(int i = 0 ; i < 2000 ; i++ ) {
+            final ConcurrentBoundedRangeModelHub a       = new ConcurrentBoundedRangeModelHub();
+            final ConcurrentBoundedRangeModelHub b       = new ConcurrentBoundedRangeModelHub();
+            final AtomicInteger                  nested  = new AtomicInteger(0);
+            final CountDownLatch                 start   = new CountDownLatch(1);
+            Thread                               first   = new Nester( a , b , nested , start );
+            Thread                               second  = new Nester( b , a , nested , start );
+            first.start();
+            second.start();
+            start.countDown();
+            first.join( 5000 );
+            second.join( 5000 );
+
+            assertFalse( "deadlock" , first.isAlive() || second.isAlive() );
+            assertEquals( 1 , nested.get() );
+            assertTrue( a.getParent() == b ^ b.getParent() == a );
+        }
+    }
+
+    /** Run the work on 8 workers and an optional concurrent task, then wait all of them
+     */
+    private static void runWorkers(final Work work , final Runnable concurrent) throws Exception {
+        final Throwable[] failure = new Throwable[1];
+        List<Thread>      threads = new ArrayList<Thread>();
+        for(int w = 0 ; w < WORKERS ; w++ ) {
+            final int worker = w;
+            threads.add( new Thread() {
+                @Override
+                public void run() {
+                    work.run( worker );
+                }
+            });
+        }
+        if( concurrent != null ) {
+            threads.add( new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        concurrent.run();
+                    }
+                    catch(Throwable t) {
+                        failure[0] = t;
+                    }
+                }
+            });
+        }
+        for(Thread thread : threads ) thread.start();
+        for(Thread thread : threads ) thread.join();
+        if( failure[0] != null ) throw new AssertionError( failure[0] );
+    }
+
+    /** Wait until the model reach the expected value (published on EDT) and return it's last value
+     */
+    private static int awaitValue(final BoundedRangeModel model , final int expected) throws Exception {
+        final int[]          value   = new int[1];
+        final CountDownLatch reached = new CountDownLatch(1);
+        SwingUtilities.invokeAndWait( new Runnable() {
+            public void run() {
+                model.addChangeListener( new ChangeListener() {
+                    public void stateChanged(ChangeEvent e) {
+                        if( model.getValue() == expected ) reached.countDown();
+                    }
+                });
+                if( model.getValue() == expected ) reached.countDown();
+            }
+        });
+        reached.await( 5 , TimeUnit.SECONDS );
+        SwingUtilities.invokeAndWait( new Runnable() {
+            public void run() {
+                value[0] = model.getValue();
+            }
+        });
+        return value[0];
+    }
+
+    private interface Work {
+        void run(int worker);
+    }
+
+    private static final class Nester extends Thread {
+
+        private final ConcurrentBoundedRangeModelHub parent;
+        private final ConcurrentBoundedRangeModelHub child;
+        private final AtomicInteger                  nested;
+        private final CountDownLatch                 start;
+
+        private Nester(ConcurrentBoundedRangeModelHub parent , ConcurrentBoundedRangeModelHub child , AtomicInteger nested , CountDownLatch start) {
+            this.parent = parent;
+            this.child  = child;
+            this.nested = nested;
+            this.start  = start;
+        }
+
+        @Override
+        public void run() {
+            try {
+                this.start.await();
+                this.parent.addHub( this.child , 1f );
+                this.nested.incrementAndGet();
+            }
+            catch(IllegalArgumentException e) {
+                // the other hub has been nested first
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * EstimationHistoryTest.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing;
+
+import java.io.File;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of {@link EstimationHistory}
+ *
+ * @author Andr Sbastien (divxdede)
+ */
+public class EstimationHistoryTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        this.file = File.createTempFile( "jbusycomponent" , ".history" );
+        this.file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        this.file.delete();
+    }
+
+    /** Appended runs are written in background and loaded again by a new history
+     */
+    @Test
+    public void reloadRecordedRuns() throws Exception {
+        EstimationHistory history = new EstimationHistory( this.file );
+        history.record( "import" , 1000L , 10d );
+        history.record( "import" , 3000L , 30d );
+        history.flush();
+
+        EstimationHistory.Statistics statistics = new EstimationHistory( this.file ).getStatistics( "import" );
+        assertEquals( 2 , statistics.getCount() );
+        assertEquals( 2000d , statistics.getMeanDuration() , 0.001d );
+        assertEquals( 20d , statistics.getMeanThroughput() , 0.001d );
+    }
+
+    /** A compaction replace the file without losing any statistic
+     */
+    @Test
+    public void compactReplaceTheFile() throws Exception {
+        EstimationHistory history = new EstimationHistory( this.file , 1 );
+        for(int i = 1 ; i <= 10 ; i++ ) {
+            history.record( "export" , i * 100L , i );
+        }
+        history.flush();
+
+        assertFalse( new File( this.file.getPath() + ".tmp" ).exists() );
+        assertTrue( this.file.exists() );
+        EstimationHistory.Statistics expected = history.getStatistics( "export" );
+        EstimationHistory.Statistics loaded   = new EstimationHistory( this.file , 1 ).getStatistics( "export" );
+        assertEquals( expected.getCount() , loaded.getCount() );
+        assertEquals( expected.getMeanDuration() , loaded.getMeanDuration() , 0.001d );
+        assertEquals( expected.getDurationDeviation() , loaded.getDurationDeviation() , 0.001d );
+    }
+
+    /** A file that can't be written don't prevent the statistics to be updated
+     */
+    @Test
+    public void keepStatisticsWhenTheFileCantBeWritten() throws Exception {
+        this.file.createNewFile(); // a regular file can't be the directory of the history
+        EstimationHistory history = new EstimationHistory( new File( this.file , "history" ) );
+        history.record( "import" , 1000L , 10d );
+        history.flush();
+
+        assertNotNull( history.getLastError() );
+        assertEquals( 1 , history.getStatistics( "import" ).getCount() );
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * RemainingTimeMonitorTest.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing;
+
+import javax.swing.DefaultBoundedRangeModel;
+import org.divxdede.swing.busy.LongBusyModel;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests of {@link RemainingTimeMonitor}
+ *
+ * @author Andr Sbastien (divxdede)
+ */
+public class RemainingTimeMonitorTest {
+
+    /** The advance ratio is measured from the minimum of the model
+     */
+    @Test
+    public void ratioFromTheMinimum() {
+        assertEquals( 0f   , RemainingTimeMonitor.getRatio( new DefaultBoundedRangeModel( 100 , 0 , 100 , 200 ) ) , 0.0001f );
+        assertEquals( 0.5f , RemainingTimeMonitor.getRatio( new DefaultBoundedRangeModel( 150 , 0 , 100 , 200 ) ) , 0.0001f );
+        assertEquals( 1f   , RemainingTimeMonitor.getRatio( new DefaultBoundedRangeModel( 190 , 10 , 100 , 200 ) ) , 0.0001f );
+
+        assertEquals( 0.5f , RemainingTimeMonitor.getRatio( new LongBusyModel( 3000000000L , 0L , 2000000000L , 4000000000L ) ) , 0.0001f );
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * WeightCalibratorTest.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing;
+
+import java.io.ByteArrayInputStream;
+import javax.swing.BoundedRangeModel;
+import javax.swing.DefaultBoundedRangeModel;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of {@link WeightCalibrator}
+ *
+ * @author Andr Sbastien (divxdede)
+ */
+public class WeightCalibratorTest {
+
+    /** A fragment changed only once at it's completion is measured from the moment it's tracked
+     */
+    @Test
+    public void measureCompletionOnlyFragment() throws Exception {
+        WeightCalibrator  calibrator = new WeightCalibrator();
+        BoundedRangeModel fragment   = new DefaultBoundedRangeModel();
+        calibrator.track( "job" , 1f , fragment );
+
+        Thread.sleep( 50 );
+        fragment.setValue( fragment.getMaximum() );
+
+        assertTrue( "duration " + calibrator.getDuration( "job" ) , calibrator.getDuration( "job" ) >= 40L );
+    }
+
+    /** Fragments created together and run one after the other are measured separately
+     */
+    @Test
+    public void measureSuccessiveFragmentsOfAHub() throws Exception {
+        WeightCalibrator     calibrator = new WeightCalibrator();
+        BoundedRangeModelHub hub        = new BoundedRangeModelHub( new DefaultBoundedRangeModel() );
+        hub.setWeightCalibrator( calibrator );
+        BoundedRangeModel    first      = hub.createFragment( "first"  , 1f );
+        BoundedRangeModel    second     = hub.createFragment( "second" , 1f );
+
+        Thread.sleep( 100 );
+        first.setValue( first.getMaximum() );
+        Thread.sleep( 50 );
+        second.setValue( second.getMaximum() );
+
+        assertTrue( "first "  + calibrator.getDuration( "first" )  , calibrator.getDuration( "first" ) >= 90L );
+        assertTrue( "second " + calibrator.getDuration( "second" ) , calibrator.getDuration( "second" ) >= 40L && calibrator.getDuration( "second" ) < 90L );
+    }
+
+    /** Chained fragments are each measured from the completion of the previous one
+     */
+    @Test
+    public void measureChainedFragments() throws Exception {
+        WeightCalibrator  calibrator = new WeightCalibrator();
+        BoundedRangeModel first      = new DefaultBoundedRangeModel();
+        BoundedRangeModel second     = new DefaultBoundedRangeModel();
+        BoundedRangeModel third      = new DefaultBoundedRangeModel();
+        Object            token      = calibrator.track( "first"  , 1f , first  , null );
+        token                        = calibrator.track( "second" , 1f , second , token );
+        calibrator.track( "third" , 1f , third , token );
+
+        Thread.sleep( 100 );
+        first.setValue( first.getMaximum() );
+        Thread.sleep( 50 );
+        second.setValue( second.getMaximum() );
+        Thread.sleep( 50 );
+        third.setValue( third.getMaximum() );
+
+        assertTrue( "first "  + calibrator.getDuration( "first" )  , calibrator.getDuration( "first" ) >= 90L );
+        assertTrue( "second " + calibrator.getDuration( "second" ) , calibrator.getDuration( "second" ) >= 40L && calibrator.getDuration( "second" ) < 90L );
+        assertTrue( "third "  + calibrator.getDuration( "third" )  , calibrator.getDuration( "third" ) >= 40L && calibrator.getDuration( "third" ) < 90L );
+    }
+
+    /** Malformed entries are skipped when loading
+     */
+    @Test
+    public void skipMalformedEntries() throws Exception {
+        WeightCalibrator calibrator = new WeightCalibrator();
+        calibrator.load( new ByteArrayInputStream( "a.duration=1200\na.weight=2\nb.duration=oops\n".getBytes( "ISO-8859-1" ) ) );
+
+        assertEquals( 1200L , calibrator.getDuration( "a" ) );
+        assertEquals( -1L   , calibrator.getDuration( "b" ) );
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * ConcurrentBusyModelTest.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing.busy;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of {@link ConcurrentBusyModel}
+ *
+ * @author Andr Sbastien (divxdede)
+ */
+public class ConcurrentBusyModelTest {
+
+    /** 4 threads add 100k units each: no update is lost, the auto completion stop the model
+     *  and listeners receive the start and stop events in order with coalesced change events
+     */
+    @Test
+    public void addValueFromManyThreads() throws Exception {
+        final ConcurrentBusyModel model    = new ConcurrentBusyModel( 0 , 0 , 0 , 400000 );
+        final List<String>        actions  = new ArrayList<String>();
+        final AtomicInteger       changes  = new AtomicInteger(0);
+        model.addActionListener( new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                assertTrue( SwingUtilities.isEventDispatchThread() );
+                actions.add( e.getActionCommand() );
+            }
+        });
+        model.addChangeListener( new ChangeListener() {
+            public void stateChanged(ChangeEvent e) {
+                assertTrue( SwingUtilities.isEventDispatchThread() );
+                changes.incrementAndGet();
+            }
+        });
+        model.setDeterminate( true );
+        model.setAutoCompletionEnabled( true );
+        model.setBusy( true );
+
+        Thread[] workers = new Thread[4];
+        for(int i = 0 ; i < workers.length ; i++ ) {
+            workers[i] = new Thread() {
+                @Override
+                public void run() {
+                    for(int j = 0 ; j < 100000 ; j++ ) model.addValue( 1 );
+                }
+            };
+            workers[i].start();
+        }
+        for(int i = 0 ; i < workers.length ; i++ ) workers[i].join();
+        flushEDT();
+
+        assertEquals( 400000 , model.getValue() );
+        assertFalse( model.isBusy() );
+        assertEquals( 2 , actions.size() );
+        assertEquals( BusyModel.START_ACTION_COMMAND , actions.get(0) );
+        assertEquals( BusyModel.STOP_ACTION_COMMAND  , actions.get(1) );
+        assertTrue( "changes " + changes.get() , changes.get() > 0 && changes.get() < 40000 );
+    }
+
+    /** A cancellation stop the busy state in the same update, whatever the workers do,
+     *  and listeners receive the cancel event before the stop event like with the {@link DefaultBusyModel}
+     */
+    @Test
+    public void cancelWhileWorkersAddValues() throws Exception {
+        final ConcurrentBusyModel model   = new ConcurrentBusyModel( 0 , 0 , 0 , Integer.MAX_VALUE );
+        final List<String>        actions = new ArrayList<String>();
+        model.addActionListener( new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                actions.add( e.getActionCommand() );
+            }
+        });
+        model.setDeterminate( true );
+        model.setCancellable( true );
+        model.setBusy( true );
+
+        Thread worker = new Thread() {
+            @Override
+            public void run() {
+                while( model.isBusy() ) model.addValue( 1 );
+            }
+        };
+        worker.start();
+        Thread.sleep( 20 );
+        model.cancel();
+        worker.join( 5000 );
+        flushEDT();
+
+        assertFalse( worker.isAlive() );
+        assertFalse( model.getSnapshot().isBusy() );
+        assertEquals( 3 , actions.size() );
+        assertEquals( BusyModel.START_ACTION_COMMAND  , actions.get(0) );
+        assertEquals( BusyModel.CANCEL_ACTION_COMMAND , actions.get(1) );
+        assertEquals( BusyModel.STOP_ACTION_COMMAND   , actions.get(2) );
+    }
+
+    /** Wait until the pending notifications are dispatched
+     */
+    private static void flushEDT() throws Exception {
+        Runnable empty = new Runnable() {
+            public void run() {
+            }
+        };
+        SwingUtilities.invokeAndWait( empty );
+        SwingUtilities.invokeAndWait( empty );
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * DefaultBusyModelTest.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing.busy;
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.InvocationEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the coalescing mode of {@link DefaultBusyModel}
+ *
+ * @author Andr Sbastien (divxdede)
+ */
+public class DefaultBusyModelTest {
+
+    /** 100k values set by a worker are delivered as a few state changes
+     *  and action events keep their original order
+     */
+    @Test
+    public void coalesceEventsFiredByAWorker() throws Exception {
+        final DefaultBusyModel model   = new DefaultBusyModel();
+        final List<String>     actions = new ArrayList<String>();
+        final AtomicInteger    changes = new AtomicInteger(0);
+        model.setCoalescingEnabled( true );
+        model.addActionListener( new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                assertTrue( SwingUtilities.isEventDispatchThread() );
+                actions.add( e.getActionCommand() );
+            }
+        });
+        model.addChangeListener( new ChangeListener() {
+            public void stateChanged(ChangeEvent e) {
+                assertTrue( SwingUtilities.isEventDispatchThread() );
+                changes.incrementAndGet();
+            }
+        });
+
+        runWorker( new Runnable() {
+            public void run() {
+                model.setMaximum( 100000 );
+                model.setDeterminate( true );
+                model.setCancellable( true );
+                model.setBusy( true );
+                for(int i = 1 ; i <= 100000 ; i++ ) model.setValue( i );
+                model.setBusy( false );
+                model.setBusy( true );
+                model.cancel();
+            }
+        });
+        flushEDT();
+
+        assertEquals( Arrays.asList( BusyModel.START_ACTION_COMMAND , BusyModel.STOP_ACTION_COMMAND  , BusyModel.START_ACTION_COMMAND ,
+                                     BusyModel.CANCEL_ACTION_COMMAND , BusyModel.STOP_ACTION_COMMAND ) , actions );
+        assertTrue( "changes " + changes.get() , changes.get() > 0 && changes.get() < 1000 );
+    }
+
+    /** An event fired directly on the Event Dispatch Thread don't allow a worker to queue another dispatcher
+     *  while the previous one is still pending
+     */
+    @Test
+    public void queueOneDispatcherAfterADirectFire() throws Exception {
+        final DefaultBusyModel model   = new DefaultBusyModel();
+        final AtomicInteger    changes = new AtomicInteger(0);
+        final CountingQueue    queue   = new CountingQueue();
+        final int[]            posted  = new int[1];
+        model.setCoalescingEnabled( true );
+        model.addChangeListener( new ChangeListener() {
+            public void stateChanged(ChangeEvent e) {
+                changes.incrementAndGet();
+            }
+        });
+
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push( queue );
+        try {
+            SwingUtilities.invokeAndWait( new Runnable() {
+                public void run() {
+                    try {
+                        runWorker( setValue( model , 1 ) ); // queue the dispatcher
+                        model.setValue( 2 );                 // fired directly, after the pending change
+                        posted[0] = runWorker( setValue( model , 3 ) , queue );
+                    }
+                    catch(InterruptedException e) {
+                        throw new IllegalStateException( e );
+                    }
+                }
+            });
+            flushEDT();
+        }
+        finally {
+            queue.remove();
+        }
+
+        assertEquals( 0 , posted[0] );
+        assertEquals( 3 , model.getValue() );
+        assertEquals( 3 , changes.get() );
+    }
+
+    private static Runnable setValue(final DefaultBusyModel model , final int value) {
+        return new Runnable() {
+            public void run() {
+                model.setValue( value );
+            }
+        };
+    }
+
+    /** Run a job on a worker thread and wait it's end
+     */
+    private static void runWorker(final Runnable job) throws InterruptedException {
+        Thread worker = new Thread( job );
+        worker.start();
+        worker.join();
+    }
+
+    /** Run a job on a worker thread and return the count of invocations it posted
+     */
+    private static int runWorker(final Runnable job , final CountingQueue queue) throws InterruptedException {
+        Thread worker = new Thread( job );
+        queue.watch( worker );
+        worker.start();
+        worker.join();
+        return queue.watch( null );
+    }
+
+    /** Wait until the pending notifications are dispatched
+     */
+    private static void flushEDT() throws Exception {
+        Runnable empty = new Runnable() {
+            public void run() {
+            }
+        };
+        SwingUtilities.invokeAndWait( empty );
+        SwingUtilities.invokeAndWait( empty );
+    }
+
+    /** Event queue counting the invocations posted by a watched thread
+     */
+    private static class CountingQueue extends EventQueue {
+
+        private volatile Thread      watched = null;
+        private final AtomicInteger  count   = new AtomicInteger(0);
+
+        @Override
+        public void postEvent(AWTEvent event) {
+            if( event instanceof InvocationEvent && Thread.currentThread() == this.watched ) this.count.incrementAndGet();
+            super.postEvent( event );
+        }
+
+        /** Start watching a thread (or stop with <code>null</code>) and return the count of the previous one
+         */
+        int watch(final Thread thread) {
+            this.watched = thread;
+            return this.count.getAndSet( 0 );
+        }
+
+        void remove() {
+            pop();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * FutureTrackerTest.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing.busy;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import javax.swing.SwingWorker;
+import org.junit.Assume;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of {@link FutureTracker}
+ *
+ * @author Andr Sbastien (divxdede)
+ */
+public class FutureTrackerTest {
+
+    /** A plain future is notified once done
+     */
+    @Test
+    public void trackPlainFuture() throws Exception {
+        FutureTask<Object> future = newTask();
+        CountDownLatch     done   = new CountDownLatch(1);
+        FutureTracker.getInstance().track( future , countDown( done ) );
+
+        Thread.sleep( 50 );
+        assertEquals( 1 , done.getCount() );
+        future.run();
+        assertTrue( done.await( 5 , TimeUnit.SECONDS ) );
+    }
+
+    /** A plain future waited by a job (the virtual threads path) is notified on a thread that is not interrupted
+     */
+    @Test
+    public void notifyWaitedFutureWithoutInterrupt() throws Exception {
+        ExecutorService waiters = Executors.newCachedThreadPool();
+        try {
+            FutureTask<Object>   future      = newTask();
+            final CountDownLatch done        = new CountDownLatch(1);
+            final AtomicBoolean  interrupted = new AtomicBoolean(true);
+            FutureTracker.getInstance().track( future , new Runnable() {
+                public void run() {
+                    interrupted.set( Thread.currentThread().isInterrupted() );
+                    done.countDown();
+                }
+            } , waiters );
+
+            Thread.sleep( 50 );
+            future.run();
+            assertTrue( done.await( 5 , TimeUnit.SECONDS ) );
+            assertFalse( "callback interrupted" , interrupted.get() );
+        }
+        finally {
+            waiters.shutdownNow();
+        }
+    }
+
+    /** A SwingWorker is notified by it's state property
+     */
+    @Test
+    public void trackSwingWorker() throws Exception {
+        SwingWorker<Object,Object> worker = new SwingWorker<Object,Object>() {
+            @Override
+            protected Object doInBackground() throws Exception {
+                Thread.sleep( 50 );
+                return null;
+            }
+        };
+        CountDownLatch done = new CountDownLatch(1);
+        FutureTracker.getInstance().track( worker , countDown( done ) );
+        worker.execute();
+        assertTrue( done.await( 5 , TimeUnit.SECONDS ) );
+    }
+
+    /** A CompletionStage is notified by it's completion hook (when the runtime provide it)
+     */
+    @Test
+    public void trackCompletionStage() throws Exception {
+        Class<?> type;
+        try {
+            type = Class.forName( "java.util.concurrent.CompletableFuture" );
+        }
+        catch(ClassNotFoundException e) {
+            type = null;
+        }
+        Assume.assumeTrue( type != null );
+
+        Future<?>      future   = (Future<?>)type.newInstance();
+        Method         complete = type.getMethod( "complete" , Object.class );
+        CountDownLatch done     = new CountDownLatch(1);
+        FutureTracker.getInstance().track( future , countDown( done ) );
+
+        Thread.sleep( 50 );
+        assertEquals( 1 , done.getCount() );
+        complete.invoke( future , "done" );
+        assertTrue( done.await( 5 , TimeUnit.SECONDS ) );
+    }
+
+    /** An already done future is notified immediatly and a cancelled tracking is never notified
+     */
+    @Test
+    public void trackDoneAndCancelledFutures() throws Exception {
+        FutureTask<Object> done = newTask();
+        done.run();
+        AtomicInteger fired = new AtomicInteger(0);
+        FutureTracker.getInstance().track( done , increment( fired ) );
+        assertEquals( 1 , fired.get() );
+
+        FutureTask<Object>     pending  = newTask();
+        FutureTracker.Tracking tracking = FutureTracker.getInstance().track( pending , increment( fired ) );
+        tracking.cancel();
+        pending.run();
+        Thread.sleep( 100 );
+        assertEquals( 1 , fired.get() );
+    }
+
+    /** 1000 futures completed by 8 threads are each notified exactly once
+     */
+    @Test
+    public void trackManyFuturesConcurrently() throws Exception {
+        final int                      count    = 1000;
+        final List<FutureTask<Object>> futures  = new ArrayList<FutureTask<Object>>();
+        final AtomicIntegerArray       notified = new AtomicIntegerArray( count );
+        final CountDownLatch           done     = new CountDownLatch( count );
+        for(int i = 0 ; i < count ; i++ ) {
+            final int index = i;
+            FutureTask<Object> future = newTask();
+            futures.add( future );
+            FutureTracker.getInstance().track( future , new Runnable() {
+                public void run() {
+                    notified.incrementAndGet( index );
+                    done.countDown();
+                }
+            });
+        }
+
+        Thread[] workers = new Thread[8];
+        for(int w = 0 ; w < workers.length ; w++ ) {
+            final int worker = w;
+            workers[w] = new Thread() {
+                @Override
+                public void run() {
+                    for(int i = worker ; i < count ; i += 8 ) futures.get(i).run();
+                }
+            };
+            workers[w].start();
+        }
+        for(int w = 0 ; w < workers.length ; w++ ) workers[w].join();
+
+        assertTrue( done.await( 5 , TimeUnit.SECONDS ) );
+        Thread.sleep( 100 );
+        for(int i = 0 ; i < count ; i++ ) assertEquals( 1 , notified.get(i) );
+    }
+
+    private static FutureTask<Object> newTask() {
+        return new FutureTask<Object>( new Callable<Object>() {
+            public Object call() {
+                return null;
+            }
+        });
+    }
+
+    private static Runnable countDown(final CountDownLatch latch) {
+        return new Runnable() {
+            public void run() {
+                latch.countDown();
+            }
+        };
+    }
+
+    private static Runnable increment(final AtomicInteger counter) {
+        return new Runnable() {
+            public void run() {
+                counter.incrementAndGet();
+            }
+        };
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * StripedBusyModelTest.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing.busy;
+
+import javax.swing.SwingUtilities;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of {@link StripedBusyModel}
+ *
+ * @author Andr Sbastien (divxdede)
+ */
+public class StripedBusyModelTest {
+
+    private static final int WORKERS = 8;
+    private static final int UNITS   = 100000;
+
+    /** 8 workers increment the model: no unit is lost, the value is published and the auto completion stop the model
+     */
+    @Test
+    public void publishConcurrentIncrements() throws Exception {
+        final StripedBusyModel model = new StripedBusyModel();
+        model.setDeterminate( true );
+        model.setAutoCompletionEnabled( true );
+        model.setMaximum( WORKERS * UNITS );
+        model.setBusy( true );
+
+        runWorkers( model , null );
+
+        assertEquals( WORKERS * UNITS , model.getCount() );
+        assertEquals( WORKERS * UNITS , awaitPublished( model ) );
+        assertFalse( model.isBusy() );
+    }
+
+    /** The value defined while workers increment the model is the new base of the counter:
+     *  the final count is between this value and this value plus all the increments, and it is published
+     */
+    @Test
+    public void setValueWhileIncrementing() throws Exception {
+        final StripedBusyModel model = new StripedBusyModel();
+        model.setDeterminate( true );
+        model.setMaximum( Integer.MAX_VALUE );
+        model.setBusy( true );
+
+        runWorkers( model , new Runnable() {
+            public void run() {
+                for(int i = 0 ; i < 100 ; i++ ) {
+                    model.setValue( 1000 );
+                    Thread.yield();
+                }
+            }
+        });
+
+        long count = model.getCount();
+        assertTrue( "count " + count , count >= 1000L && count <= 1000L + WORKERS * UNITS );
+        assertEquals( count , awaitPublished( model ) );
+    }
+
+    /** Run 8 workers incrementing the model and an optional concurrent task, then wait all of them
+     */
+    private static void runWorkers(final StripedBusyModel model , final Runnable concurrent) throws Exception {
+        Thread[] threads = new Thread[ concurrent == null ? WORKERS : WORKERS + 1 ];
+        for(int i = 0 ; i < WORKERS ; i++ ) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for(int u = 0 ; u < UNITS ; u++ ) model.increment();
+                }
+            };
+        }
+        if( concurrent != null ) threads[WORKERS] = new Thread( concurrent );
+        for(int i = 0 ; i < threads.length ; i++ ) threads[i].start();
+        for(int i = 0 ; i < threads.length ; i++ ) threads[i].join();
+    }
+
+    /** Wait until the counter is published as the model value and return this value
+     */
+    private static long awaitPublished(final StripedBusyModel model) throws Exception {
+        final int[] value    = new int[1];
+        long        deadline = System.nanoTime() + 5000000000L;
+        do {
+            Thread.sleep( 20 );
+            SwingUtilities.invokeAndWait( new Runnable() {
+                public void run() {
+                    value[0] = model.getValue();
+                }
+            });
+        } while( value[0] != model.getCount() && System.nanoTime() - deadline < 0L );
+        return value[0];
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * BasicBusyLayerUITest.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing.busy.ui;
+
+import java.io.File;
+import javax.swing.SwingUtilities;
+import org.divxdede.swing.EstimationHistory;
+import org.divxdede.swing.busy.DefaultBusyModel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Tests of {@link BasicBusyLayerUI}
+ *
+ * @author Andr Sbastien (divxdede)
+ */
+public class BasicBusyLayerUITest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        this.file = File.createTempFile( "jbusycomponent" , ".history" );
+        this.file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        this.file.delete();
+    }
+
+    /** Runs ended as usual (value set to the maximum, then the model become idle) before the sampled monitor
+     *  read the completed value must be recorded in the history.
+     */
+    @Test
+    public void recordRunsInEstimationHistory() throws Exception {
+        final EstimationHistory history = new EstimationHistory( this.file );
+        final DefaultBusyModel  model   = new DefaultBusyModel();
+        final BasicBusyLayerUI  ui      = onEDT( new Callable<BasicBusyLayerUI>() {
+            public BasicBusyLayerUI call() {
+                BasicBusyLayerUI ui = new BasicBusyLayerUI();
+                ui.setBusyModel( model );
+                ui.setRemainingTimeVisible( true );
+                ui.setEstimationHistory( history , "import" );
+                return ui;
+            }
+        });
+
+        for(int run = 0 ; run < 2 ; run++ ) {
+            onEDT( new Callable<Object>() {
+                public Object call() {
+                    model.setDeterminate( true );
+                    model.setValue( model.getMinimum() );
+                    model.setBusy( true );
+                    ui.isComponentBusy();
+                    return null;
+                }
+            });
+            Thread.sleep( 30 );
+            onEDT( new Callable<Object>() {
+                public Object call() {
+                    model.setValue( model.getMaximum() );
+                    model.setBusy( false );
+                    ui.isComponentBusy();
+                    return null;
+                }
+            });
+        }
+
+        EstimationHistory.Statistics statistics = history.getStatistics( "import" );
+        assertNotNull( "runs not recorded" , statistics );
+        assertEquals( 2 , statistics.getCount() );
+    }
+
+    private static <T> T onEDT(final Callable<T> callable) throws Exception {
+        final Object[] result = new Object[1];
+        SwingUtilities.invokeAndWait( new Runnable() {
+            public void run() {
+                result[0] = callable.call();
+            }
+        });
+        @SuppressWarnings("unchecked")
+        T value = (T)result[0];
+        return value;
+    }
+
+    private interface Callable<T> {
+        T call();
+    }
+}
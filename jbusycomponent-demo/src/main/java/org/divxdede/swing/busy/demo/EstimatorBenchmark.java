@@ -0,0 +1,163 @@
+package org.divxdede.swing.busy.demo;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Random;
+import org.divxdede.swing.AverageRateEstimator;
+import org.divxdede.swing.EwmaRateEstimator;
+import org.divxdede.swing.LinearRegressionEstimator;
+import org.divxdede.swing.MedianRateEstimator;
+import org.divxdede.swing.ProgressSamples;
+import org.divxdede.swing.RemainingTimeEstimator;
+
+/**
+ * Compare the accuracy and the cost of the {@link RemainingTimeEstimator} implementations on progress traces.
+ * <p>
+ * Traces are recorded from a seeded simulation of typical tasks (steady, slowing down, bursty, warming up) sampled once per second.<br>
+ * Simulated traces only reproduce the shapes they are written for, so the benchmark also replays a trace captured from a real task
+ * (<code>compress-trace.txt</code>: a LZMA compression of a JDK installation, see the resource header).<br>
+ * Each trace is replayed through a 10 samples window like the <code>RemainingTimeMonitor</code> one and the estimations are compared to the real remaining time:
+ * <ul>
+ *   <li><strong>error</strong>: mean relative error of the estimated remaining time</li>
+ *   <li><strong>coverage</strong>: part of the estimations whose confidence interval contains the real remaining time</li>
+ *   <li><strong>cost</strong>: time of one estimation</li>
+ * </ul>
+ *
+ * @author Andr Sbastien (divxdede)
+ */
+public class EstimatorBenchmark {
+
+    private static final String[]                 TRACES     = { "steady" , "slowdown" , "bursty" , "warmup" , "compress" };
+    private static final String[]                 NAMES      = { "average" , "ewma" , "regression" , "median" };
+    private static final RemainingTimeEstimator[] ESTIMATORS = { new AverageRateEstimator() , new EwmaRateEstimator() ,
+                                                                 new LinearRegressionEstimator() , new MedianRateEstimator() };
+
+    public static void main(String[] args) throws IOException {
+        for(int t = 0 ; t < TRACES.length ; t++ ) {
+            double[][] trace = TRACES[t].equals("compress") ? load( "/compress-trace.txt" ) : record( TRACES[t] , new Random( 42L + t ) );
+            System.out.println( TRACES[t] + " (" + trace[0].length + " samples, " + (long)( trace[0][ trace[0].length - 1 ] / 1000 ) + "s)" );
+            for(int e = 0 ; e < ESTIMATORS.length ; e++ ) {
+                System.out.println( "  " + pad( NAMES[e] ) + replay( trace , ESTIMATORS[e] ) );
+            }
+        }
+        System.exit(0);
+    }
+
+    /** Record a trace: times (ms) and progression ratios at each sample boundary
+     */
+    private static double[][] record(final String kind , final Random random) {
+        double[] times  = new double[4096];
+        double[] ratios = new double[4096];
+        int      count  = 1;
+        double   time   = 0d;
+        double   ratio  = 0d;
+        double   base   = 1d / 300000d; // 5 minutes at nominal speed
+
+        while( ratio < 1d && count < times.length ) {
+            double duration = 1000d * ( 0.9d + 0.2d * random.nextDouble() );
+            double rate;
+            if( kind.equals("steady") ) {
+                rate = base;
+            }
+            else if( kind.equals("slowdown") ) {
+                rate = base * ( 1.5d - ratio );
+            }
+            else if( kind.equals("bursty") ) {
+                rate = random.nextDouble() < 0.25d ? 0d : base * 1.33d;
+            }
+            else {
+                rate = ratio < 0.2d ? base * 0.3d : base * 1.5d;
+            }
+            double noise = 0.8d + 0.4d * random.nextDouble();
+            time  += duration;
+            ratio  = Math.min( 1d , ratio + rate * duration * noise );
+            times[count]  = time;
+            ratios[count] = ratio;
+            count++;
+        }
+        double[][] trace = new double[2][count];
+        System.arraycopy( times , 0 , trace[0] , 0 , count );
+        System.arraycopy( ratios , 0 , trace[1] , 0 , count );
+        return trace;
+    }
+
+    /** Load a captured trace: one sample boundary per line (time in ms and progression ratio), lines starting by '#' are comments
+     */
+    private static double[][] load(final String resource) throws IOException {
+        InputStream in = EstimatorBenchmark.class.getResourceAsStream( resource );
+        if( in == null ) throw new IOException("trace not found: " + resource);
+
+        double[] times  = new double[4096];
+        double[] ratios = new double[4096];
+        int      count  = 0;
+        try {
+            BufferedReader reader = new BufferedReader( new InputStreamReader( in , "ISO-8859-1" ) );
+            String         line;
+            while( ( line = reader.readLine() ) != null && count < times.length ) {
+                line = line.trim();
+                if( line.length() == 0 || line.startsWith("#") ) continue;
+                String[] columns = line.split("\\s+");
+                times[count]  = Double.parseDouble( columns[0] );
+                ratios[count] = Double.parseDouble( columns[1] );
+                count++;
+            }
+        }
+        finally {
+            in.close();
+        }
+        double[][] trace = new double[2][count];
+        System.arraycopy( times , 0 , trace[0] , 0 , count );
+        System.arraycopy( ratios , 0 , trace[1] , 0 , count );
+        return trace;
+    }
+
+    /** Replay a trace with an estimator
+     */
+    private static String replay(final double[][] trace , final RemainingTimeEstimator estimator) {
+        double[]        times   = trace[0];
+        double[]        ratios  = trace[1];
+        double          end     = times[ times.length - 1 ];
+        ProgressSamples samples = new ProgressSamples(10);
+        double          error   = 0d;
+        int             covered = 0;
+        int             count   = 0;
+
+        for(int i = 1 ; i < times.length ; i++ ) {
+            samples.add( (long)times[i - 1] , ratios[i - 1] , (long)times[i] , ratios[i] );
+            if( i < 3 || ratios[i] >= 0.95d ) continue;
+
+            RemainingTimeEstimator.Estimation estimation = estimator.estimate( samples , 1d - ratios[i] );
+            double real = end - times[i];
+            double estimated = estimation.getRemainingTime() == Long.MAX_VALUE ? 10d * real : estimation.getRemainingTime();
+            error += Math.min( 10d , Math.abs( estimated - real ) / real );
+            if( estimation.getLowerBound() <= real && real <= estimation.getUpperBound() ) covered++;
+            count++;
+        }
+
+        /** Cost on a full window
+         */
+        int  loops = 200000;
+        long sink  = 0L;
+        long start = System.nanoTime();
+        for(int i = 0 ; i < loops ; i++ ) {
+            sink += estimator.estimate( samples , 0.5d ).getRemainingTime();
+        }
+        long cost = ( System.nanoTime() - start ) / loops;
+
+        return "error " + pct( error / count ) + "  coverage " + pct( (double)covered / count ) + "  cost " + cost + " ns" + ( sink == 42L ? " " : "" );
+    }
+
+    private static String pct(final double value) {
+        String s = Math.round( value * 1000d ) / 10d + "%";
+        while( s.length() < 7 ) s = " " + s;
+        return s;
+    }
+
+    private static String pad(final String value) {
+        StringBuilder s = new StringBuilder( value );
+        while( s.length() < 12 ) s.append(' ');
+        return s.toString();
+    }
+}
@@ -0,0 +1,80 @@
+package org.divxdede.swing.busy.demo;
+
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import org.divxdede.swing.busy.DefaultBusyModel;
+import org.divxdede.swing.busy.StripedBusyModel;
+
+/**
+ * Measure the cost of reporting units of work from many threads and the number of events received by listeners.
+ * <ul>
+ *   <li><strong>before</strong>: each worker do a synchronized <code>setValue( getValue() + 1 )</code> on a {@link DefaultBusyModel}</li>
+ *   <li><strong>after</strong>: each worker do an <code>increment()</code> on a {@link StripedBusyModel}</li>
+ * </ul>
+ *
+ * @author Andr Sbastien (divxdede)
+ */
+public class StripedCounterBenchmark {
+
+    private static final int   UNITS_PER_THREAD = 50000;
+    private static final int[] THREADS          = { 1 , 2 , 4 , 8 , 16 , 32 };
+
+    public static void main(String[] args) throws Exception {
+        // warm-up
+        run( false , 4 );
+        run( true , 4 );
+
+        for(int i = 0 ; i < THREADS.length ; i++ ) {
+            System.out.println( THREADS[i] + " threads" );
+            System.out.println( "  before (synchronized setValue) : " + run( false , THREADS[i] ) );
+            System.out.println( "  after  (striped increment)     : " + run( true , THREADS[i] ) );
+        }
+        System.exit(0);
+    }
+
+    private static String run(final boolean striped , final int threads) throws Exception {
+        final DefaultBusyModel model = striped ? new StripedBusyModel() : new DefaultBusyModel();
+        final int[]            events = { 0 };
+        model.setDeterminate(true);
+        model.setMaximum( UNITS_PER_THREAD * threads );
+        model.setBusy(true);
+        model.addChangeListener( new ChangeListener() {
+            public void stateChanged(ChangeEvent e) {
+                events[0]++;
+            }
+        });
+
+        Thread[] workers = new Thread[threads];
+        for(int i = 0 ; i < threads ; i++ ) {
+            workers[i] = new Thread() {
+                @Override
+                public void run() {
+                    for(int u = 0 ; u < UNITS_PER_THREAD ; u++ ) {
+                        if( striped ) {
+                            ((StripedBusyModel)model).increment();
+                        }
+                        else {
+                            synchronized( model ) {
+                                model.setValue( model.getValue() + 1 );
+                            }
+                        }
+                    }
+                }
+            };
+        }
+        long start = System.nanoTime();
+        for(int i = 0 ; i < threads ; i++ ) workers[i].start();
+        for(int i = 0 ; i < threads ; i++ ) workers[i].join();
+        long time = System.nanoTime() - start;
+
+        // let the last publication and pending events be delivered
+        Thread.sleep( 200 );
+        SwingUtilities.invokeAndWait( new Runnable() {
+            public void run() {
+            }
+        });
+        long units = (long)UNITS_PER_THREAD * threads;
+        return ( time / units ) + " ns/unit, " + events[0] + " change events, final value " + model.getValue() + "/" + units;
+    }
+}
@@ -0,0 +1,79 @@
+package org.divxdede.swing.busy.demo;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.divxdede.swing.busy.BusyExecutors;
+import org.divxdede.swing.busy.FutureBusyModel;
+
+/**
+ * Measure the threads and the memory needed for tracking 10k tasks with one {@link FutureBusyModel} per task.
+ * <ul>
+ *   <li><strong>before</strong>: each tracked task park a dedicated platform thread in <code>Future.get()</code> (former <code>FutureBusyModel</code> design)</li>
+ *   <li><strong>after</strong>: tasks run on {@link BusyExecutors} and are tracked by the shared tracker</li>
+ * </ul>
+ * Run it with a Java 8~17 runtime (platform threads) and with a Java 21 runtime (virtual threads from the multi-release jar) for comparing.
+ * <p>
+ * Usage: <code>TrackedTasksBenchmark [tasks] [task duration in ms]</code>
+ *
+ * @author Andr Sbastien (divxdede)
+ */
+public class TrackedTasksBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int tasks    = args.length > 0 ? Integer.parseInt( args[0] ) : 10000;
+        int duration = args.length > 1 ? Integer.parseInt( args[1] ) : 5;
+
+        System.out.println( "Java " + System.getProperty("java.version") + ", virtual threads: " + BusyExecutors.isVirtual() + ", " + tasks + " tasks of " + duration + "ms" );
+        System.out.println( "  before (one parked thread per task) : " + run( true , tasks , duration ) );
+        System.out.println( "  after  (shared tracker)             : " + run( false , tasks , duration ) );
+        System.exit(0);
+    }
+
+    private static String run(final boolean parked , final int tasks , final int duration) throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memory  = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long usedBefore = memory.getHeapMemoryUsage().getUsed();
+        threads.resetPeakThreadCount();
+
+        FutureBusyModel[] models   = new FutureBusyModel[tasks];
+        ExecutorService[] trackers = parked ? new ExecutorService[tasks] : null;
+        long              start    = System.nanoTime();
+
+        for(int i = 0 ; i < tasks ; i++ ) {
+            final Future<?> task = BusyExecutors.getExecutor().submit( new Callable<Object>() {
+                public Object call() throws Exception {
+                    Thread.sleep( duration );
+                    return null;
+                }
+            });
+            models[i] = new FutureBusyModel();
+            if( parked ) {
+                trackers[i] = Executors.newSingleThreadExecutor();
+                trackers[i].submit( new Callable<Object>() {
+                    public Object call() throws Exception {
+                        return task.get();
+                    }
+                });
+            }
+            models[i].setFuture( task );
+        }
+        long used = memory.getHeapMemoryUsage().getUsed() - usedBefore;
+
+        for(int i = 0 ; i < tasks ; i++ ) {
+            while( models[i].isBusy() ) Thread.sleep(1);
+        }
+        long time = ( System.nanoTime() - start ) / 1000000L;
+
+        for(int i = 0 ; i < tasks ; i++ ) {
+            models[i].dispose();
+            if( parked ) trackers[i].shutdownNow();
+        }
+        return "peak " + threads.getPeakThreadCount() + " platform threads, ~" + ( used / 1024 / 1024 ) + " MB heap, all idle after " + time + "ms";
+    }
+}
@@ -0,0 +1,80 @@
+package org.divxdede.swing.busy.demo;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import org.divxdede.swing.busy.ui.Veil;
+import org.jdesktop.swingx.painter.MattePainter;
+
+/**
+ * Measure the allocation and time of one veil shading frame.
+ * <ul>
+ *   <li><strong>before</strong>: a new Color and a new MattePainter at each frame (previous BasicBusyLayerUI behaviour)</li>
+ *   <li><strong>after</strong>: one {@link Veil} reused for all frames, only it's alpha level change</li>
+ * </ul>
+ * Allocations are measured with <code>com.sun.management.ThreadMXBean</code> when the JVM provides it.
+ *
+ * @author Andr Sbastien (divxdede)
+ */
+public class VeilFadeBenchmark {
+
+    private static final int   WIDTH      = 640;
+    private static final int   HEIGHT     = 480;
+    private static final int   FRAMES     = 2000;
+    private static final float VEIL_ALPHA = 0.85f;
+    private static final Color VEIL_COLOR = Color.WHITE;
+
+    public static void main(String[] args) {
+        BufferedImage image = new BufferedImage( WIDTH , HEIGHT , BufferedImage.TYPE_INT_ARGB_PRE );
+        Graphics2D    g2d   = image.createGraphics();
+        Veil          veil  = new Veil( Veil.createPainter( VEIL_COLOR ) );
+
+        // warm-up
+        before(g2d , FRAMES);
+        after(g2d , veil , FRAMES);
+
+        report( "before (new MattePainter per frame)" , g2d , null );
+        report( "after  (shared veil)               " , g2d , veil );
+
+        g2d.dispose();
+        System.exit(0);
+    }
+
+    private static void report(String name , Graphics2D g2d , Veil veil) {
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+        if( veil == null ) before( g2d , FRAMES );
+        else               after( g2d , veil , FRAMES );
+        long time  = System.nanoTime() - start;
+        if( bytes >= 0 ) bytes = allocatedBytes() - bytes;
+
+        System.out.println( name + " : " + ( bytes < 0 ? "n/a" : String.valueOf( bytes / FRAMES ) ) + " bytes/frame, " +
+                            ( time / FRAMES ) + " ns/frame" );
+    }
+
+    private static void before(Graphics2D g2d , int frames) {
+        for(int i = 0 ; i < frames ; i++ ) {
+            int alpha = (int)( ( i % 256 ) * VEIL_ALPHA );
+            MattePainter painter = new MattePainter( new Color( VEIL_COLOR.getRed() , VEIL_COLOR.getGreen() , VEIL_COLOR.getBlue() , alpha ) );
+            painter.paint( g2d , null , WIDTH , HEIGHT );
+        }
+    }
+
+    private static void after(Graphics2D g2d , Veil veil , int frames) {
+        for(int i = 0 ; i < frames ; i++ ) {
+            veil.setAlpha( (int)( ( i % 256 ) * VEIL_ALPHA ) );
+            veil.paint( g2d , WIDTH , HEIGHT );
+        }
+    }
+
+    /** Return the bytes allocated by the current thread or -1 if this measure is not available
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if( bean instanceof com.sun.management.ThreadMXBean ) {
+            return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes( Thread.currentThread().getId() );
+        }
+        return -1L;
+    }
+}
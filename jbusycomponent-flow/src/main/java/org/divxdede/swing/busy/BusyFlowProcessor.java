@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * BusyFlowProcessor.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing.busy;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.swing.SwingUtilities;
+import org.divxdede.swing.AnimationClock;
+import org.divxdede.swing.LongBoundedRangeModel;
+
+/**
+ * A {@link Flow.Processor} reflecting the progression of a reactive stream in a {@link BusyModel}.
+ * <p>
+ * This processor count the elements it receive and publish the count as the model value on the <code>Event Dispatch Thread</code>
+ * at frame rate using the shared {@link AnimationClock}, whatever the elements rate is.<br>
+ * If an expected count of elements is given, the model is <code>determinate</code> with this count as maximum.
+ * <p>
+ * The stream signals are mapped onto the model:
+ * <ul>
+ *   <li><code>onSubscribe</code>: the model become busy ({@link BusyModel#START_ACTION_ID})</li>
+ *   <li><code>onComplete</code> and <code>onError</code>: the model become idle ({@link BusyModel#STOP_ACTION_ID}), the error is available with {@link #getError()}</li>
+ *   <li>cancelling the model ({@link BusyModel#CANCEL_ACTION_ID}) cancel the upstream subscription</li>
+ * </ul>
+ * Signals to the downstream subscriber are serialized: the <code>onError</code> following a cancellation from the model
+ * is never emitted while an <code>onNext</code> is running, it is emitted by the upstream thread once it return if needed.
+ * <p>
+ * When a downstream subscriber is subscribed <strong>before</strong> this processor subscribe to it's upstream publisher,
+ * elements are passed through and the downstream demand is forwarded upstream.<br>
+ * Otherwise this processor is a terminal subscriber: it request elements by batch (see {@link #setBatchSize(int)}) as it consume them.
+ * <p>
+ * This class requires Java 9 and is shipped in the separate <code>jbusycomponent-flow</code> artifact.
+ * <p>
+ * Exemple:
+ * <pre>
+ *          BusyFlowProcessor&lt;Item&gt; progress = new BusyFlowProcessor&lt;Item&gt;( busyComponent.getBusyModel() , items.size() );
+ *          progress.subscribe( storeSubscriber );
+ *          publisher.subscribe( progress );
+ * </pre>
+ *
+ * @author Andr Sbastien (divxdede)
+ * @since 1.2.4
+ */
+public class BusyFlowProcessor<T> implements Flow.Processor<T,T> {
+
+    /** Delay between two publications of the count (one frame)
+     */
+    private static final int                  PUBLISH_DELAY = 16;
+    private static final int                  DEFAULT_BATCH = 64;
+
+    private final BusyModel                   model;
+    private final long                        expected;
+    private final AtomicLong                  count         = new AtomicLong(0L);
+    private final AtomicBoolean               terminated    = new AtomicBoolean(false);
+    private final ActionListener              publisher     = new Publisher();
+    private final ActionListener              canceller     = new Canceller();
+
+    /** Serialized emission to the downstream: count of pending emissions and pending cancellation error
+     */
+    private final AtomicInteger               emitting      = new AtomicInteger(0);
+    private volatile Throwable                cancellation  = null;
+    private volatile boolean                  emitted       = false;
+
+    private volatile Flow.Subscription        upstream      = null;
+    private volatile Flow.Subscriber<? super T> downstream  = null;
+    private volatile Throwable                error         = null;
+    private volatile int                      batchSize     = DEFAULT_BATCH;
+    private long                              outstanding   = 0L;
+
+    /** Create a processor reflecting an undeterminate stream
+     *  @param model BusyModel to drive
+     */
+    public BusyFlowProcessor(final BusyModel model) {
+        this( model , -1L );
+    }
+
+    /** Create a processor reflecting a stream of an expected count of elements
+     *  @param model BusyModel to drive
+     *  @param expected Expected count of elements, the model is determinate if it's positive
+     */
+    public BusyFlowProcessor(final BusyModel model , final long expected) {
+        if( model == null ) throw new NullPointerException();
+        this.model    = model;
+        this.expected = expected;
+    }
+
+    /** Define how many elements are requested at a time when this processor is a terminal subscriber
+     *  @param size Count of elements requested at a time
+     */
+    public void setBatchSize(final int size) {
+        this.batchSize = Math.max( 1 , size );
+    }
+
+    /** Return how many elements are requested at a time when this processor is a terminal subscriber
+     *  @return Count of elements requested at a time
+     */
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    /** Return the count of elements received
+     *  @return count of elements received
+     */
+    public long getCount() {
+        return this.count.get();
+    }
+
+    /** Return the error that terminated the stream, if any
+     *  @return error that terminated the stream or null
+     */
+    public Throwable getError() {
+        return this.error;
+    }
+
+    public void subscribe(final Flow.Subscriber<? super T> subscriber) {
+        if( subscriber == null ) throw new NullPointerException();
+        if( this.downstream != null || this.upstream != null ) {
+            subscriber.onSubscribe( new Flow.Subscription() {
+                public void request(long n) {
+                }
+                public void cancel() {
+                }
+            });
+            subscriber.onError( new IllegalStateException("BusyFlowProcessor supports only one subscriber subscribed before the upstream") );
+            return;
+        }
+        this.downstream = subscriber;
+        subscriber.onSubscribe( new Flow.Subscription() {
+            public void request(long n) {
+                Flow.Subscription subscription;
+                synchronized(BusyFlowProcessor.this) {
+                    subscription = upstream;
+                    if( subscription == null ) {
+                        outstanding = outstanding + n < 0L ? Long.MAX_VALUE : outstanding + n;
+                        return;
+                    }
+                }
+                subscription.request(n);
+            }
+            public void cancel() {
+                cancelUpstream();
+            }
+        });
+    }
+
+    public void onSubscribe(final Flow.Subscription subscription) {
+        long toRequest;
+        synchronized(this) {
+            if( this.upstream != null || this.terminated.get() ) {
+                subscription.cancel();
+                return;
+            }
+            this.upstream = subscription;
+
+            if( this.downstream != null ) {
+                /** Forward the demand received from the downstream before this subscription
+                 */
+                toRequest = this.outstanding;
+                this.outstanding = 0L;
+            }
+            else {
+                toRequest = this.batchSize;
+                this.outstanding = toRequest;
+            }
+        }
+
+        SwingUtilities.invokeLater( new Runnable() {
+            public void run() {
+                start();
+            }
+        });
+        if( toRequest > 0L ) subscription.request( toRequest );
+    }
+
+    public void onNext(final T item) {
+        if( this.terminated.get() ) return;
+        this.count.incrementAndGet();
+
+        Flow.Subscriber<? super T> subscriber = this.downstream;
+        if( subscriber != null ) {
+            emitNext( subscriber , item );
+            return;
+        }
+
+        /** Terminal subscriber: request a new half batch once half of the outstanding demand is consumed
+         */
+        long toRequest = 0L;
+        synchronized(this) {
+            this.outstanding--;
+            int half = Math.max( 1 , this.batchSize / 2 );
+            if( this.outstanding <= this.batchSize - half ) {
+                toRequest = this.batchSize - this.outstanding;
+                this.outstanding = this.batchSize;
+            }
+        }
+        if( toRequest > 0L ) this.upstream.request( toRequest );
+    }
+
+    public void onError(final Throwable throwable) {
+        if( ! this.terminated.compareAndSet( false , true ) ) return;
+        this.error = throwable;
+
+        Flow.Subscriber<? super T> subscriber = this.downstream;
+        if( subscriber != null ) subscriber.onError( throwable );
+        stop();
+    }
+
+    public void onComplete() {
+        if( ! this.terminated.compareAndSet( false , true ) ) return;
+
+        Flow.Subscriber<? super T> subscriber = this.downstream;
+        if( subscriber != null ) subscriber.onComplete();
+        stop();
+    }
+
+    /** Cancel the upstream subscription
+     *  @return true if the stream was cancelled by this call
+     */
+    private boolean cancelUpstream() {
+        if( ! this.terminated.compareAndSet( false , true ) ) return false;
+
+        Flow.Subscription subscription = this.upstream;
+        if( subscription != null ) subscription.cancel();
+        stop();
+        return true;
+    }
+
+    /** Emit an element to the downstream, unless the cancellation error is being or has been emitted
+     */
+    private void emitNext(final Flow.Subscriber<? super T> subscriber , final T item) {
+        if( ! this.emitting.compareAndSet( 0 , 1 ) ) return; // the cancellation error is being emitted
+        if( ! this.emitted ) subscriber.onNext( item );
+
+        int missed = this.emitting.decrementAndGet();
+        if( missed != 0 ) drain( missed );
+    }
+
+    /** Emit the cancellation error to the downstream, or let the thread currently emitting an element do it
+     */
+    private void emitCancellation(final Throwable throwable) {
+        this.cancellation = throwable;
+        if( this.emitting.getAndIncrement() == 0 ) drain( 1 );
+    }
+
+    /** Emit the pending cancellation error while this thread own the emission
+     *  @param missed count of emissions requested since this thread own the emission
+     */
+    private void drain(int missed) {
+        while( true ) {
+            Throwable throwable = this.cancellation;
+            if( throwable != null && ! this.emitted ) {
+                this.emitted = true;
+                Flow.Subscriber<? super T> subscriber = this.downstream;
+                if( subscriber != null ) subscriber.onError( throwable );
+            }
+            missed = this.emitting.addAndGet( -missed );
+            if( missed == 0 ) return;
+        }
+    }
+
+    /** Start to reflect the stream (on EDT)
+     */
+    private void start() {
+        this.model.addActionListener( this.canceller );
+        this.model.setCancellable(true);
+        if( this.expected > 0L ) {
+            this.model.setDeterminate(true);
+            if( this.model instanceof LongBoundedRangeModel ) {
+                ((LongBoundedRangeModel)this.model).setLongRangeProperties( 0L , 0L , 0L , this.expected , false );
+            }
+            else {
+                this.model.setRangeProperties( 0 , 0 , 0 , (int)Math.min( Integer.MAX_VALUE , this.expected ) , false );
+            }
+        }
+        else {
+            this.model.setDeterminate(false);
+        }
+        this.model.setBusy(true);
+        AnimationClock.getInstance().subscribe( this.publisher , PUBLISH_DELAY );
+    }
+
+    /** Stop to reflect the stream
+     */
+    private void stop() {
+        SwingUtilities.invokeLater( new Runnable() {
+            public void run() {
+                AnimationClock.getInstance().unsubscribe( publisher );
+                model.removeActionListener( canceller );
+                publish();
+                model.setBusy(false);
+            }
+        });
+    }
+
+    /** Publish the count as the model value (on EDT)
+     */
+    private void publish() {
+        if( ! this.model.isDeterminate() ) return;
+
+        long value = this.count.get();
+        if( this.model instanceof LongBoundedRangeModel ) {
+            ((LongBoundedRangeModel)this.model).setLongValue( value );
+        }
+        else {
+            this.model.setValue( (int)Math.min( Integer.MAX_VALUE , value ) );
+        }
+    }
+
+    /** Listener receiving a pulse from the {@link AnimationClock} once per frame while the stream is running
+     */
+    private class Publisher implements ActionListener {
+
+        public void actionPerformed(ActionEvent e) {
+            publish();
+        }
+    }
+
+    /** Listener of the model cancel action
+     */
+    private class Canceller implements ActionListener {
+
+        public void actionPerformed(ActionEvent e) {
+            if( e.getID() == BusyModel.CANCEL_ACTION_ID && cancelUpstream() ) {
+                /** The downstream won't receive more elements
+                 */
+                if( downstream != null ) emitCancellation( new CancellationException("cancelled from the BusyModel") );
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2010 ANDRE Sbastien (divxdede).  All rights reserved.
+ * BusyFlowProcessorTest.java is a part of this JBusyComponent library
+ * ====================================================================
+ *
+ * JBusyComponent library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or any later version.
+ *
+ * This is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.divxdede.swing.busy;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.swing.SwingUtilities;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of {@link BusyFlowProcessor}
+ *
+ * @author Andr Sbastien (divxdede)
+ */
+public class BusyFlowProcessorTest {
+
+    /** A cancellation from the model while the upstream thread is inside onNext must not emit onError concurrently
+     */
+    @Test
+    public void cancellationIsSerializedWithOnNext() throws Exception {
+        for(int run = 0 ; run < 50 ; run++ ) {
+            final DefaultBusyModel                   model     = new DefaultBusyModel();
+            final BusyFlowProcessor<Integer>         processor = new BusyFlowProcessor<Integer>( model , 1000000L );
+            final AtomicInteger                      inside    = new AtomicInteger(0);
+            final AtomicInteger                      overlaps  = new AtomicInteger(0);
+            final AtomicReference<Throwable>         error     = new AtomicReference<Throwable>();
+            final CountDownLatch                     done      = new CountDownLatch(1);
+            final AtomicBoolean                      cancelled = new AtomicBoolean(false);
+
+            processor.subscribe( new Flow.Subscriber<Integer>() {
+                public void onSubscribe(Flow.Subscription subscription) {
+                    subscription.request( Long.MAX_VALUE );
+                }
+                public void onNext(Integer item) {
+                    if( inside.incrementAndGet() != 1 || error.get() != null ) overlaps.incrementAndGet();
+                    for(int i = 0 ; i < 200 ; i++ ) Thread.onSpinWait();
+                    inside.decrementAndGet();
+                }
+                public void onError(Throwable throwable) {
+                    if( inside.incrementAndGet() != 1 ) overlaps.incrementAndGet();
+                    error.set( throwable );
+                    inside.decrementAndGet();
+                    done.countDown();
+                }
+                public void onComplete() {
+                    done.countDown();
+                }
+            });
+            processor.onSubscribe( new Flow.Subscription() {
+                public void request(long n) {
+                }
+                public void cancel() {
+                    cancelled.set(true);
+                }
+            });
+
+            Thread upstream = new Thread() {
+                @Override
+                public void run() {
+                    for(int i = 0 ; i < 1000000 && ! cancelled.get() ; i++ ) processor.onNext( i );
+                }
+            };
+            upstream.start();
+            Thread.sleep( 2 );
+            SwingUtilities.invokeAndWait( new Runnable() {
+                public void run() {
+                    model.setCancellable(true);
+                    model.cancel();
+                }
+            });
+            upstream.join();
+
+            assertTrue( "no terminal signal" , done.await( 5 , TimeUnit.SECONDS ) );
+            assertEquals( "concurrent signals" , 0 , overlaps.get() );
+            assertTrue( error.get() instanceof CancellationException );
+        }
+    }
+}